@@ -0,0 +1,208 @@
+package main.rice.test;
+import java.util.*;
+
+/**
+ * ABitMatrix is the test case by file pass/fail matrix of a BitMatrixResults: bit (test, file) is set if the
+ * file fails the test case. Subclasses decide how the bits are stored; rows and columns are exposed as
+ * read-only Set views that are computed on demand instead of being materialized as boxed Integers.
+ */
+public abstract class ABitMatrix {
+
+    /**
+     * @return the number of test cases (rows)
+     */
+    public abstract int numCases();
+
+    /**
+     * @return the number of files (columns); file indices run from 0 to numFiles() - 1
+     */
+    public abstract int numFiles();
+
+    /**
+     * @param test the index of a test case
+     * @param file the index of a file
+     * @return true if the file fails the test case, false otherwise
+     */
+    public abstract boolean get(int test, int file);
+
+    /**
+     * @param test the index of a test case
+     * @param fromFile the file index to start from (inclusive); may be numFiles()
+     * @return the smallest file index >= fromFile that fails the test case, or -1 if there is none
+     */
+    public abstract int nextInRow(int test, int fromFile);
+
+    /**
+     * @param test the index of a test case
+     * @return the number of files that fail the test case
+     */
+    public abstract int rowCardinality(int test);
+
+    /**
+     * the method finds the next test case a file fails. A column is spread over every row, so this scans
+     * the rows one by one.
+     *
+     * @param file the index of a file
+     * @param fromTest the test case index to start from (inclusive)
+     * @return the smallest test case index >= fromTest that the file fails, or -1 if there is none
+     */
+    public int nextInColumn(int file, int fromTest) {
+        for (int test = fromTest; test < numCases(); test++) {
+            if (get(test, file)) {
+                return test;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param test the index of a test case
+     * @return a read-only view of the files that fail the test case, in ascending order
+     */
+    public Set<Integer> row(int test) {
+        return new IndexSetView() {
+            @Override
+            int next(int from) {
+                return nextInRow(test, from);
+            }
+
+            @Override
+            public boolean contains(Object obj) {
+                return obj instanceof Integer file && file >= 0 && file < numFiles() && get(test, file);
+            }
+
+            @Override
+            public int size() {
+                return rowCardinality(test);
+            }
+        };
+    }
+
+    /**
+     * @param file the index of a file
+     * @return a read-only view of the test cases the file fails, in ascending order; its size() scans the
+     *     whole column
+     */
+    public Set<Integer> column(int file) {
+        return new IndexSetView() {
+            @Override
+            int next(int from) {
+                return nextInColumn(file, from);
+            }
+
+            @Override
+            public boolean contains(Object obj) {
+                return obj instanceof Integer test && test >= 0 && test < numCases() && get(test, file);
+            }
+        };
+    }
+
+    /**
+     * @return a read-only view of every row, i.e. the caseToFiles of the matrix
+     */
+    public List<Set<Integer>> rows() {
+        return new RowsView();
+    }
+
+    /**
+     * @return the files that fail at least one test case, i.e. the wrongSet of the matrix
+     */
+    public BitSet wrongFiles() {
+        BitSet wrong = new BitSet(numFiles());
+        for (int test = 0; test < numCases(); test++) {
+            for (int file = nextInRow(test, 0); file >= 0; file = nextInRow(test, file + 1)) {
+                wrong.set(file);
+            }
+        }
+        return wrong;
+    }
+
+    /**
+     * IndexSetView is a read-only set of non-negative indices, iterated in ascending order through next().
+     */
+    abstract static class IndexSetView extends AbstractSet<Integer> {
+
+        /**
+         * @param from the index to start from (inclusive)
+         * @return the smallest index >= from in the set, or -1 if there is none
+         */
+        abstract int next(int from);
+
+        @Override
+        public Iterator<Integer> iterator() {
+            return new Iterator<>() {
+                private int next = IndexSetView.this.next(0);
+
+                @Override
+                public boolean hasNext() {
+                    return next >= 0;
+                }
+
+                @Override
+                public Integer next() {
+                    if (next < 0) {
+                        throw new NoSuchElementException();
+                    }
+                    int current = next;
+                    next = IndexSetView.this.next(current + 1);
+                    return current;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            int size = 0;
+            for (int index = next(0); index >= 0; index = next(index + 1)) {
+                size++;
+            }
+            return size;
+        }
+    }
+
+    /**
+     * BitSetView is a read-only Set view of a BitSet.
+     */
+    static final class BitSetView extends IndexSetView {
+        private final BitSet bits;
+
+        /**
+         * It's a constructor set for BitSetView
+         * @param bits: the bits to view; must not change while the view is in use
+         */
+        BitSetView(BitSet bits) {
+            this.bits = bits;
+        }
+
+        @Override
+        int next(int from) {
+            return bits.nextSetBit(from);
+        }
+
+        @Override
+        public boolean contains(Object obj) {
+            return obj instanceof Integer index && index >= 0 && bits.get(index);
+        }
+
+        @Override
+        public int size() {
+            return bits.cardinality();
+        }
+    }
+
+    /**
+     * RowsView is the read-only list of row views of the matrix.
+     */
+    private final class RowsView extends AbstractList<Set<Integer>> implements RandomAccess {
+        @Override
+        public Set<Integer> get(int test) {
+            Objects.checkIndex(test, numCases());
+            return row(test);
+        }
+
+        @Override
+        public int size() {
+            return numCases();
+        }
+    }
+}
@@ -29,24 +29,36 @@ public abstract class APyNode<ObjType extends APyObj<?>> {
     }
 
     /**
-     * This is a declaration of the field of exhaustive domain
+     * This is a declaration of the field of random domain
      */
     private List<? extends Number> ranDomain;
     /**
-     * This is a declaration of the field of random domain
+     * This is a declaration of the field of exhaustive domain
+     */
+    private List<? extends Number> exDomain;
+    /**
+     * Whether this node (and all of its children) has been frozen; see freeze().
      */
-    public List<? extends Number> exDomain;
+    private volatile boolean frozen;
 
     /**
      * The method sets the random domain to the input list of numbers.
      * @param ranDomain random domain object
+     * @throws IllegalStateException if the node has been frozen
      */
-    public void setRanDomain(List<? extends Number> ranDomain){ this.ranDomain = ranDomain;}
+    public void setRanDomain(List<? extends Number> ranDomain){
+        checkNotFrozen();
+        this.ranDomain = ranDomain;
+    }
     /**
-     * The method sets the random domain to the input list of numbers.
-     * @param exDomain random domain object
+     * The method sets the exhaustive domain to the input list of numbers.
+     * @param exDomain exhaustive domain object
+     * @throws IllegalStateException if the node has been frozen
      */
-    public void setExDomain(List<? extends Number> exDomain){this.exDomain = exDomain;}
+    public void setExDomain(List<? extends Number> exDomain){
+        checkNotFrozen();
+        this.exDomain = exDomain;
+    }
 
     /**
      * The method returns the random domain; returns null if it has not been set yet. do not need to account for null explicitly
@@ -61,6 +73,49 @@ public abstract class APyNode<ObjType extends APyObj<?>> {
      */
 
     public List<? extends Number> getExDomain(){return exDomain;}
+
+    /**
+     * The method freezes this node and all of its children: both domains get replaced by immutable copies
+     * and the setters throw from then on. A frozen tree is never mutated again, so any number of generator
+     * threads can share it without copying or locking, as long as it is handed to them through a
+     * thread-safe handoff (e.g. an executor or a final field), which ConfigFileParser's callers already do.
+     */
+    public void freeze() {
+        if (frozen) {
+            return;
+        }
+        // immutable lists keep their elements in final fields, so readers always see them fully built
+        if (exDomain != null) {
+            exDomain = List.copyOf(exDomain);
+        }
+        if (ranDomain != null) {
+            ranDomain = List.copyOf(ranDomain);
+        }
+        if (getLeftChild() != null) {
+            getLeftChild().freeze();
+        }
+        if (getRightChild() != null) {
+            getRightChild().freeze();
+        }
+        frozen = true;
+    }
+
+    /**
+     * The method checks whether the node has been frozen.
+     * @return true if freeze() has been called on this node (or one of its ancestors), false otherwise
+     */
+    public boolean isFrozen(){return frozen;}
+
+    /**
+     * The method throws if the node has been frozen.
+     * @throws IllegalStateException if the node has been frozen
+     */
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new IllegalStateException("The domains of a frozen node cannot be changed.");
+        }
+    }
+
     /**
      * the method generates and returns one valid Python object of type ObjType, selected from the random domain
      * @return  one valid Python object of type ObjType
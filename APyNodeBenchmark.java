@@ -0,0 +1,60 @@
+package bench.rice.node;
+
+import bench.rice.BenchConfigs;
+import main.rice.node.APyNode;
+import main.rice.node.CompiledNode;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks genExVals and genRandVal for every node type, on the node tree and on its compiled form.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class APyNodeBenchmark {
+
+    /**
+     * The node type, as the type string of a config file.
+     */
+    @Param({"int", "bool", "float", "str(abc", "list(int", "tuple(int", "set(int", "dict(int:int"})
+    public String type;
+
+    /**
+     * Whether to benchmark the CompiledNode of the tree instead of the tree itself.
+     */
+    @Param({"false", "true"})
+    public boolean compiled;
+
+    private APyNode<?> node;
+
+    /**
+     * Parses the node for the current type.
+     */
+    @Setup
+    public void setUp() {
+        for (String[] spec : BenchConfigs.NODE_SPECS) {
+            if (spec[0].equals(this.type)) {
+                this.node = BenchConfigs.node(spec);
+            }
+        }
+        if (this.compiled) {
+            this.node = CompiledNode.compile(this.node);
+        }
+    }
+
+    @Benchmark
+    public Set<?> genExVals() {
+        return this.node.genExVals();
+    }
+
+    @Benchmark
+    public Object genRandVal() {
+        return this.node.genRandVal();
+    }
+}
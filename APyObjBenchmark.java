@@ -0,0 +1,69 @@
+package bench.rice.obj;
+
+import main.rice.obj.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks equals, hashCode and toString on nested APyObjs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class APyObjBenchmark {
+
+    /**
+     * The number of elements at each level of nesting.
+     */
+    @Param({"4", "32"})
+    public int size;
+
+    private APyObj<?> value;
+    private APyObj<?> equalValue;
+
+    /**
+     * Builds two equal (but not identical) dict(str: list(tuple(int, float))) values.
+     */
+    @Setup
+    public void setUp() {
+        this.value = buildValue();
+        this.equalValue = buildValue();
+    }
+
+    @Benchmark
+    public boolean equalsNested() {
+        return this.value.equals(this.equalValue);
+    }
+
+    @Benchmark
+    public int hashCodeNested() {
+        return this.value.hashCode();
+    }
+
+    @Benchmark
+    public String toStringNested() {
+        return this.value.toString();
+    }
+
+    /**
+     * Builds a dict(str: list(tuple(int, float))) value with size elements at each level.
+     *
+     * @return the value
+     */
+    private APyObj<?> buildValue() {
+        Map<PyStringObj, PyListObj<PyTupleObj<APyObj<?>>>> dict = new HashMap<>();
+        for (int i = 0; i < this.size; i++) {
+            List<PyTupleObj<APyObj<?>>> list = new ArrayList<>();
+            for (int j = 0; j < this.size; j++) {
+                list.add(new PyTupleObj<>(List.of(new PyIntObj(j), new PyFloatObj(j / 2.0))));
+            }
+            dict.put(new PyStringObj("key" + i), new PyListObj<>(list));
+        }
+        return new PyDictObj<>(dict);
+    }
+}
@@ -0,0 +1,184 @@
+package main.rice.test;
+import java.io.*;
+import java.nio.channels.ReadableByteChannel;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import main.rice.obj.APyObj;
+import main.rice.obj.PyObjEncoder;
+
+/**
+ * An abstract class whose instances run the function under test of one submission on TestCases, each in
+ * its own way (long-lived workers, batches of tests per process, a forking server, ...).
+ */
+public abstract class APyRunner implements Closeable {
+    /**
+     * The default for the longest output of one call.
+     */
+    public static final long DEFAULT_MAX_OUTPUT_BYTES = 16 << 20;
+
+    /**
+     * The largest output limit: the largest array most JVMs can allocate.
+     */
+    public static final long MAX_OUTPUT_BYTES = Integer.MAX_VALUE - 8;
+
+    /**
+     * The timer of the deadlines of every runner: one daemon thread, whose only work is to kill what ran
+     * too long, so a runner costs no thread of its own. A deadline that is met is cancelled, and then
+     * removed from the queue at once.
+     */
+    protected static final ScheduledExecutorService WATCHDOG = watchdog();
+
+    private volatile long maxOutputBytes = DEFAULT_MAX_OUTPUT_BYTES;
+
+    /**
+     * @return the executor of WATCHDOG
+     */
+    private static ScheduledExecutorService watchdog() {
+        ScheduledThreadPoolExecutor watchdog = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "py-runner-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        watchdog.setRemoveOnCancelPolicy(true);
+        return watchdog;
+    }
+
+    /**
+     * Runs the function on every test case.
+     *
+     * @param tests the test cases
+     * @return the outcome of each call, in the order of tests
+     * @throws InterruptedException if interrupted while waiting for a process
+     */
+    public List<PyCallResult> runAll(List<TestCase> tests) throws InterruptedException {
+        return runAll(tests, null);
+    }
+
+    /**
+     * Runs the function on every test case, comparing each output with the expected one as it arrives
+     * (see FrameReader): an outcome equal to the expected one is returned as the expected object itself,
+     * and a different one describes the difference instead of holding the whole output.
+     *
+     * @param tests the test cases
+     * @param expected the expected outcome of each test case, or null to keep every output as it is
+     * @return the outcome of each call, in the order of tests
+     * @throws InterruptedException if interrupted while waiting for a process
+     */
+    public abstract List<PyCallResult> runAll(List<TestCase> tests, List<PyCallResult> expected)
+            throws InterruptedException;
+
+    /**
+     * Sets the longest output one call may send; a process that sends more is killed, and the call
+     * counts as crashed.
+     * @param maxOutputBytes the limit, in bytes; at most MAX_OUTPUT_BYTES, since an output is read into
+     *     one array
+     * @throws IllegalArgumentException if the limit is not positive, or above MAX_OUTPUT_BYTES
+     */
+    public void setMaxOutputBytes(long maxOutputBytes) {
+        if (maxOutputBytes <= 0 || maxOutputBytes > MAX_OUTPUT_BYTES) {
+            throw new IllegalArgumentException("the output limit must be between 1 and " + MAX_OUTPUT_BYTES
+                    + " bytes, not " + maxOutputBytes);
+        }
+        this.maxOutputBytes = maxOutputBytes;
+    }
+
+    /**
+     * Stops every process this runner started.
+     */
+    @Override
+    public abstract void close();
+
+    /**
+     * the method kills a process together with everything it started, so a submission that forks cannot
+     * leave processes behind. The scripts make their process a group leader before the submission is
+     * imported, so the whole group is killed first: it holds every process the submission started, even
+     * orphaned ones, which descendants() no longer sees. The descendants are then killed too, for any
+     * process that moved to a group of its own.
+     *
+     * @param process the process
+     */
+    protected static void destroyTree(Process process) {
+        try {
+            new ProcessBuilder("kill", "-KILL", "--", "-" + process.pid())
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .redirectError(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+        } catch (IOException e) {
+            // no kill command; the descendants below are still reachable
+        }
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+    }
+
+    /**
+     * the method encodes the arguments of a test case as the payload of a request, in the binary format
+     * of PyObjEncoder, which the Python side decodes without eval and without a size limit.
+     *
+     * @param test the test case
+     * @return the payload
+     */
+    protected static byte[] requestPayload(TestCase test) {
+        return PyObjEncoder.encodeArgs(test.getArgs());
+    }
+
+    /**
+     * the method renders the arguments of a test case as the repr of a Python tuple (the text form of a
+     * request payload, kept for logging and for hand-written requests).
+     *
+     * @param test the test case
+     * @return e.g. "(1, [2, 3],)"; "()" if there are no arguments
+     */
+    public static String argsRepr(TestCase test) {
+        List<APyObj<?>> args = test.getArgs();
+        if (args.isEmpty()) {
+            return "()";
+        }
+        StringBuilder repr = new StringBuilder("(");
+        for (APyObj<?> arg : args) {
+            repr.append(arg).append(", ");
+        }
+        // the trailing comma keeps a single argument a tuple
+        repr.setLength(repr.length() - 1);
+        return repr.append(")").toString();
+    }
+
+    /**
+     * the method writes one request frame of the pyworker.py protocol (it does not flush).
+     *
+     * @param out the stdin of the process
+     * @param payload the encoded argument tuple (see requestPayload)
+     * @throws IOException if the process is gone
+     */
+    protected static void writeRequest(DataOutputStream out, byte[] payload) throws IOException {
+        out.writeInt(payload.length);
+        out.write(payload);
+    }
+
+    /**
+     * the method opens a reader for the response frames of a process, with this runner's output limit.
+     *
+     * @param channel the stdout of the process, or a socket
+     * @return the reader, which the caller closes
+     */
+    protected FrameReader frameReader(ReadableByteChannel channel) {
+        return new FrameReader(channel, ByteBufferPool.SHARED, maxOutputBytes);
+    }
+
+    /**
+     * @param expected the expected outcomes, or null
+     * @param test the index of a test case
+     * @return its expected outcome, or null
+     */
+    protected static PyCallResult expectedAt(List<PyCallResult> expected, int test) {
+        return expected == null ? null : expected.get(test);
+    }
+
+    /**
+     * @param e the refused response
+     * @return the outcome of a call whose output was over the limit
+     */
+    protected static PyCallResult overLimit(OutputLimitException e) {
+        return new PyCallResult(PyCallResult.Status.CRASHED, e.getMessage());
+    }
+}
@@ -0,0 +1,304 @@
+package main.rice.concisegen;
+import java.util.*;
+import main.rice.test.*;
+
+/**
+ * AdaptiveCover builds a concise set while the base tests are still being run, instead of first running
+ * every test case on every submission to fill a TestResults:
+ * 1) probe: every test case runs on a small random sample of the submissions, which estimates its yield,
+ * 2) select: test cases are picked greedily by how many still-uncovered sampled submissions they catch
+ *    (then by sampled yield once the sample is covered), and each picked test case runs only on the
+ *    submissions no chosen test case catches yet; it joins the cover if it catches any of them,
+ * 3) prune: a chosen test case is dropped if every submission it was chosen for is also caught by another
+ *    chosen one, running only the few extra cells this needs.
+ * A submission that ends up uncovered has had every test case run on it and passed them all, so the cover
+ * catches every buggy submission, exactly like setCover on the full results, while most cells of the
+ * matrix are never run.
+ */
+public class AdaptiveCover {
+
+    /**
+     * CellEvaluator runs one test case on one submission.
+     */
+    @FunctionalInterface
+    public interface CellEvaluator {
+        /**
+         * @param test the index of the test case
+         * @param file the index of the submission
+         * @return true if the submission fails the test case, false otherwise
+         */
+        boolean fails(int test, int file);
+    }
+
+    /**
+     * The outcome of the adaptive run.
+     * @param cover the indices of the test cases of the cover, in the order they were chosen
+     * @param wrongSet the submissions that fail at least one test case
+     * @param evaluations the number of (test case, submission) cells that were run
+     */
+    public record Result(List<Integer> cover, Set<Integer> wrongSet, long evaluations) {
+        /**
+         * @param allCases the test cases, by index
+         * @return the test cases of the cover
+         */
+        public Set<TestCase> toTestCases(List<TestCase> allCases) {
+            Set<TestCase> conciseSet = new HashSet<>();
+            for (int test : cover) {
+                conciseSet.add(allCases.get(test));
+            }
+            return conciseSet;
+        }
+    }
+
+    private final int numCases;
+    private final int numFiles;
+    private final CellEvaluator evaluator;
+    private long evaluations;
+
+    /**
+     * The sampled submissions, and the position of each submission in the sample (-1 if not sampled).
+     */
+    private final int[] sample;
+    private final int[] samplePos;
+    /**
+     * For each test case, the sample positions of the sampled submissions that fail it.
+     */
+    private final BitSet[] probe;
+
+    /**
+     * For each chosen test case, the submissions it has run on, and those that fail it.
+     */
+    private final Map<Integer, BitSet> ran = new HashMap<>();
+    private final Map<Integer, BitSet> failed = new HashMap<>();
+
+    /**
+     * It's a constructor set for AdaptiveCover
+     * @param numCases: the number of test cases
+     * @param numFiles: the number of submissions
+     * @param evaluator: runs the cells
+     * @param sampleSize: the number of submissions to probe every test case on
+     * @param rand: picks the sample
+     */
+    private AdaptiveCover(int numCases, int numFiles, CellEvaluator evaluator, int sampleSize, Random rand) {
+        this.numCases = numCases;
+        this.numFiles = numFiles;
+        this.evaluator = evaluator;
+
+        int[] files = new int[numFiles];
+        for (int file = 0; file < numFiles; file++) {
+            files[file] = file;
+        }
+        int size = Math.max(0, Math.min(sampleSize, numFiles));
+        // partial Fisher-Yates shuffle: the first size entries become a uniform sample
+        for (int i = 0; i < size; i++) {
+            int j = i + rand.nextInt(numFiles - i);
+            int tmp = files[i];
+            files[i] = files[j];
+            files[j] = tmp;
+        }
+        this.sample = Arrays.copyOf(files, size);
+        this.samplePos = new int[numFiles];
+        Arrays.fill(samplePos, -1);
+        for (int pos = 0; pos < size; pos++) {
+            samplePos[sample[pos]] = pos;
+        }
+        this.probe = new BitSet[numCases];
+    }
+
+    /**
+     * the method builds a concise set by running only the cells of the test case by submission matrix that
+     * can change it.
+     *
+     * @param numCases the number of test cases
+     * @param numFiles the number of submissions
+     * @param evaluator runs one test case on one submission; called from the calling thread only
+     * @param sampleSize the number of submissions to probe every test case on (e.g. 32)
+     * @param rand picks the probed submissions
+     * @return the cover, the buggy submissions, and the number of cells that were run
+     */
+    public static Result solve(int numCases, int numFiles, CellEvaluator evaluator, int sampleSize, Random rand) {
+        AdaptiveCover adaptive = new AdaptiveCover(numCases, numFiles, evaluator, sampleSize, rand);
+        adaptive.runProbe();
+        Map<Integer, BitSet> assigned = adaptive.select();
+        List<Integer> cover = adaptive.prune(assigned);
+
+        Set<Integer> wrongSet = new TreeSet<>();
+        for (BitSet files : assigned.values()) {
+            files.stream().forEach(wrongSet::add);
+        }
+        return new Result(cover, wrongSet, adaptive.evaluations);
+    }
+
+    /**
+     * the method runs every test case on the sampled submissions.
+     */
+    private void runProbe() {
+        for (int test = 0; test < numCases; test++) {
+            probe[test] = new BitSet(sample.length);
+            for (int pos = 0; pos < sample.length; pos++) {
+                if (evaluate(test, sample[pos])) {
+                    probe[test].set(pos);
+                }
+            }
+        }
+    }
+
+    /**
+     * the method picks the cover: candidates come in greedy order of their sampled gain, and each one runs
+     * on the submissions that are still uncovered.
+     *
+     * @return for each chosen test case, in the order chosen, the submissions it was the first to catch
+     */
+    private Map<Integer, BitSet> select() {
+        BitSet uncovered = new BitSet(numFiles);
+        uncovered.set(0, numFiles);
+        BitSet sampleUncovered = new BitSet(sample.length);
+        sampleUncovered.set(0, sample.length);
+        Map<Integer, BitSet> assigned = new LinkedHashMap<>();
+        boolean[] considered = new boolean[numCases];
+
+        // lazy greedy on the sampled gains, as in ConciseSetGenerator.greedyCover
+        PriorityQueue<Long> queue = new PriorityQueue<>(Math.max(1, numCases), Comparator.reverseOrder());
+        for (int test = 0; test < numCases; test++) {
+            int gain = probe[test].cardinality();
+            if (gain > 0) {
+                queue.add(((long) gain << 32) | (Integer.MAX_VALUE - test));
+            }
+        }
+        while (!queue.isEmpty()) {
+            int test = Integer.MAX_VALUE - (int) (long) queue.poll();
+            int gain = sampledGain(test, sampleUncovered);
+            if (gain == 0) {
+                continue;
+            }
+            long key = ((long) gain << 32) | (Integer.MAX_VALUE - test);
+            if (!queue.isEmpty() && key < queue.peek()) {
+                queue.add(key);
+                continue;
+            }
+            considered[test] = true;
+            consider(test, uncovered, sampleUncovered, assigned);
+        }
+
+        // the sample is covered: the rest can only catch unsampled submissions, so try them by sampled yield
+        Integer[] rest = new Integer[numCases];
+        for (int test = 0; test < numCases; test++) {
+            rest[test] = test;
+        }
+        Arrays.sort(rest, (a, b) -> probe[b].cardinality() - probe[a].cardinality());
+        for (int test : rest) {
+            if (!considered[test] && !uncovered.isEmpty()) {
+                consider(test, uncovered, sampleUncovered, assigned);
+            }
+        }
+        return assigned;
+    }
+
+    /**
+     * the method runs a candidate on the uncovered submissions, and adds it to the cover if it catches any.
+     *
+     * @param test the index of the candidate
+     * @param uncovered the submissions no chosen test case catches; updated
+     * @param sampleUncovered the sample positions of the uncovered sampled submissions; updated
+     * @param assigned receives the candidate and the submissions it catches, if it catches any
+     */
+    private void consider(int test, BitSet uncovered, BitSet sampleUncovered, Map<Integer, BitSet> assigned) {
+        BitSet caught = new BitSet(numFiles);
+        for (int file = uncovered.nextSetBit(0); file >= 0; file = uncovered.nextSetBit(file + 1)) {
+            if (samplePos[file] >= 0 ? probe[test].get(samplePos[file]) : evaluate(test, file)) {
+                caught.set(file);
+            }
+        }
+        if (!caught.isEmpty()) {
+            // only chosen test cases remember their cells; prune() is the only one asking for them again
+            ran.put(test, (BitSet) uncovered.clone());
+            failed.put(test, (BitSet) caught.clone());
+            assigned.put(test, caught);
+            uncovered.andNot(caught);
+            for (int file = caught.nextSetBit(0); file >= 0; file = caught.nextSetBit(file + 1)) {
+                if (samplePos[file] >= 0) {
+                    sampleUncovered.clear(samplePos[file]);
+                }
+            }
+        }
+    }
+
+    /**
+     * the method drops the chosen test cases whose submissions are all caught by other chosen ones,
+     * checking the earliest chosen first and handing their submissions over to the test cases that catch
+     * them.
+     *
+     * @param assigned for each chosen test case, the submissions it is responsible for; updated
+     * @return the remaining chosen test cases, in the order they were chosen
+     */
+    private List<Integer> prune(Map<Integer, BitSet> assigned) {
+        List<Integer> cover = new ArrayList<>(assigned.keySet());
+        for (int test : new ArrayList<>(cover)) {
+            BitSet files = assigned.get(test);
+            Map<Integer, BitSet> handover = new HashMap<>();
+            boolean redundant = true;
+            for (int file = files.nextSetBit(0); file >= 0 && redundant; file = files.nextSetBit(file + 1)) {
+                redundant = false;
+                for (int other : cover) {
+                    if (other != test && fails(other, file)) {
+                        handover.computeIfAbsent(other, k -> new BitSet(numFiles)).set(file);
+                        redundant = true;
+                        break;
+                    }
+                }
+            }
+            if (redundant) {
+                cover.remove((Integer) test);
+                assigned.remove(test);
+                handover.forEach((other, moved) -> assigned.get(other).or(moved));
+            }
+        }
+        return cover;
+    }
+
+    /**
+     * @param test the index of a test case
+     * @param sampleUncovered the sample positions of the uncovered sampled submissions
+     * @return the number of uncovered sampled submissions that fail the test case
+     */
+    private int sampledGain(int test, BitSet sampleUncovered) {
+        BitSet gain = (BitSet) probe[test].clone();
+        gain.and(sampleUncovered);
+        return gain.cardinality();
+    }
+
+    /**
+     * the method looks up a cell of a chosen test case that has already been run (by the probe or by
+     * the test case itself), and runs it otherwise.
+     *
+     * @param test the index of the test case
+     * @param file the index of the submission
+     * @return true if the submission fails the test case, false otherwise
+     */
+    private boolean fails(int test, int file) {
+        if (samplePos[file] >= 0) {
+            return probe[test].get(samplePos[file]);
+        }
+        BitSet testRan = ran.get(test);
+        BitSet testFailed = failed.get(test);
+        if (!testRan.get(file)) {
+            testRan.set(file);
+            if (evaluate(test, file)) {
+                testFailed.set(file);
+            }
+        }
+        return testFailed.get(file);
+    }
+
+    /**
+     * the method runs a cell through the evaluator and counts it.
+     *
+     * @param test the index of the test case
+     * @param file the index of the submission
+     * @return true if the submission fails the test case, false otherwise
+     */
+    private boolean evaluate(int test, int file) {
+        evaluations++;
+        return evaluator.fails(test, file);
+    }
+}
@@ -0,0 +1,102 @@
+package test.rice.concisegen;
+
+import main.rice.concisegen.AdaptiveCover;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test cases for the AdaptiveCover class.
+ */
+class AdaptiveCoverTest {
+
+    /**
+     * Tests that the adaptive cover catches every buggy file while running fewer cells than the full matrix.
+     */
+    @Test
+    void testCoversWithFewerCells() {
+        // test 0 catches the even files, test 1 the odd ones, tests 2-9 only file 0; file 99 is correct
+        boolean[][] fails = new boolean[10][100];
+        for (int file = 0; file < 99; file++) {
+            fails[file % 2][file] = true;
+        }
+        for (int test = 2; test < 10; test++) {
+            fails[test][0] = true;
+        }
+
+        AdaptiveCover.Result result = AdaptiveCover.solve(10, 100, (test, file) -> fails[test][file], 10,
+                new Random(0));
+        assertEquals(Set.of(0, 1), Set.copyOf(result.cover()));
+        assertEquals(99, result.wrongSet().size());
+        assertTrue(result.evaluations() < 10 * 100);
+    }
+
+    /**
+     * Tests that a file that never fails has every test case run on it, and stays out of the wrong set.
+     */
+    @Test
+    void testCorrectFileRunsEveryTest() {
+        // test t catches file t; file 5 is correct
+        Map<Integer, Set<Integer>> ran = new HashMap<>();
+        AdaptiveCover.Result result = AdaptiveCover.solve(5, 6, (test, file) -> {
+            ran.computeIfAbsent(file, k -> new HashSet<>()).add(test);
+            return test == file;
+        }, 2, new Random(0));
+
+        assertEquals(Set.of(0, 1, 2, 3, 4), Set.copyOf(result.cover()));
+        assertEquals(Set.of(0, 1, 2, 3, 4), result.wrongSet());
+        assertEquals(Set.of(0, 1, 2, 3, 4), ran.get(5));
+    }
+
+    /**
+     * Tests that once the first test case tried catches every file, no other test case is run at all
+     * (without a sample), or run beyond the sample.
+     */
+    @Test
+    void testCoveredInFirstRound() {
+        // test 0 catches every file; tests 1 and 2 catch file 0 only
+        Set<Integer> evaluated = new HashSet<>();
+        AdaptiveCover.Result unsampled = AdaptiveCover.solve(3, 4, (test, file) -> {
+            evaluated.add(test);
+            return test == 0 || file == 0;
+        }, 0, new Random(0));
+        assertEquals(List.of(0), unsampled.cover());
+        assertEquals(Set.of(0, 1, 2, 3), unsampled.wrongSet());
+        assertEquals(4, unsampled.evaluations());
+        assertEquals(Set.of(0), evaluated);
+
+        // with every file sampled, the probe runs every cell, and selecting and pruning run none
+        AdaptiveCover.Result sampled = AdaptiveCover.solve(3, 4, (test, file) -> test == 0 || file == 0, 4,
+                new Random(0));
+        assertEquals(List.of(0), sampled.cover());
+        assertEquals(3 * 4, sampled.evaluations());
+    }
+
+    /**
+     * Tests that a test case that catches nothing is left out, and that with no test cases or no files the
+     * cover is empty and nothing is run.
+     */
+    @Test
+    void testNothingToCover() {
+        AdaptiveCover.Result passing = AdaptiveCover.solve(2, 3, (test, file) -> test == 1 && file == 2, 3,
+                new Random(0));
+        assertEquals(List.of(1), passing.cover());
+        assertEquals(Set.of(2), passing.wrongSet());
+
+        AdaptiveCover.CellEvaluator never = (test, file) -> {
+            throw new AssertionError("no cell should be run");
+        };
+        assertEquals(new AdaptiveCover.Result(List.of(), Set.of(), 0), AdaptiveCover.solve(0, 5, never, 3,
+                new Random(0)));
+        assertEquals(new AdaptiveCover.Result(List.of(), Set.of(), 0), AdaptiveCover.solve(4, 0, never, 3,
+                new Random(0)));
+    }
+}
@@ -23,7 +23,8 @@ public class BaseSetGenerator{
      * @param numRand: an integer representing the number of random tests cases to generate
      */
     public BaseSetGenerator(List<APyNode<?>> nodes, int numRand){
-        this.nodes=nodes;
+        //defensive copy: the (frozen) nodes may be shared with other generators, the list is ours
+        this.nodes=List.copyOf(nodes);
         this.numRand=numRand;
         
     }
@@ -34,7 +35,18 @@ public class BaseSetGenerator{
      * @return the base test set
      */
     public List<TestCase> genBaseSet() {
-        Set<TestCase> exTestCases = genExTests();
+        return genBaseSet(genExVals());
+    }
+
+    /**
+     * Generates the base test set like genBaseSet(), but builds the exhaustive tests out of
+     * already-generated exhaustive values (one set per node, in the same order as the nodes)
+     * instead of calling genExVals() on every node again.
+     * @param exVals the exhaustive values of each node
+     * @return the base test set
+     */
+    public List<TestCase> genBaseSet(List<? extends Set<? extends APyObj<?>>> exVals) {
+        Set<TestCase> exTestCases = genExTests(exVals);
         Set<TestCase> randTestCases = genRandTests(exTestCases);
         List<TestCase> baseSet = new ArrayList<>(exTestCases);
         //just add all the sets together!!:)
@@ -43,6 +55,17 @@ public class BaseSetGenerator{
         return baseSet;
     }
 
+    /**
+     * Generates the exhaustive values of every node, in the same order as the nodes.
+     * @return a list containing the result of genExVals() for each node
+     */
+    public List<Set<? extends APyObj<?>>> genExVals() {
+        List<Set<? extends APyObj<?>>> exVals = new ArrayList<>();
+        for (APyNode<?> node : this.nodes) {
+            exVals.add(node.genExVals());
+        }
+        return exVals;
+    }
 
     /**
      * Generates and returns the set of all test cases that adhere to the type and exhaustive domain
@@ -53,10 +76,20 @@ public class BaseSetGenerator{
      *
      */
     public Set<TestCase> genExTests() {
+        return genExTests(genExVals());
+    }
+
+    /**
+     * Generates the exhaustive test set like genExTests(), but out of already-generated
+     * exhaustive values (one set per node, in the same order as the nodes).
+     * @param exVals the exhaustive values of each node
+     * @return the set of all test cases whose arguments are drawn from exVals
+     */
+    public Set<TestCase> genExTests(List<? extends Set<? extends APyObj<?>>> exVals) {
         // Start with an initial empty combination to build upon
         List<APyObj<?>> initTestPerm = new ArrayList<>();
         Set<TestCase> testCases = new HashSet<>();
-        getCartesianProduct(0,initTestPerm, testCases);
+        getCartesianProduct(0, exVals, initTestPerm, testCases);
         return testCases;
     }
 
@@ -93,20 +126,22 @@ public class BaseSetGenerator{
      * and updated permutation and index using recursive call.
      * @param currTestPerm current permutation
      * @param index is used to indicate  our current position in the list of domains
+     * @param exVals the exhaustive values of each node
      * @param testCases set parametrized by testcases that is generated from exhaustive domain
      */
 
-    private void getCartesianProduct( int index, List<APyObj<?>> currTestPerm, Set<TestCase> testCases) {
+    private void getCartesianProduct(int index, List<? extends Set<? extends APyObj<?>>> exVals,
+                                     List<APyObj<?>> currTestPerm, Set<TestCase> testCases) {
         //base case
-        if (index == nodes.size()) {
+        if (index == exVals.size()) {
             testCases.add(new TestCase(new ArrayList<>(currTestPerm)));
         } else {
-            // get exhaustive values for this node
-            Set<? extends APyObj<?>> exValues = this.nodes.get(index).genExVals();
+            // exhaustive values for this node (generated once, not on every recursive call)
+            Set<? extends APyObj<?>> exValues = exVals.get(index);
             for (APyObj<?> value : exValues) {
                 currTestPerm.add(value);
                 // recursive step: get the next combination (at a node at incremented index) for the product
-                getCartesianProduct(index + 1,currTestPerm, testCases);
+                getCartesianProduct(index + 1, exVals, currTestPerm, testCases);
                 // remove PyObj to backtrack
                 currTestPerm.remove(currTestPerm.size() - 1);
             }
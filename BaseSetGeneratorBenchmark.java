@@ -0,0 +1,90 @@
+package bench.rice.basegen;
+
+import bench.rice.BenchConfigs;
+import main.rice.basegen.BaseSetGenerator;
+import main.rice.node.APyNode;
+import main.rice.node.CompiledNode;
+import main.rice.test.TestCase;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks BaseSetGenerator.genExTests and genRandTests at several sizes of the cartesian product.
+ * The number of random tests is a parameter of genRandTests' state only, since genExTests ignores it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BaseSetGeneratorBenchmark {
+
+    /**
+     * The number of list(int) parameters; each has 4 exhaustive values, so the product has 4^params tests.
+     */
+    @Param({"2", "5", "8"})
+    public int params;
+
+    /**
+     * Whether the generator gets CompiledNodes instead of the node trees.
+     */
+    @Param({"false", "true"})
+    public boolean compiled;
+
+    private List<APyNode<?>> nodes;
+    private BaseSetGenerator generator;
+    private Set<TestCase> exTests;
+
+    /**
+     * Builds the generator and the exhaustive tests that genRandTests has to avoid.
+     */
+    @Setup
+    public void setUp() {
+        this.nodes = new ArrayList<>();
+        for (int i = 0; i < this.params; i++) {
+            APyNode<?> node = BenchConfigs.node(new String[]{"list(int", "1(0~3", "0~5(-100000~100000"});
+            this.nodes.add(this.compiled ? CompiledNode.compile(node) : node);
+        }
+        this.generator = new BaseSetGenerator(this.nodes, 0);
+        this.exTests = this.generator.genExTests();
+    }
+
+    /**
+     * The generator of genRandTests.
+     */
+    @State(Scope.Benchmark)
+    public static class RandomTests {
+        /**
+         * The number of random tests to generate.
+         */
+        @Param({"100", "10000"})
+        public int numRand;
+
+        private BaseSetGenerator generator;
+
+        /**
+         * Builds a generator over the nodes of the benchmark.
+         *
+         * @param bench the benchmark state
+         */
+        @Setup
+        public void setUp(BaseSetGeneratorBenchmark bench) {
+            this.generator = new BaseSetGenerator(bench.nodes, this.numRand);
+        }
+    }
+
+    @Benchmark
+    public Set<TestCase> genExTests() {
+        return this.generator.genExTests();
+    }
+
+    @Benchmark
+    public Set<TestCase> genRandTests(RandomTests random) {
+        return random.generator.genRandTests(this.exTests);
+    }
+}
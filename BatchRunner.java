@@ -0,0 +1,217 @@
+package main.rice.test;
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * BatchRunner runs the test cases of one submission in batches: each batch is one fresh pyworker.py
+ * process that imports the submission, answers one framed response per test case, and exits. Each test
+ * case gets its own response, so a test that raises does not affect the others; if a test case hangs or
+ * kills the process, it alone is marked TIMEOUT or CRASHED and the rest of its batch is run again in a
+ * new process. The same goes for a test case that runs out of CPU time (see ExecutionLimits); a process
+ * is always killed together with everything it started.
+ * The batch size adapts to the measured startup time (time to the first response, minus one test) and
+ * per-test latency (time between responses): a batch is made large enough that startup is at most a
+ * tenth of its time, but no longer than maxBatchTime, so a crash late in a batch wastes little work.
+ * runAll() may be called from several threads at once; each call runs its own batches, and the latency
+ * estimates are shared.
+ */
+public class BatchRunner extends APyRunner {
+    /**
+     * Startup may be at most 1 / AMORTIZATION of the time of a batch.
+     */
+    private static final int AMORTIZATION = 10;
+    /**
+     * The weight of the newest measurement in the moving averages.
+     */
+    private static final double SMOOTHING = 0.3;
+    private static final int MAX_BATCH = 10_000;
+
+    private final List<String> command;
+    private final Duration testTimeout;
+    private final Duration maxBatchTime;
+    private final Set<Process> running = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+
+    private double startupNanos = -1;
+    private double perTestNanos = -1;
+    private int batchSize = 16;
+
+    /**
+     * It's a constructor set for BatchRunner
+     * @param python: the Python interpreter to run (e.g. "python3")
+     * @param workerScript: the path of pyworker.py
+     * @param submission: the path of the submission
+     * @param funcName: the name of the function to call (ConfigFile's fname)
+     * @param testTimeout: how long one test case may take (the first of a batch also gets the import)
+     * @param maxBatchTime: how long a batch should take at most, going by the measured latency
+     */
+    public BatchRunner(String python, Path workerScript, Path submission, String funcName, Duration testTimeout,
+                       Duration maxBatchTime) {
+        this(python, workerScript, submission, funcName, ExecutionLimits.wallClock(testTimeout), maxBatchTime);
+    }
+
+    /**
+     * It's a constructor set for BatchRunner
+     * @param python: the Python interpreter to run (e.g. "python3")
+     * @param workerScript: the path of pyworker.py
+     * @param submission: the path of the submission
+     * @param funcName: the name of the function to call (ConfigFile's fname)
+     * @param limits: the budgets of one test case (the first of a batch also gets the import)
+     * @param maxBatchTime: how long a batch should take at most, going by the measured latency
+     */
+    public BatchRunner(String python, Path workerScript, Path submission, String funcName, ExecutionLimits limits,
+                       Duration maxBatchTime) {
+        List<String> command = new ArrayList<>(List.of(python, workerScript.toString(), submission.toString(),
+                funcName));
+        command.addAll(limits.scriptArgs());
+        this.command = List.copyOf(command);
+        this.testTimeout = limits.wallClock();
+        this.maxBatchTime = maxBatchTime;
+    }
+
+    @Override
+    public List<PyCallResult> runAll(List<TestCase> tests, List<PyCallResult> expected) throws InterruptedException {
+        List<PyCallResult> results = new ArrayList<>(tests.size());
+        while (results.size() < tests.size() && !closed) {
+            int from = results.size();
+            int to = Math.min(tests.size(), from + getBatchSize());
+            runBatch(tests.subList(from, to), expected == null ? null : expected.subList(from, to), results);
+        }
+        while (results.size() < tests.size()) {
+            results.add(new PyCallResult(PyCallResult.Status.CRASHED, "runner closed"));
+        }
+        return results;
+    }
+
+    /**
+     * @return the number of test cases the next batch will hold
+     */
+    public synchronized int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Kills the running batches, if any.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Process process : running) {
+            destroyTree(process);
+        }
+    }
+
+    /**
+     * the method runs a batch in a new process. If the process hangs or dies, the test case it was running
+     * gets TIMEOUT or CRASHED and the test cases after it are left for the next batch.
+     *
+     * @param batch the test cases of the batch
+     * @param expected the expected outcome of each test case of the batch, or null
+     * @param results receives the result of each test case that finished, in order
+     * @throws InterruptedException if interrupted while waiting for the process
+     */
+    private void runBatch(List<TestCase> batch, List<PyCallResult> expected, List<PyCallResult> results)
+            throws InterruptedException {
+        Process process;
+        try {
+            process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.DISCARD).start();
+        } catch (IOException e) {
+            results.add(new PyCallResult(PyCallResult.Status.CRASHED, "cannot start python: " + e.getMessage()));
+            return;
+        }
+        running.add(process);
+        if (closed) {
+            destroyTree(process);
+        }
+        long start = System.nanoTime();
+
+        // a separate writer, so a full stdout pipe can never block the requests (and vice versa); it only
+        // blocks on the pipe, so a virtual thread will do
+        Thread writer = Thread.ofVirtual().name("py-batch-writer").start(() -> {
+            try (DataOutputStream requests = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()))) {
+                for (TestCase test : batch) {
+                    writeRequest(requests, requestPayload(test));
+                }
+            } catch (IOException e) {
+                // the process died; the reader finds out too
+            }
+        });
+
+        AtomicBoolean timedOut = new AtomicBoolean();
+        Runnable kill = () -> {
+            timedOut.set(true);
+            destroyTree(process);
+        };
+        FrameReader responses = frameReader(Channels.newChannel(process.getInputStream()));
+        int done = 0;
+        // set when the test case that ended the batch early already has its result
+        boolean settled = false;
+        long firstResponse = 0;
+        long lastResponse = 0;
+        try {
+            while (done < batch.size()) {
+                ScheduledFuture<?> deadline = WATCHDOG.schedule(kill, testTimeout.toNanos(), TimeUnit.NANOSECONDS);
+                PyCallResult result;
+                try {
+                    result = responses.read(expectedAt(expected, done));
+                } finally {
+                    deadline.cancel(false);
+                }
+                if (timedOut.get()) {
+                    break; // the response came in just as the watchdog fired: the test case took too long
+                }
+                results.add(result);
+                if (result.status() == PyCallResult.Status.TIMEOUT) {
+                    settled = true; // it ran out of CPU time, and the worker exits after it
+                    break;
+                }
+                lastResponse = System.nanoTime();
+                if (done++ == 0) {
+                    firstResponse = lastResponse;
+                }
+            }
+        } catch (OutputLimitException e) {
+            results.add(overLimit(e));
+            settled = true;
+        } catch (IOException e) {
+            // the process died or was killed while running test case number done
+        } finally {
+            destroyTree(process);
+            running.remove(process);
+            // give the buffer back first: the join throws if this thread is interrupted (e.g. by cancel())
+            responses.close();
+            writer.join();
+        }
+
+        if (done < batch.size() && !settled) {
+            results.add(timedOut.get()
+                    ? new PyCallResult(PyCallResult.Status.TIMEOUT, "timed out after " + testTimeout.toMillis() + " ms")
+                    : new PyCallResult(PyCallResult.Status.CRASHED, "python exited"));
+        }
+        if (done >= 2) {
+            adapt(firstResponse - start, (double) (lastResponse - firstResponse) / (done - 1));
+        }
+    }
+
+    /**
+     * the method updates the latency estimates and picks the next batch size.
+     *
+     * @param firstNanos the time from starting the process to the first response
+     * @param perTest the mean time between the responses after the first
+     */
+    private synchronized void adapt(long firstNanos, double perTest) {
+        double startup = Math.max(0, firstNanos - perTest);
+        startupNanos = startupNanos < 0 ? startup : SMOOTHING * startup + (1 - SMOOTHING) * startupNanos;
+        perTestNanos = perTestNanos < 0 ? perTest : SMOOTHING * perTest + (1 - SMOOTHING) * perTestNanos;
+
+        double perTestFloor = Math.max(perTestNanos, 1_000);
+        long amortized = (long) Math.ceil(AMORTIZATION * startupNanos / perTestFloor);
+        long capped = (long) (maxBatchTime.toNanos() / perTestFloor);
+        batchSize = (int) Math.max(1, Math.min(MAX_BATCH, Math.min(amortized, capped)));
+    }
+}
@@ -0,0 +1,92 @@
+package test.rice.test;
+
+import main.rice.test.APyRunner;
+import main.rice.test.BatchRunner;
+import main.rice.test.PyCallResult;
+import main.rice.test.TestCase;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test cases for the BatchRunner class, which run pyworker.py with python3 on small submissions (see
+ * PyWorkerPoolTest).
+ */
+class BatchRunnerTest {
+
+    /**
+     * Tests that each test case of a batch gets its own outcome, and that the test cases after one that
+     * hangs or kills the process are run again in a new process.
+     */
+    @Test
+    void testRetryAfterCrash(@TempDir Path dir) throws IOException, InterruptedException {
+        try (BatchRunner runner = new BatchRunner("python3", PyWorkerPoolTest.WORKER,
+                PyWorkerPoolTest.submission(dir, PyWorkerPoolTest.MODES), "f", Duration.ofSeconds(2),
+                Duration.ofSeconds(10))) {
+            List<PyCallResult> results = runner.runAll(List.of(PyWorkerPoolTest.test("pid"),
+                    PyWorkerPoolTest.test("raise"), PyWorkerPoolTest.test("pid"), PyWorkerPoolTest.test("exit"),
+                    PyWorkerPoolTest.test("pid"), PyWorkerPoolTest.test("hang"), PyWorkerPoolTest.test("pid")));
+
+            assertEquals(7, results.size());
+            assertEquals(new PyCallResult(PyCallResult.Status.RAISED, "ValueError: bad"), results.get(1));
+            assertEquals(PyCallResult.Status.CRASHED, results.get(3).status());
+            assertEquals(PyCallResult.Status.TIMEOUT, results.get(5).status());
+            // a raise keeps the process; a crash or a timeout starts a new one for the rest
+            assertEquals(results.get(0), results.get(2));
+            assertNotEquals(results.get(2), results.get(4));
+            assertNotEquals(results.get(4), results.get(6));
+            assertTrue(results.get(6).isReturned());
+        }
+    }
+
+    /**
+     * Tests that closing the runner kills the running batch at once, and that the test cases it did not
+     * get to count as crashed.
+     */
+    @Test
+    void testCloseWhileBusy(@TempDir Path dir) throws Exception {
+        BatchRunner runner = new BatchRunner("python3", PyWorkerPoolTest.WORKER,
+                PyWorkerPoolTest.submission(dir, PyWorkerPoolTest.MODES), "f", Duration.ofSeconds(60),
+                Duration.ofSeconds(60));
+        List<TestCase> tests = List.of(PyWorkerPoolTest.test("ok"), PyWorkerPoolTest.test("hang"),
+                PyWorkerPoolTest.test("ok"));
+        CompletableFuture<List<PyCallResult>> hung = CompletableFuture.supplyAsync(() -> {
+            try {
+                return runner.runAll(tests);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(500);
+        runner.close();
+        List<PyCallResult> results = hung.get(10, TimeUnit.SECONDS);
+
+        assertEquals(PyCallResult.returned("'ok'"), results.get(0));
+        assertEquals(PyCallResult.Status.CRASHED, results.get(1).status());
+        assertEquals(new PyCallResult(PyCallResult.Status.CRASHED, "runner closed"), results.get(2));
+    }
+
+    /**
+     * Tests that an output limit is accepted only if it is positive and fits in an array.
+     */
+    @Test
+    void testOutputLimitRange() {
+        try (BatchRunner runner = new BatchRunner("python3", PyWorkerPoolTest.WORKER, Path.of("sub.py"), "f",
+                Duration.ofSeconds(1), Duration.ofSeconds(1))) {
+            runner.setMaxOutputBytes(1);
+            runner.setMaxOutputBytes(APyRunner.MAX_OUTPUT_BYTES);
+            assertThrows(IllegalArgumentException.class, () -> runner.setMaxOutputBytes(0));
+            assertThrows(IllegalArgumentException.class, () -> runner.setMaxOutputBytes(-1));
+            assertThrows(IllegalArgumentException.class,
+                    () -> runner.setMaxOutputBytes(APyRunner.MAX_OUTPUT_BYTES + 1));
+        }
+    }
+}
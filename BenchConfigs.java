@@ -0,0 +1,101 @@
+package bench.rice;
+
+import main.rice.node.APyNode;
+import main.rice.parse.ConfigFileParser;
+import main.rice.parse.InvalidConfigException;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Builds the synthetic config files shared by the benchmarks.
+ */
+public final class BenchConfigs {
+
+    /**
+     * One (type, exhaustive domain, random domain) triple for every node type.
+     */
+    public static final String[][] NODE_SPECS = {
+            {"int", "0~9", "-100~100"},
+            {"bool", "[0, 1]", "[0, 1]"},
+            {"float", "[0.5, 1.5, 2.5]", "[0.0, 0.25, 0.5, 0.75]"},
+            {"str(abc", "0~3", "0~10"},
+            {"list(int", "0~3(0~3", "0~10(-10~10"},
+            {"tuple(int", "0~3(0~3", "0~10(-10~10"},
+            {"set(int", "0~3(0~5", "0~5(-10~10"},
+            {"dict(int:int", "0~2(0~3:0~3", "0~5(-10~10:-10~10"},
+    };
+
+    private BenchConfigs() {
+    }
+
+    /**
+     * Builds a config with the given parameters.
+     *
+     * @param types      the type of each parameter
+     * @param exDomains  the exhaustive domain of each parameter
+     * @param ranDomains the random domain of each parameter
+     * @param numRand    the number of random tests
+     * @return the JSON contents of the config file
+     */
+    public static String config(List<String> types, List<String> exDomains, List<String> ranDomains,
+                                int numRand) {
+        return "{\"fname\": \"func\", \"types\": " + jsonArray(types) +
+                ", \"exhaustive domain\": " + jsonArray(exDomains) +
+                ", \"random domain\": " + jsonArray(ranDomains) +
+                ", \"num random\": " + numRand + "}";
+    }
+
+    /**
+     * Builds a config with the given number of int parameters.
+     *
+     * @param width the number of parameters
+     * @return the JSON contents of the config file
+     */
+    public static String wideConfig(int width) {
+        List<String> types = Collections.nCopies(width, "int");
+        List<String> domains = Collections.nCopies(width, "[1, 2, 3, 4, 5, 6, 7, 8, 9, 10]");
+        return config(types, domains, domains, 10);
+    }
+
+    /**
+     * Builds a config with a single parameter of type list(list(...(int))) nested to the given depth.
+     *
+     * @param depth the number of nested lists
+     * @return the JSON contents of the config file
+     */
+    public static String deepConfig(int depth) {
+        String type = "list(".repeat(depth) + "int";
+        String domain = "1(".repeat(depth) + "0~2";
+        return config(List.of(type), List.of(domain), List.of(domain), 10);
+    }
+
+    /**
+     * Parses a single parameter given as one of the NODE_SPECS triples.
+     *
+     * @param spec the (type, exhaustive domain, random domain) triple
+     * @return the parsed node
+     */
+    public static APyNode<?> node(String[] spec) {
+        try {
+            return ConfigFileParser.parseParameter(spec[0], spec[1], spec[2]);
+        } catch (InvalidConfigException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Renders a list of strings as a JSON array.
+     *
+     * @param strings the strings
+     * @return the JSON array
+     */
+    private static String jsonArray(List<String> strings) {
+        StringJoiner joiner = new StringJoiner(", ", "[", "]");
+        for (String str : strings) {
+            joiner.add("\"" + str + "\"");
+        }
+        return joiner.toString();
+    }
+}
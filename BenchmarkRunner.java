@@ -0,0 +1,166 @@
+package bench.rice;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Runs the benchmark suite with the GC (allocation) profiler, writes the results as JSON, and, if a
+ * baseline result file is given, prints a comparison report against it.
+ * <p>
+ * Usage: BenchmarkRunner [--include regex] [--output results.json] [--baseline baseline.json]
+ * [--threshold percent]
+ * <p>
+ * The exit code is 1 if any benchmark got slower (or allocates more per operation) than the baseline
+ * by more than the threshold (10% by default), so the runner can gate a CI job.
+ */
+public final class BenchmarkRunner {
+
+    /**
+     * The secondary metric that the GC profiler reports as bytes allocated per operation.
+     */
+    private static final String ALLOC_METRIC = "gc.alloc.rate.norm";
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws IOException, RunnerException {
+        String include = "bench\\.rice\\..*";
+        Path output = Paths.get("bench_output.json");
+        Path baseline = null;
+        double threshold = 10.0;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--include" -> include = args[i + 1];
+                case "--output" -> output = Paths.get(args[i + 1]);
+                case "--baseline" -> baseline = Paths.get(args[i + 1]);
+                case "--threshold" -> threshold = Double.parseDouble(args[i + 1]);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        Options options = new OptionsBuilder()
+                .include(include)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(output.toString())
+                .build();
+        new Runner(options).run();
+
+        if (baseline != null) {
+            List<String> regressions = compare(readResults(baseline), readResults(output), threshold);
+            if (!regressions.isEmpty()) {
+                System.exit(1);
+            }
+        }
+    }
+
+    /**
+     * Prints a table comparing the score and the allocation rate of every benchmark that appears in
+     * both result sets, and returns the benchmarks that regressed by more than the threshold.
+     *
+     * @param baseline  the baseline results, by benchmark key
+     * @param current   the current results, by benchmark key
+     * @param threshold the allowed slowdown, in percent
+     * @return the keys of the benchmarks that regressed
+     */
+    public static List<String> compare(Map<String, JSONObject> baseline, Map<String, JSONObject> current,
+                                       double threshold) {
+        List<String> regressions = new ArrayList<>();
+        System.out.printf("%-80s %14s %14s %9s %12s %12s %9s%n", "Benchmark", "Baseline", "Current",
+                "Delta", "Base B/op", "Curr B/op", "Delta");
+        for (Map.Entry<String, JSONObject> entry : current.entrySet()) {
+            JSONObject base = baseline.get(entry.getKey());
+            if (base == null) {
+                System.out.printf("%-80s %14s%n", entry.getKey(), "(new)");
+                continue;
+            }
+            double baseScore = score(base);
+            double currScore = score(entry.getValue());
+            double baseAlloc = allocPerOp(base);
+            double currAlloc = allocPerOp(entry.getValue());
+            double scoreDelta = percentChange(baseScore, currScore);
+            double allocDelta = percentChange(baseAlloc, currAlloc);
+
+            // every benchmark in the suite reports time per operation, so higher is worse
+            boolean regressed = scoreDelta > threshold || allocDelta > threshold;
+            if (regressed) {
+                regressions.add(entry.getKey());
+            }
+            System.out.printf("%-80s %14.3f %14.3f %+8.1f%% %12.0f %12.0f %+8.1f%%%s%n", entry.getKey(),
+                    baseScore, currScore, scoreDelta, baseAlloc, currAlloc, allocDelta,
+                    regressed ? "  REGRESSION" : "");
+        }
+        System.out.println(regressions.size() + " regression(s) above " + threshold + "%");
+        return regressions;
+    }
+
+    /**
+     * Reads a JMH JSON result file.
+     *
+     * @param path the result file
+     * @return the results, keyed by benchmark name and parameter values
+     * @throws IOException if the file cannot be read
+     */
+    public static Map<String, JSONObject> readResults(Path path) throws IOException {
+        JSONArray array = new JSONArray(new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+        Map<String, JSONObject> results = new TreeMap<>();
+        for (int i = 0; i < array.length(); i++) {
+            JSONObject result = array.getJSONObject(i);
+            StringBuilder key = new StringBuilder(result.getString("benchmark"));
+            JSONObject params = result.optJSONObject("params");
+            if (params != null) {
+                // sort the parameters so the key does not depend on the JSON key order
+                for (String param : new TreeSet<>(params.keySet())) {
+                    key.append(' ').append(param).append('=').append(params.get(param));
+                }
+            }
+            results.put(key.toString(), result);
+        }
+        return results;
+    }
+
+    /**
+     * @param result a JMH result
+     * @return its primary score
+     */
+    private static double score(JSONObject result) {
+        return result.getJSONObject("primaryMetric").getDouble("score");
+    }
+
+    /**
+     * @param result a JMH result
+     * @return the bytes allocated per operation, or NaN if the GC profiler did not run
+     */
+    private static double allocPerOp(JSONObject result) {
+        JSONObject secondary = result.optJSONObject("secondaryMetrics");
+        if (secondary == null || !secondary.has(ALLOC_METRIC)) {
+            return Double.NaN;
+        }
+        return secondary.getJSONObject(ALLOC_METRIC).getDouble("score");
+    }
+
+    /**
+     * @param before the old value
+     * @param after  the new value
+     * @return the change from before to after in percent (0 if before is 0 or either is NaN)
+     */
+    private static double percentChange(double before, double after) {
+        if (before == 0 || Double.isNaN(before) || Double.isNaN(after)) {
+            return 0;
+        }
+        return (after - before) / before * 100;
+    }
+}
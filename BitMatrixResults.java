@@ -0,0 +1,53 @@
+package main.rice.test;
+import java.util.*;
+
+/**
+ * BitMatrixResults is a TestResults whose pass/fail matrix lives in an ABitMatrix (compressed in memory,
+ * or memory-mapped) instead of a List of HashSets. getCaseToFiles() and getWrongSet() return read-only
+ * views over the matrix, so existing callers keep working, while callers that know about the matrix
+ * (such as CoverMatrix.of) can read its rows directly.
+ */
+public class BitMatrixResults extends TestResults {
+    private final ABitMatrix matrix;
+    private final BitSet wrong;
+
+    /**
+     * It's a constructor set for BitMatrixResults
+     * @param allCases: the test cases; test case i is row i of the matrix
+     * @param matrix: the pass/fail matrix
+     */
+    public BitMatrixResults(List<TestCase> allCases, ABitMatrix matrix) {
+        this(allCases, matrix, matrix.wrongFiles());
+    }
+
+    /**
+     * It's a constructor set for BitMatrixResults
+     * @param allCases: the test cases
+     * @param matrix: the pass/fail matrix
+     * @param wrong: the files that fail at least one test case
+     */
+    private BitMatrixResults(List<TestCase> allCases, ABitMatrix matrix, BitSet wrong) {
+        super(allCases, matrix.rows(), new ABitMatrix.BitSetView(wrong));
+        if (allCases.size() != matrix.numCases()) {
+            throw new IllegalArgumentException("the matrix has " + matrix.numCases() + " rows for " +
+                    allCases.size() + " test cases");
+        }
+        this.matrix = matrix;
+        this.wrong = wrong;
+    }
+
+    /**
+     * @return the pass/fail matrix
+     */
+    public ABitMatrix getMatrix() {
+        return matrix;
+    }
+
+    /**
+     * @return the files that fail at least one test case, as a bitset over the file indices; must not be
+     *     modified
+     */
+    public BitSet getWrongBits() {
+        return wrong;
+    }
+}
@@ -0,0 +1,91 @@
+package test.rice.test;
+
+import main.rice.concisegen.CoverMatrix;
+import main.rice.test.ABitMatrix;
+import main.rice.test.BitMatrixResults;
+import main.rice.test.CompressedBitMatrix;
+import main.rice.test.MappedBitMatrix;
+import main.rice.test.TestCase;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test cases for the BitMatrixResults class and its matrix backends, and for turning them into a CoverMatrix.
+ */
+class BitMatrixResultsTest {
+
+    /**
+     * The rows of the test matrix: a sparse row, an empty row, a long run, and a dense scattered row.
+     */
+    private static final List<Set<Integer>> CASE_TO_FILES = List.of(
+            Set.of(3, 70), Set.of(), Set.of(10, 11, 12, 13, 14, 15, 16, 17, 18, 19),
+            Set.of(0, 2, 4, 6, 8, 10, 12, 14, 16, 18, 20, 22, 24, 26, 28, 30, 32, 34, 36, 38, 40));
+
+    /**
+     * Tests that the compressed matrix exposes the same rows, columns and wrong set it was built from.
+     */
+    @Test
+    void testCompressed() {
+        checkResults(CompressedBitMatrix.of(CASE_TO_FILES, 80));
+    }
+
+    /**
+     * Tests that a memory-mapped matrix can be written, reopened, and read back.
+     */
+    @Test
+    void testMapped(@TempDir Path dir) throws IOException {
+        Path path = dir.resolve("matrix.bin");
+        MappedBitMatrix written = MappedBitMatrix.create(path, CASE_TO_FILES.size(), 80);
+        for (int test = 0; test < CASE_TO_FILES.size(); test++) {
+            written.setRow(test, CASE_TO_FILES.get(test));
+        }
+        written.force();
+        checkResults(MappedBitMatrix.open(path));
+    }
+
+    /**
+     * Tests that compressed results are only expanded into a dense CoverMatrix when its rows fit in the
+     * given limit.
+     */
+    @Test
+    void testDenseLimit() {
+        List<Set<Integer>> caseToFiles = List.of(Set.of(0, 100), Set.of(50));
+        List<TestCase> cases = new ArrayList<>();
+        for (int test = 0; test < caseToFiles.size(); test++) {
+            cases.add(new TestCase(List.of()));
+        }
+        BitMatrixResults results = new BitMatrixResults(cases, CompressedBitMatrix.of(caseToFiles, 128));
+
+        // 3 wrong files fit in 1 word per row, so the 2 rows take 16 bytes
+        assertEquals(3, CoverMatrix.of(results, 16).numFiles());
+        assertThrows(IllegalArgumentException.class, () -> CoverMatrix.of(results, 15));
+    }
+
+    /**
+     * Checks the accessors of a BitMatrixResults over the test matrix.
+     * @param matrix the matrix holding CASE_TO_FILES
+     */
+    private static void checkResults(ABitMatrix matrix) {
+        List<TestCase> cases = new ArrayList<>();
+        for (int test = 0; test < CASE_TO_FILES.size(); test++) {
+            cases.add(new TestCase(List.of()));
+        }
+        BitMatrixResults results = new BitMatrixResults(cases, matrix);
+
+        assertEquals(CASE_TO_FILES, results.getCaseToFiles());
+        assertEquals(Set.of(0, 2, 3, 4, 6, 8, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20, 22, 24, 26, 28, 30,
+                32, 34, 36, 38, 40, 70), results.getWrongSet());
+        assertEquals(Set.of(2, 3), matrix.column(10));
+        assertEquals(Set.of(0), matrix.column(70));
+        assertEquals(21, matrix.row(3).size());
+    }
+}
@@ -0,0 +1,63 @@
+package main.rice.test;
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ByteBufferPool hands out direct ByteBuffers of one size and takes them back for reuse, so reading the
+ * output of thousands of short-lived processes does not allocate (and later free) native memory for each.
+ * It is thread-safe; at most maxPooled free buffers are kept, the rest are left to the garbage collector.
+ */
+public class ByteBufferPool {
+    /**
+     * The pool the runners share: 64 KiB buffers, up to 256 of them kept.
+     */
+    public static final ByteBufferPool SHARED = new ByteBufferPool(64 * 1024, 256);
+
+    private final int bufferSize;
+    private final int maxPooled;
+    private final Queue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    /**
+     * It's a constructor set for ByteBufferPool
+     * @param bufferSize: the capacity of every buffer
+     * @param maxPooled: the most free buffers to keep
+     */
+    public ByteBufferPool(int bufferSize, int maxPooled) {
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+    }
+
+    /**
+     * @return a cleared buffer, reused if one is free
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = free.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(bufferSize);
+        }
+        pooled.decrementAndGet();
+        return buffer.clear();
+    }
+
+    /**
+     * Gives a buffer back; it must not be used afterwards.
+     * @param buffer a buffer from acquire()
+     */
+    public void release(ByteBuffer buffer) {
+        if (pooled.incrementAndGet() <= maxPooled) {
+            free.offer(buffer);
+        } else {
+            pooled.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return the capacity of every buffer
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+}
@@ -0,0 +1,229 @@
+package main.rice.node;
+import main.rice.obj.*;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The class is a compiled form of a frozen APyNode tree. Compiling flattens the tree into a pre-order
+ * instruction array with the random domains unboxed into primitive arrays, so genRandVal runs as a
+ * single switch over the instructions instead of a walk over node objects with a virtual call per
+ * node. The exhaustive values never change once the tree is frozen, so they are generated once at
+ * compile time and genExVals just returns them.
+ * A CompiledNode is itself an APyNode, so it can be passed anywhere a node is expected
+ * (e.g. to BaseSetGenerator); it is immutable and can be shared between threads.
+ * @param <ObjType> the type of object that the compiled tree generates
+ */
+public final class CompiledNode<ObjType extends APyObj<?>> extends APyNode<ObjType> {
+    /**
+     * Generates a PyBoolObj from the boolean random domain of the instruction.
+     */
+    private static final byte BOOL = 0;
+    /**
+     * Generates a PyIntObj from the int random domain of the instruction.
+     */
+    private static final byte INT = 1;
+    /**
+     * Generates a PyFloatObj from the double random domain of the instruction.
+     */
+    private static final byte FLOAT = 2;
+    /**
+     * Generates a PyListObj whose length comes from the int random domain of the instruction and
+     * whose elements are generated by the next instruction.
+     */
+    private static final byte LIST = 3;
+    /**
+     * Generates a PyTupleObj, like LIST.
+     */
+    private static final byte TUPLE = 4;
+    /**
+     * Calls genRandVal on the original node of the instruction. Used for str, set and dict, whose
+     * nodes own more involved rules (character domain, distinct elements/keys).
+     */
+    private static final byte DELEGATE = 5;
+
+    /**
+     * The opcode of each instruction, in pre-order.
+     */
+    private final byte[] ops;
+    /**
+     * The random domain of each BOOL, INT, LIST and TUPLE instruction (booleans as 0/1).
+     */
+    private final int[][] intDomains;
+    /**
+     * The random domain of each FLOAT instruction.
+     */
+    private final double[][] doubleDomains;
+    /**
+     * The original node of each DELEGATE instruction.
+     */
+    private final APyNode<?>[] delegates;
+    /**
+     * The exhaustive values of the compiled tree.
+     */
+    private final Set<ObjType> exVals;
+
+    /**
+     * The constructor is private; use compile().
+     * @param ops the opcodes
+     * @param intDomains the int random domains
+     * @param doubleDomains the double random domains
+     * @param delegates the delegated nodes
+     * @param exVals the exhaustive values
+     */
+    private CompiledNode(byte[] ops, int[][] intDomains, double[][] doubleDomains,
+                         APyNode<?>[] delegates, Set<ObjType> exVals) {
+        this.ops = ops;
+        this.intDomains = intDomains;
+        this.doubleDomains = doubleDomains;
+        this.delegates = delegates;
+        this.exVals = exVals;
+    }
+
+    /**
+     * The method compiles a frozen node tree.
+     * @param node the root of the tree; it must have been frozen (as every tree returned by ConfigFileParser is)
+     * @param <ObjType> the type of object that the tree generates
+     * @return the compiled tree, with the same domains as the root
+     * @throws IllegalArgumentException if the tree is not frozen
+     */
+    public static <ObjType extends APyObj<?>> CompiledNode<ObjType> compile(APyNode<ObjType> node) {
+        if (!node.isFrozen()) {
+            throw new IllegalArgumentException("Only frozen node trees can be compiled.");
+        }
+        List<APyNode<?>> preOrder = new ArrayList<>();
+        flatten(node, preOrder);
+
+        int size = preOrder.size();
+        byte[] ops = new byte[size];
+        int[][] intDomains = new int[size][];
+        double[][] doubleDomains = new double[size][];
+        APyNode<?>[] delegates = new APyNode<?>[size];
+        for (int pc = 0; pc < size; pc++) {
+            APyNode<?> current = preOrder.get(pc);
+            if (current instanceof PyBoolNode) {
+                ops[pc] = BOOL;
+                intDomains[pc] = toIntArray(current.getRanDomain());
+            } else if (current instanceof PyIntNode) {
+                ops[pc] = INT;
+                intDomains[pc] = toIntArray(current.getRanDomain());
+            } else if (current instanceof PyFloatNode) {
+                ops[pc] = FLOAT;
+                doubleDomains[pc] = toDoubleArray(current.getRanDomain());
+            } else if (current instanceof PyListNode) {
+                ops[pc] = LIST;
+                intDomains[pc] = toIntArray(current.getRanDomain());
+            } else if (current instanceof PyTupleNode) {
+                ops[pc] = TUPLE;
+                intDomains[pc] = toIntArray(current.getRanDomain());
+            } else {
+                ops[pc] = DELEGATE;
+                delegates[pc] = current;
+            }
+        }
+
+        CompiledNode<ObjType> compiled = new CompiledNode<>(ops, intDomains, doubleDomains, delegates,
+                Collections.unmodifiableSet(node.genExVals()));
+        compiled.setExDomain(node.getExDomain());
+        compiled.setRanDomain(node.getRanDomain());
+        compiled.freeze();
+        return compiled;
+    }
+
+    /**
+     * The method returns the exhaustive values that were generated at compile time.
+     * @return all valid Python objects of type ObjType within the exhaustive domain (unmodifiable)
+     */
+    @Override
+    public Set<ObjType> genExVals() {
+        return exVals;
+    }
+
+    /**
+     * The method generates one valid Python object of type ObjType, selected from the random domain,
+     * by running the instructions.
+     * @return one valid Python object of type ObjType
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public ObjType genRandVal() {
+        return (ObjType) run(0, ThreadLocalRandom.current());
+    }
+
+    /**
+     * The method runs the instructions of one subtree.
+     * @param pc the index of the root instruction of the subtree
+     * @param rand the source of randomness
+     * @return the generated object
+     */
+    private APyObj<?> run(int pc, ThreadLocalRandom rand) {
+        switch (ops[pc]) {
+            case BOOL: {
+                int[] domain = intDomains[pc];
+                return new PyBoolObj(domain[rand.nextInt(domain.length)] == 1);
+            }
+            case INT: {
+                int[] domain = intDomains[pc];
+                return new PyIntObj(domain[rand.nextInt(domain.length)]);
+            }
+            case FLOAT: {
+                double[] domain = doubleDomains[pc];
+                return new PyFloatObj(domain[rand.nextInt(domain.length)]);
+            }
+            case LIST:
+            case TUPLE: {
+                int[] domain = intDomains[pc];
+                int length = domain[rand.nextInt(domain.length)];
+                List<APyObj<?>> elems = new ArrayList<>(length);
+                for (int i = 0; i < length; i++) {
+                    elems.add(run(pc + 1, rand));
+                }
+                return ops[pc] == LIST ? new PyListObj<>(elems) : new PyTupleObj<>(elems);
+            }
+            default:
+                return delegates[pc].genRandVal();
+        }
+    }
+
+    /**
+     * The method adds the nodes of a tree in pre-order (node, left subtree, right subtree), so the
+     * element instruction of a LIST or TUPLE instruction always directly follows it. The subtree of a
+     * DELEGATE node is flattened too; its instructions are just never run.
+     * @param node the root of the tree
+     * @param preOrder the list to add the nodes to
+     */
+    private static void flatten(APyNode<?> node, List<APyNode<?>> preOrder) {
+        preOrder.add(node);
+        if (node.getLeftChild() != null) {
+            flatten(node.getLeftChild(), preOrder);
+        }
+        if (node.getRightChild() != null) {
+            flatten(node.getRightChild(), preOrder);
+        }
+    }
+
+    /**
+     * The method unboxes a domain into ints.
+     * @param domain the domain
+     * @return the int values of the domain
+     */
+    private static int[] toIntArray(List<? extends Number> domain) {
+        int[] array = new int[domain.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = domain.get(i).intValue();
+        }
+        return array;
+    }
+
+    /**
+     * The method unboxes a domain into doubles.
+     * @param domain the domain
+     * @return the double values of the domain
+     */
+    private static double[] toDoubleArray(List<? extends Number> domain) {
+        double[] array = new double[domain.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = domain.get(i).doubleValue();
+        }
+        return array;
+    }
+}
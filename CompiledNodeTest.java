@@ -0,0 +1,110 @@
+package test.rice.node;
+
+import main.rice.node.APyNode;
+import main.rice.node.CompiledNode;
+import main.rice.node.PyIntNode;
+import main.rice.obj.APyObj;
+import main.rice.parse.ConfigFileParser;
+import main.rice.parse.InvalidConfigException;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test cases for the CompiledNode class: a compiled tree must generate the same exhaustive values as the
+ * tree, and random values over the same support.
+ */
+class CompiledNodeTest {
+
+    /**
+     * The number of random values drawn from each generator; every support below has at most a few dozen
+     * values, so each one is drawn with overwhelming probability.
+     */
+    private static final int DRAWS = 5000;
+
+    /**
+     * Tests the BOOL, INT and FLOAT instructions.
+     */
+    @Test
+    void testScalars() throws InvalidConfigException {
+        assertEquivalent("bool", "0~1", "0~1");
+        assertEquivalent("int", "-2~2", "5~9");
+        assertEquivalent("float", "[0.5, 1.5]", "[-1.25, 2, 3.5]");
+    }
+
+    /**
+     * Tests the LIST and TUPLE instructions, including an empty length.
+     */
+    @Test
+    void testListAndTuple() throws InvalidConfigException {
+        assertEquivalent("list(int", "0~2(0~1", "0~2(3~4");
+        assertEquivalent("tuple(bool", "1~2(0~1", "0~3(0~1");
+    }
+
+    /**
+     * Tests nested LIST and TUPLE instructions, whose element instruction is itself a sequence.
+     */
+    @Test
+    void testNested() throws InvalidConfigException {
+        assertEquivalent("list(tuple(int", "0~2(1~2(0~1", "1~2(0~2(4~5");
+        assertEquivalent("tuple(list(list(float", "1~1(0~1(1~1([0]", "1~2(0~1(1~2([0.5, 1]");
+    }
+
+    /**
+     * Tests the DELEGATE instruction of str, set and dict nodes, on its own and as the element of a list.
+     */
+    @Test
+    void testDelegate() throws InvalidConfigException {
+        assertEquivalent("str(ab", "0~2", "1~2");
+        assertEquivalent("set(int", "0~2(0~2", "1~2(3~5");
+        assertEquivalent("dict(int:bool", "0~1(0~1:0~1", "1~1(3~4:0~1");
+        assertEquivalent("list(set(int", "0~1(1~1(0~1", "1~2(0~1(6~7");
+        assertEquivalent("tuple(dict(str(x:int", "1~1(1~1(1~1:[0]", "0~1(1~1(1~1:0~1");
+    }
+
+    /**
+     * Tests that a tree that is not frozen is rejected.
+     */
+    @Test
+    void testNotFrozen() {
+        PyIntNode node = new PyIntNode();
+        node.setExDomain(List.of(1));
+        node.setRanDomain(List.of(1));
+        assertThrows(IllegalArgumentException.class, () -> CompiledNode.compile(node));
+    }
+
+    /**
+     * Asserts that a parameter's compiled tree generates the same exhaustive values as the tree, and
+     * random values over the same support.
+     *
+     * @param type the type of the parameter
+     * @param exDomain its exhaustive domain
+     * @param ranDomain its random domain
+     */
+    private static void assertEquivalent(String type, String exDomain, String ranDomain)
+            throws InvalidConfigException {
+        APyNode<?> tree = ConfigFileParser.parseParameter(type, exDomain, ranDomain);
+        APyNode<?> compiled = CompiledNode.compile(tree);
+
+        assertEquals(tree.genExVals(), compiled.genExVals(), type);
+        assertEquals(tree.getExDomain(), compiled.getExDomain(), type);
+        assertEquals(tree.getRanDomain(), compiled.getRanDomain(), type);
+        assertEquals(support(tree), support(compiled), type);
+    }
+
+    /**
+     * @param node a generator
+     * @return the distinct values of DRAWS random draws
+     */
+    private static Set<APyObj<?>> support(APyNode<?> node) {
+        Set<APyObj<?>> values = new HashSet<>();
+        for (int i = 0; i < DRAWS; i++) {
+            values.add(node.genRandVal());
+        }
+        return values;
+    }
+}
@@ -0,0 +1,253 @@
+package main.rice.test;
+import java.util.*;
+
+/**
+ * CompressedBitMatrix stores each row of the pass/fail matrix in whichever of three containers is
+ * smallest for it, in the style of roaring bitmaps:
+ * 1) an array container, the sorted file indices, for tests that few files fail,
+ * 2) a bitmap container, one bit per file, for tests that many scattered files fail,
+ * 3) a run container, sorted [start, end) ranges, for tests that long stretches of files fail (such as a
+ *    test that nearly every submission fails).
+ * Rows are appended one at a time, so a matrix can be built while results stream in without ever holding
+ * boxed Integers.
+ */
+public class CompressedBitMatrix extends ABitMatrix {
+    private final int numFiles;
+    private final List<Container> rows = new ArrayList<>();
+
+    /**
+     * It's a constructor set for CompressedBitMatrix; starts with no rows.
+     * @param numFiles: the number of files (columns)
+     */
+    public CompressedBitMatrix(int numFiles) {
+        this.numFiles = numFiles;
+    }
+
+    /**
+     * Builds the matrix of a caseToFiles list.
+     * @param caseToFiles the files that fail each test case
+     * @param numFiles the number of files
+     * @return the matrix
+     */
+    public static CompressedBitMatrix of(List<? extends Collection<Integer>> caseToFiles, int numFiles) {
+        CompressedBitMatrix matrix = new CompressedBitMatrix(numFiles);
+        for (Collection<Integer> files : caseToFiles) {
+            matrix.addRow(files.stream().mapToInt(Integer::intValue).toArray());
+        }
+        return matrix;
+    }
+
+    /**
+     * Appends the row of the next test case.
+     * @param files the indices of the files that fail the test case, in any order; duplicates are ignored
+     * @return the index of the new row
+     */
+    public int addRow(int... files) {
+        int[] sorted = Arrays.stream(files).sorted().distinct().toArray();
+        for (int file : sorted) {
+            Objects.checkIndex(file, numFiles);
+        }
+
+        int numRuns = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1] + 1) {
+                numRuns++;
+            }
+        }
+        long arrayBytes = 4L * sorted.length;
+        long runBytes = 8L * numRuns;
+        long bitmapBytes = 8L * ((numFiles + 63) >>> 6);
+        if (arrayBytes <= runBytes && arrayBytes <= bitmapBytes) {
+            rows.add(new ArrayContainer(sorted));
+        } else if (runBytes <= bitmapBytes) {
+            rows.add(new RunContainer(sorted, numRuns));
+        } else {
+            rows.add(new BitmapContainer(sorted, numFiles));
+        }
+        return rows.size() - 1;
+    }
+
+    @Override
+    public int numCases() {
+        return rows.size();
+    }
+
+    @Override
+    public int numFiles() {
+        return numFiles;
+    }
+
+    @Override
+    public boolean get(int test, int file) {
+        return rows.get(test).contains(file);
+    }
+
+    @Override
+    public int nextInRow(int test, int fromFile) {
+        return rows.get(test).next(fromFile);
+    }
+
+    @Override
+    public int rowCardinality(int test) {
+        return rows.get(test).cardinality();
+    }
+
+    /**
+     * Container holds the file indices of one row.
+     */
+    private abstract static class Container {
+        /**
+         * @param file a file index
+         * @return true if the row contains it, false otherwise
+         */
+        abstract boolean contains(int file);
+
+        /**
+         * @param from the file index to start from (inclusive)
+         * @return the smallest file index >= from in the row, or -1 if there is none
+         */
+        abstract int next(int from);
+
+        /**
+         * @return the number of file indices in the row
+         */
+        abstract int cardinality();
+    }
+
+    /**
+     * ArrayContainer stores the sorted file indices.
+     */
+    private static final class ArrayContainer extends Container {
+        private final int[] files;
+
+        /**
+         * It's a constructor set for ArrayContainer
+         * @param files: the sorted, distinct file indices
+         */
+        ArrayContainer(int[] files) {
+            this.files = files;
+        }
+
+        @Override
+        boolean contains(int file) {
+            return Arrays.binarySearch(files, file) >= 0;
+        }
+
+        @Override
+        int next(int from) {
+            int index = Arrays.binarySearch(files, from);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            return index < files.length ? files[index] : -1;
+        }
+
+        @Override
+        int cardinality() {
+            return files.length;
+        }
+    }
+
+    /**
+     * BitmapContainer stores one bit per file.
+     */
+    private static final class BitmapContainer extends Container {
+        private final long[] words;
+        private final int cardinality;
+
+        /**
+         * It's a constructor set for BitmapContainer
+         * @param files: the sorted, distinct file indices
+         * @param numFiles: the number of files
+         */
+        BitmapContainer(int[] files, int numFiles) {
+            this.words = new long[(numFiles + 63) >>> 6];
+            for (int file : files) {
+                words[file >>> 6] |= 1L << file;
+            }
+            this.cardinality = files.length;
+        }
+
+        @Override
+        boolean contains(int file) {
+            return file >= 0 && (file >>> 6) < words.length && (words[file >>> 6] & (1L << file)) != 0;
+        }
+
+        @Override
+        int next(int from) {
+            int word = from >>> 6;
+            if (word >= words.length) {
+                return -1;
+            }
+            long bits = words[word] & (-1L << from);
+            while (bits == 0) {
+                if (++word == words.length) {
+                    return -1;
+                }
+                bits = words[word];
+            }
+            return (word << 6) + Long.numberOfTrailingZeros(bits);
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+    }
+
+    /**
+     * RunContainer stores the maximal ranges [start, end) of consecutive file indices.
+     */
+    private static final class RunContainer extends Container {
+        private final int[] starts;
+        private final int[] ends;
+        private final int cardinality;
+
+        /**
+         * It's a constructor set for RunContainer
+         * @param files: the sorted, distinct file indices
+         * @param numRuns: the number of maximal runs in files
+         */
+        RunContainer(int[] files, int numRuns) {
+            this.starts = new int[numRuns];
+            this.ends = new int[numRuns];
+            int run = -1;
+            for (int i = 0; i < files.length; i++) {
+                if (i == 0 || files[i] != files[i - 1] + 1) {
+                    starts[++run] = files[i];
+                }
+                ends[run] = files[i] + 1;
+            }
+            this.cardinality = files.length;
+        }
+
+        /**
+         * @param file a file index
+         * @return the index of the last run starting at or before file, or -1 if there is none
+         */
+        private int runAtOrBefore(int file) {
+            int index = Arrays.binarySearch(starts, file);
+            return index >= 0 ? index : -index - 2;
+        }
+
+        @Override
+        boolean contains(int file) {
+            int run = runAtOrBefore(file);
+            return run >= 0 && file < ends[run];
+        }
+
+        @Override
+        int next(int from) {
+            int run = runAtOrBefore(from);
+            if (run >= 0 && from < ends[run]) {
+                return from;
+            }
+            return run + 1 < starts.length ? starts[run + 1] : -1;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+    }
+}
@@ -1,16 +1,22 @@
 package main.rice.concisegen;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import main.rice.obj.*;
 import main.rice.test.*;
 
 /**
- * ConciseSetGenerator is a class with only one method and single purpose to generate concise (reduced) sets
- * using that method
+ * ConciseSetGenerator is a class with the single purpose to generate concise (reduced) sets out of the
+ * results of running the base test set
  */
 public class ConciseSetGenerator {
     /**
      * the method finds an approximately minimal set of test cases that "cover" or "hit"
      * all of the known buggy implementations (that failed at least one test in the base test set)
-     * using greedy hitting set algorithm
+     * using greedy hitting set algorithm, run on the CoverKernel of the results (duplicate and dominated
+     * test cases removed, essential ones forced in)
      *
      * @param results object that encapsulates
      *                1)all TestCases (allCases)
@@ -19,42 +25,391 @@ public class ConciseSetGenerator {
      * @return minimal set of test cases that "cover" all  known buggy implementations
      */
     public static Set<TestCase> setCover(TestResults results) {
-        // do not mutate input fields
+        // do not mutate input fields: the matrix is a bitset copy of caseToFiles restricted to wrongSet
+        CoverKernel kernel = CoverKernel.of(CoverMatrix.of(results));
+        return toTestCases(results, kernel.lift(greedyCover(kernel.matrix())));
+    }
+
+    /**
+     * the method finds the same concise set as setCover(results) (also on the kernel), but evaluates the gains of the
+     * candidate test cases in parallel; meant for very large result matrices.
+     *
+     * @param results object that encapsulates all TestCases, caseToFiles and wrongSet
+     * @param pool the pool to evaluate the gains in
+     * @return minimal set of test cases that "cover" all  known buggy implementations
+     */
+    public static Set<TestCase> setCover(TestResults results, ForkJoinPool pool) {
+        CoverKernel kernel = CoverKernel.of(CoverMatrix.of(results));
+        return toTestCases(results, kernel.lift(greedyCover(kernel.matrix(), pool)));
+    }
+
+    /**
+     * the method finds the same concise set as setCover(results), and fills in a report of how long each
+     * phase took and how much work the greedy algorithm did.
+     *
+     * @param results object that encapsulates all TestCases, caseToFiles and wrongSet
+     * @param stats receives the report
+     * @return minimal set of test cases that "cover" all  known buggy implementations
+     */
+    public static Set<TestCase> setCover(TestResults results, CoverStats stats) {
+        long start = System.nanoTime();
+        CoverMatrix matrix = CoverMatrix.of(results);
+        long copied = System.nanoTime();
+        stats.recordCopy(copied - start, matrix);
+
+        CoverKernel kernel = CoverKernel.of(matrix);
+        stats.recordKernel(System.nanoTime() - copied, kernel);
+
+        List<Integer> chosen = kernel.lift(greedyCover(kernel.matrix(), stats));
+        Set<TestCase> conciseSet = toTestCases(results, chosen);
+        stats.recordTotal(System.nanoTime() - start, conciseSet.size());
+        return conciseSet;
+    }
+
+    /**
+     * the method finds a set of test cases that covers all known buggy implementations while being cheap to
+     * run, rather than just small: it greedily picks the test case with the most uncovered files per unit
+     * of cost.
+     *
+     * @param results object that encapsulates all TestCases, caseToFiles and wrongSet
+     * @param costs the cost of each test case (e.g. its measured runtime, or estimateCosts(results)); all positive
+     * @return a cheap set of test cases that "cover" all  known buggy implementations
+     */
+    public static Set<TestCase> setCover(TestResults results, double[] costs) {
+        // no kernel here: a dominated test case may still be the cheaper one
+        return toTestCases(results, weightedGreedyCover(CoverMatrix.of(results), costs));
+    }
+
+    /**
+     * the method finds a concise set from an on-disk result log that is too large to load into a
+     * TestResults, in a few sequential passes with bounded memory (see StreamingSetCover for the
+     * approximation guarantee). It returns indices rather than TestCases, since a log holds only the
+     * index each test case was logged under, not the test case itself.
+     *
+     * @param resultLog the result log
+     * @param epsilon how far below the best gain a pick may be, relatively (e.g. 0.1)
+     * @return the indices of the test cases of the concise set, in the order they were picked
+     * @throws IOException if the log cannot be read
+     */
+    public static List<Integer> setCoverIndices(Path resultLog, double epsilon) throws IOException {
+        return StreamingSetCover.solve(resultLog, epsilon).cover();
+    }
+
+    /**
+     * the method estimates the cost of every test case of the results from the size of its arguments.
+     *
+     * @param results the test results
+     * @return the estimated cost of each test case, in the order of caseToFiles
+     */
+    public static double[] estimateCosts(TestResults results) {
+        double[] costs = new double[results.getCaseToFiles().size()];
+        for (int test = 0; test < costs.length; test++) {
+            costs[test] = estimateCost(results.getTestCase(test));
+        }
+        return costs;
+    }
 
-        List<Set<Integer>> copiedCaseToFiles = new ArrayList<>();
-        for (Set<Integer> origSet : results.getCaseToFiles()) {
-            Set<Integer> copiedSet = new HashSet<>(origSet); // Create a new set and copy the elements
-            copiedCaseToFiles.add(copiedSet);
+    /**
+     * the method estimates the cost of running a test case when no measured runtime is available: one unit
+     * for the call itself plus one per Python object in its arguments (every element of every list, tuple,
+     * set, string and dict, recursively).
+     *
+     * @param test the test case
+     * @return its estimated cost (at least 1)
+     */
+    public static double estimateCost(TestCase test) {
+        double cost = 1;
+        for (APyObj<?> arg : test.getArgs()) {
+            cost += countObjects(arg);
         }
-        Set<TestCase> conciseSet = new HashSet<>();
-        //copy wrongSet not to mutate it
-        Set<Integer> wrongSet = new HashSet<>(results.getWrongSet());
+        return cost;
+    }
+
+    /**
+     * the method counts the Python objects within a Python object, including itself.
+     *
+     * @param obj the object
+     * @return the number of objects
+     */
+    private static long countObjects(APyObj<?> obj) {
+        long count = 1;
+        if (obj instanceof AIterablePyObj<?> iterable) {
+            for (APyObj<?> elem : iterable.getValue()) {
+                count += countObjects(elem);
+            }
+        } else if (obj instanceof PyDictObj<?, ?> dict) {
+            for (Map.Entry<? extends APyObj, ? extends APyObj> entry : dict.getValue().entrySet()) {
+                count += countObjects(entry.getKey()) + countObjects(entry.getValue());
+            }
+        }
+        return count;
+    }
+
+    /**
+     * the method runs the weighted greedy algorithm on a coverage matrix: each round it picks the test case
+     * with the highest ratio of still-uncovered files caught to cost (the lowest index among ties). Like
+     * greedyCover, it is lazy: ratios only shrink as files get covered, so stale ratios are upper bounds.
+     *
+     * @param matrix the coverage matrix
+     * @param costs the cost of each test case; all positive
+     * @return the indices of the chosen test cases, in the order they were chosen
+     */
+    public static List<Integer> weightedGreedyCover(CoverMatrix matrix, double[] costs) {
+        long[] uncovered = matrix.allColumns();
+        int remaining = matrix.numFiles();
+
+        PriorityQueue<WeightedEntry> queue = new PriorityQueue<>(Math.max(1, matrix.numCases()));
+        for (int test = 0; test < matrix.numCases(); test++) {
+            if (!(costs[test] > 0)) {
+                throw new IllegalArgumentException("The cost of test case " + test + " is not positive: " +
+                        costs[test]);
+            }
+            int gain = CoverMatrix.countAnd(matrix.row(test), uncovered);
+            if (gain > 0) {
+                queue.add(new WeightedEntry(gain / costs[test], test));
+            }
+        }
+
+        List<Integer> chosen = new ArrayList<>();
+        while (remaining > 0 && !queue.isEmpty()) {
+            int test = queue.poll().test();
+            long[] row = matrix.row(test);
+            int gain = CoverMatrix.countAnd(row, uncovered);
+            if (gain == 0) {
+                continue;
+            }
+            WeightedEntry entry = new WeightedEntry(gain / costs[test], test);
+            if (queue.isEmpty() || entry.compareTo(queue.peek()) <= 0) {
+                chosen.add(test);
+                CoverMatrix.andNot(uncovered, row);
+                remaining -= gain;
+            } else {
+                queue.add(entry);
+            }
+        }
+        return chosen;
+    }
 
+    /**
+     * WeightedEntry is a (files per unit of cost, test index) pair in the weighted greedy's priority queue;
+     * it orders the highest ratio first, then the lowest index.
+     * @param ratio the number of uncovered files caught per unit of cost
+     * @param test the index of the test case
+     */
+    private record WeightedEntry(double ratio, int test) implements Comparable<WeightedEntry> {
+        @Override
+        public int compareTo(WeightedEntry other) {
+            int byRatio = Double.compare(other.ratio, ratio);
+            return byRatio != 0 ? byRatio : Integer.compare(test, other.test);
+        }
+    }
+
+    /**
+     * the method runs the greedy algorithm on a coverage matrix: each round it picks the test case that
+     * catches the most still-uncovered files (the lowest index among ties), until every file that can be
+     * covered is covered.
+     * Gains are kept in a priority queue and only re-evaluated when they reach the top (lazy greedy): a
+     * test case's gain can only shrink as files get covered, so a stale gain is an upper bound, and a
+     * test case whose fresh gain still beats the next entry is exactly the one plain greedy would pick.
+     *
+     * @param matrix the coverage matrix
+     * @return the indices of the chosen test cases, in the order they were chosen
+     */
+    public static List<Integer> greedyCover(CoverMatrix matrix) {
+        return greedyCover(matrix, (CoverStats) null);
+    }
+
+    /**
+     * the method runs greedyCover(matrix), and records its counters and per-round times.
+     *
+     * @param matrix the coverage matrix
+     * @param stats receives the counters; null to skip the timing
+     * @return the indices of the chosen test cases, in the order they were chosen
+     */
+    public static List<Integer> greedyCover(CoverMatrix matrix, CoverStats stats) {
+        long start = stats == null ? 0 : System.nanoTime();
+        long roundStart = start;
+        List<Long> rounds = new ArrayList<>();
+        long gainEvaluations = 0;
+        long staleReinserts = 0;
+
+        long[] uncovered = matrix.allColumns();
+        int remaining = matrix.numFiles();
+
+        PriorityQueue<Long> queue = new PriorityQueue<>(Math.max(1, matrix.numCases()), Comparator.reverseOrder());
+        for (int test = 0; test < matrix.numCases(); test++) {
+            int gain = CoverMatrix.countAnd(matrix.row(test), uncovered);
+            if (gain > 0) {
+                queue.add(queueKey(gain, test));
+            }
+        }
+        gainEvaluations += matrix.numCases();
+
+        List<Integer> chosen = new ArrayList<>();
+        // if the queue runs dry first, the remaining files are not caught by any test case
+        while (remaining > 0 && !queue.isEmpty()) {
+            int test = queueTest(queue.poll());
+            long[] row = matrix.row(test);
+            int gain = CoverMatrix.countAnd(row, uncovered);
+            gainEvaluations++;
+            if (gain == 0) {
+                continue;
+            }
+            long key = queueKey(gain, test);
+            if (queue.isEmpty() || key >= queue.peek()) {
+                // still the best: no other entry (all upper bounds) can beat it
+                chosen.add(test);
+                CoverMatrix.andNot(uncovered, row);
+                remaining -= gain;
+                if (stats != null) {
+                    long now = System.nanoTime();
+                    rounds.add(now - roundStart);
+                    roundStart = now;
+                }
+            } else {
+                queue.add(key);
+                staleReinserts++;
+            }
+        }
+
+        if (stats != null) {
+            stats.recordGreedy(System.nanoTime() - start, rounds, gainEvaluations, staleReinserts, chosen.size(),
+                    matrix.numFiles() - remaining);
+        }
+        return chosen;
+    }
+
+    /**
+     * the method runs the same greedy algorithm as greedyCover(matrix), but evaluates every candidate's
+     * gain each round, sharded across a ForkJoinPool. The shards reduce to the argmax by the same
+     * (gain, lowest index) order, so the result is identical to the sequential one.
+     * Test cases whose gain drops to zero are dropped from the candidates after each round.
+     *
+     * @param matrix the coverage matrix
+     * @param pool the pool to evaluate the gains in
+     * @return the indices of the chosen test cases, in the order they were chosen
+     */
+    public static List<Integer> greedyCover(CoverMatrix matrix, ForkJoinPool pool) {
+        long[] uncovered = matrix.allColumns();
+        int remaining = matrix.numFiles();
+        int[] candidates = new int[matrix.numCases()];
+        for (int test = 0; test < candidates.length; test++) {
+            candidates[test] = test;
+        }
+        int numCandidates = candidates.length;
+        long[] keys = new long[candidates.length];
+
+        List<Integer> chosen = new ArrayList<>();
+        while (remaining > 0 && numCandidates > 0) {
+            pool.invoke(new GainTask(matrix, uncovered, candidates, keys, 0, numCandidates));
 
-        while (!wrongSet.isEmpty()) {
-            Set<Integer> largestSet = new HashSet<>();
-            // Find the largest set and its index
-            System.out.println(copiedCaseToFiles);
-            for (Set<Integer> currentSet : copiedCaseToFiles) {
-                if (currentSet.size() > largestSet.size()) {
-                    largestSet = currentSet;
+            long bestKey = 0;
+            int kept = 0;
+            for (int i = 0; i < numCandidates; i++) {
+                bestKey = Math.max(bestKey, keys[i]);
+                if (keys[i] >>> 32 > 0) {
+                    candidates[kept++] = candidates[i];
                 }
             }
-            //add currently largest element to concise set
-            int largestIdx=copiedCaseToFiles.indexOf(largestSet);
-            conciseSet.add(results.getTestCase(largestIdx));
-            wrongSet.removeAll(largestSet);//update wrongset
+            numCandidates = kept;
+            if (bestKey == 0) {
+                break; // the remaining files are not caught by any test case
+            }
+
+            int test = queueTest(bestKey);
+            chosen.add(test);
+            CoverMatrix.andNot(uncovered, matrix.row(test));
+            remaining -= (int) (bestKey >>> 32);
+        }
+        return chosen;
+    }
 
-            //remove elements of largest set from copied caseToFiles
-            Set<Integer> duplicates=new HashSet<>(largestSet);
-            for (Set<Integer> set: copiedCaseToFiles){
-                set.removeAll(duplicates);
+    /**
+     * GainTask computes the (gain, test index) key of a range of candidates, splitting the range
+     * in halves until it is small enough to scan directly. It is a fork/join task, never serialized.
+     */
+    @SuppressWarnings("serial")
+    private static class GainTask extends RecursiveAction {
+        /**
+         * Ranges at most this long are scanned by a single task.
+         */
+        private static final int SEQUENTIAL_CUTOFF = 256;
+
+        private final CoverMatrix matrix;
+        private final long[] uncovered;
+        private final int[] candidates;
+        private final long[] keys;
+        private final int from;
+        private final int to;
+
+        /**
+         * It's a constructor set for GainTask
+         * @param matrix: the coverage matrix
+         * @param uncovered: the bitset of uncovered files
+         * @param candidates: the candidate test indices
+         * @param keys: receives the key of each candidate, at the same position
+         * @param from: the first position of the range (inclusive)
+         * @param to: the last position of the range (exclusive)
+         */
+        GainTask(CoverMatrix matrix, long[] uncovered, int[] candidates, long[] keys, int from, int to) {
+            this.matrix = matrix;
+            this.uncovered = uncovered;
+            this.candidates = candidates;
+            this.keys = keys;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SEQUENTIAL_CUTOFF) {
+                for (int i = from; i < to; i++) {
+                    int test = candidates[i];
+                    int gain = CoverMatrix.countAnd(matrix.row(test), uncovered);
+                    keys[i] = gain == 0 ? 0 : queueKey(gain, test);
+                }
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new GainTask(matrix, uncovered, candidates, keys, from, mid),
+                        new GainTask(matrix, uncovered, candidates, keys, mid, to));
             }
         }
+    }
 
+    /**
+     * the method looks up the test cases of the chosen row indices.
+     *
+     * @param results the test results the matrix was built from
+     * @param chosen the indices of the chosen test cases
+     * @return the chosen test cases
+     */
+    public static Set<TestCase> toTestCases(TestResults results, List<Integer> chosen) {
+        Set<TestCase> conciseSet = new HashSet<>();
+        for (int test : chosen) {
+            conciseSet.add(results.getTestCase(test));
+        }
         return conciseSet;
     }
+
+    /**
+     * the method packs a (gain, test index) pair into a priority queue key that orders by gain first and
+     * then by lower test index, matching the tie-breaking of a first-to-last scan.
+     *
+     * @param gain the number of uncovered files caught by the test case
+     * @param test the index of the test case
+     * @return the key
+     */
+    private static long queueKey(int gain, int test) {
+        return ((long) gain << 32) | (Integer.MAX_VALUE - test);
+    }
+
+    /**
+     * the method unpacks the test index of a priority queue key.
+     *
+     * @param key the key
+     * @return the index of the test case
+     */
+    private static int queueTest(long key) {
+        return Integer.MAX_VALUE - (int) key;
+    }
 }
-//use wrongset to keep track of covered files
-//find test case that covers the most files
-//remove the files from wrong set
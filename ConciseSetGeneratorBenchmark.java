@@ -0,0 +1,85 @@
+package bench.rice.concisegen;
+
+import main.rice.concisegen.ConciseSetGenerator;
+import main.rice.obj.APyObj;
+import main.rice.obj.PyIntObj;
+import main.rice.test.TestCase;
+import main.rice.test.TestResults;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks ConciseSetGenerator.setCover on synthetic result matrices.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConciseSetGeneratorBenchmark {
+
+    /**
+     * The number of test cases (rows of the matrix).
+     */
+    @Param({"1000", "10000"})
+    public int numCases;
+
+    /**
+     * The number of submissions (columns of the matrix).
+     */
+    @Param({"100", "1000"})
+    public int numFiles;
+
+    /**
+     * The probability that a given test case catches a given submission.
+     */
+    @Param({"0.01", "0.1"})
+    public double density;
+
+    private TestResults results;
+
+    /**
+     * Builds a random matrix (with a fixed seed, so every run sees the same one).
+     */
+    @Setup
+    public void setUp() {
+        this.results = randomResults(this.numCases, this.numFiles, this.density, new Random(215));
+    }
+
+    @Benchmark
+    public Set<TestCase> setCover() {
+        return ConciseSetGenerator.setCover(this.results);
+    }
+
+    /**
+     * Builds a random TestResults whose wrong set contains every submission caught by at least one test.
+     *
+     * @param numCases the number of test cases
+     * @param numFiles the number of submissions
+     * @param density  the probability that a given test case catches a given submission
+     * @param rand     the source of randomness
+     * @return the TestResults
+     */
+    public static TestResults randomResults(int numCases, int numFiles, double density, Random rand) {
+        List<TestCase> allCases = new ArrayList<>();
+        List<Set<Integer>> caseToFiles = new ArrayList<>();
+        Set<Integer> wrongSet = new HashSet<>();
+        for (int i = 0; i < numCases; i++) {
+            List<APyObj<?>> args = new ArrayList<>();
+            args.add(new PyIntObj(i));
+            allCases.add(new TestCase(args));
+            Set<Integer> files = new HashSet<>();
+            for (int file = 0; file < numFiles; file++) {
+                if (rand.nextDouble() < density) {
+                    files.add(file);
+                }
+            }
+            caseToFiles.add(files);
+            wrongSet.addAll(files);
+        }
+        return new TestResults(allCases, caseToFiles, wrongSet);
+    }
+}
@@ -0,0 +1,131 @@
+package test.rice.concisegen;
+
+import main.rice.concisegen.ConciseSetGenerator;
+import main.rice.concisegen.CoverMatrix;
+import main.rice.concisegen.CoverStats;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Test cases for the greedy set cover in the ConciseSetGenerator class.
+ */
+class ConciseSetGeneratorTest {
+
+    /**
+     * Builds a matrix over numFiles columns (with file index == column index).
+     *
+     * @param numFiles the number of columns
+     * @param rows     the columns caught by each test case
+     * @return the matrix
+     */
+    static CoverMatrix matrix(int numFiles, int[]... rows) {
+        long[][] bits = new long[rows.length][CoverMatrix.numWords(numFiles)];
+        for (int test = 0; test < rows.length; test++) {
+            for (int col : rows[test]) {
+                CoverMatrix.set(bits[test], col);
+            }
+        }
+        int[] fileIds = new int[numFiles];
+        for (int col = 0; col < numFiles; col++) {
+            fileIds[col] = col;
+        }
+        return new CoverMatrix(bits, fileIds);
+    }
+
+    /**
+     * Tests that the test case catching the most files is chosen first.
+     */
+    @Test
+    void testLargestFirst() {
+        CoverMatrix matrix = matrix(4, new int[]{0, 1}, new int[]{1, 2, 3}, new int[]{0}, new int[]{2, 3});
+        assertEquals(List.of(1, 0), ConciseSetGenerator.greedyCover(matrix));
+    }
+
+    /**
+     * Tests that ties go to the lowest index, and that stale gains get re-evaluated.
+     */
+    @Test
+    void testTieBreakAndStaleGain() {
+        // 0 and 1 tie at 3; once 0 is chosen, 1 only gains {3} while 2 gains {3, 4}
+        CoverMatrix matrix = matrix(5, new int[]{0, 1, 2}, new int[]{0, 1, 3}, new int[]{3, 4});
+        assertEquals(List.of(0, 2), ConciseSetGenerator.greedyCover(matrix));
+    }
+
+    /**
+     * Tests a matrix spanning several long words.
+     */
+    @Test
+    void testMultipleWords() {
+        int[] low = new int[100];
+        int[] high = new int[100];
+        for (int i = 0; i < 100; i++) {
+            low[i] = i;
+            high[i] = 100 + i;
+        }
+        CoverMatrix matrix = matrix(200, new int[]{5, 150}, high, low);
+        assertEquals(List.of(1, 2), ConciseSetGenerator.greedyCover(matrix));
+    }
+
+    /**
+     * Tests that an empty matrix needs no test cases.
+     */
+    @Test
+    void testEmpty() {
+        assertEquals(List.of(), ConciseSetGenerator.greedyCover(matrix(0)));
+    }
+
+    /**
+     * Tests that the parallel greedy chooses exactly the same test cases as the sequential one.
+     */
+    @Test
+    void testParallelMatchesSequential() {
+        Random rand = new Random(215);
+        int[][] rows = new int[3000][];
+        for (int test = 0; test < rows.length; test++) {
+            rows[test] = rand.ints(rand.nextInt(6), 0, 500).toArray();
+        }
+        CoverMatrix matrix = matrix(500, rows);
+        assertEquals(ConciseSetGenerator.greedyCover(matrix),
+                ConciseSetGenerator.greedyCover(matrix, ForkJoinPool.commonPool()));
+    }
+
+    /**
+     * Tests that with unit costs the weighted greedy chooses the same test cases as the plain one.
+     */
+    @Test
+    void testWeightedUnitCosts() {
+        CoverMatrix matrix = matrix(5, new int[]{0, 1, 2}, new int[]{0, 1, 3}, new int[]{3, 4});
+        assertEquals(ConciseSetGenerator.greedyCover(matrix),
+                ConciseSetGenerator.weightedGreedyCover(matrix, new double[]{1, 1, 1}));
+    }
+
+    /**
+     * Tests that an expensive test case loses to cheaper ones that cover the same files.
+     */
+    @Test
+    void testWeightedAvoidsExpensive() {
+        CoverMatrix matrix = matrix(4, new int[]{0, 1, 2, 3}, new int[]{0, 1}, new int[]{2, 3});
+        assertEquals(List.of(1, 2), ConciseSetGenerator.weightedGreedyCover(matrix, new double[]{10, 1, 1}));
+    }
+
+    /**
+     * Tests that the instrumented greedy counts gain evaluations, stale re-insertions and picks.
+     */
+    @Test
+    void testStats() {
+        CoverMatrix matrix = matrix(5, new int[]{0, 1, 2}, new int[]{0, 1, 3}, new int[]{3, 4});
+        CoverStats stats = new CoverStats();
+        assertEquals(List.of(0, 2), ConciseSetGenerator.greedyCover(matrix, stats));
+        // 3 initial gains, then 0 (picked), 1 (stale, re-inserted) and 2 (picked)
+        assertEquals(6, stats.getGainEvaluations());
+        assertEquals(1, stats.getStaleReinserts());
+        assertEquals(2, stats.getCoveredUpdates());
+        assertEquals(5, stats.getFilesCovered());
+        assertEquals(2, stats.getRoundNanos().size());
+    }
+}
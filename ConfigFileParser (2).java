@@ -3,8 +3,10 @@ import main.rice.node.*;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONTokener;
 
-import java.io.IOException;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.*;
@@ -25,7 +27,37 @@ public class ConfigFileParser {
      */
     public static String readFile(String filepath) throws IOException {
         //since we want to read the entire file at once, no fileReader
-        return new String(Files.readAllBytes(Paths.get(filepath)));
+        return new String(Files.readAllBytes(Paths.get(filepath)), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads and parses the config file located at the input filepath without first reading it into a
+     * String: the JSON tokenizer pulls the UTF-8 decoded characters straight from the file.
+     *
+     * @param filepath string representing file that is to be parsed
+     * @return new ConfigFile object of the list of nodes, parsed function name, and number of random tests to generate
+     * @throws IOException: it gets thrown if  the file does not exist or cannot be read
+     * @throws InvalidConfigException : gets thrown  with a descriptive error message if any part of the config file
+     *                                is missing or malformed
+     */
+    public static ConfigFile parseFile(String filepath) throws IOException, InvalidConfigException {
+        try (InputStream in = Files.newInputStream(Paths.get(filepath))) {
+            return parse(in);
+        }
+    }
+
+    /**
+     * the method parses the UTF-8 encoded JSON config read from the input stream, like parse(String),
+     * but without materializing the whole config as a String.
+     *
+     * @param in a stream containing a single valid JSON object with 5 keys; it is not closed
+     * @return new ConfigFile object of the list of nodes, parsed function name, and number of random tests to generate
+     * @throws InvalidConfigException : gets thrown  with a descriptive error message if any part of the config file
+     *                                is missing or malformed
+     */
+    public static ConfigFile parse(InputStream in) throws InvalidConfigException {
+        Reader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        return parse(parseRaw(new JSONTokener(reader)));
     }
 
     /**
@@ -37,8 +69,66 @@ public class ConfigFileParser {
      *                                is missing or malformed
      */
     public static ConfigFile parse(String contents) throws InvalidConfigException {
+        return parse(ConfigFileParser.parseRaw(contents));
+    }
+
+    /**
+     * the method runs the second phase of parsing on every parameter of a raw config.
+     *
+     * @param raw the raw contents of the config file
+     * @return new ConfigFile object of the list of nodes, parsed function name, and number of random tests to generate
+     * @throws InvalidConfigException : gets thrown if a type or domain of any parameter is malformed
+     */
+    private static ConfigFile parse(RawConfig raw) throws InvalidConfigException {
+        List<APyNode<?>> parsedTypes = new ArrayList<>();
+        for (int i = 0; i < raw.types().size(); ++i) {
+            parsedTypes.add(parseParameter(raw.types().get(i),
+                    raw.exDomains().get(i), raw.ranDomains().get(i)));
+        }
+        return new ConfigFile(raw.fname(), parsedTypes, raw.numRand());
+    }
+
+    /**
+     * The unparsed contents of a config file: the function name, the number of random tests, and
+     * the raw strings within the "types", "exhaustive domain", and "random domain" arrays (all three
+     * lists have the same length, one entry per parameter).
+     *
+     * @param fname      the name of the function under test
+     * @param types      the raw type string of each parameter
+     * @param exDomains  the raw exhaustive domain string of each parameter
+     * @param ranDomains the raw random domain string of each parameter
+     * @param numRand    the number of random tests to generate
+     */
+    public record RawConfig(String fname, List<String> types, List<String> exDomains,
+                            List<String> ranDomains, int numRand) {
+    }
+
+    /**
+     * the method performs the first (org.json) phase of parsing: it validates the keys, the function
+     * name, and the number of random tests, and extracts the raw per-parameter strings without parsing
+     * them into nodes.
+     *
+     * @param contents a JSON file  comprised of a single valid JSON object with 5 keys.
+     * @return the raw contents of the config file
+     * @throws InvalidConfigException : gets thrown  with a descriptive error message if any part of the config file
+     *                                is missing or malformed
+     */
+    public static RawConfig parseRaw(String contents) throws InvalidConfigException {
+        return parseRaw(new JSONTokener(contents));
+    }
+
+    /**
+     * the method performs the first (org.json) phase of parsing, like parseRaw(String), but reads the
+     * JSON object from a tokenizer (which may be backed by a stream instead of a String).
+     *
+     * @param tokener a tokenizer positioned at a single valid JSON object with 5 keys.
+     * @return the raw contents of the config file
+     * @throws InvalidConfigException : gets thrown  with a descriptive error message if any part of the config file
+     *                                is missing or malformed
+     */
+    private static RawConfig parseRaw(JSONTokener tokener) throws InvalidConfigException {
         try {
-            JSONObject jsonObj = new JSONObject(contents);
+            JSONObject jsonObj = new JSONObject(tokener);
             ConfigFileParser.checkKeys(jsonObj);
 
             // Parse fname and num random
@@ -53,38 +143,23 @@ public class ConfigFileParser {
                         Integer.toString(numRand) + ". num random msut be non-negative");
             }
 
-            // Parse types
-            JSONArray typesArray = jsonObj.getJSONArray("types");
-            List<APyNode<?>> parsedTypes = new ArrayList<>();
-            for (int i = 0; i < typesArray.length(); ++i) {
-                parsedTypes.add(parseType(typesArray.getString(i)));
-            }
+            List<String> types = getStrings(jsonObj.getJSONArray("types"));
 
-            //Parse exhaustive domains
-            JSONArray exhaustiveDomainArray = jsonObj.getJSONArray("exhaustive domain");
-            if (parsedTypes.size() != exhaustiveDomainArray.length()) {
+            List<String> exDomains = getStrings(jsonObj.getJSONArray("exhaustive domain"));
+            if (types.size() != exDomains.size()) {
                 throw new InvalidConfigException("Array sizes mismatch. Array of types has length " +
-                        Integer.toString(parsedTypes.size()) + " while array of exhaustive domains - " +
-                        Integer.toString(exhaustiveDomainArray.length()));
-            }
-            for (int i = 0; i < parsedTypes.size(); ++i) {
-                ConfigFileParser.parseDomain(parsedTypes.get(i),
-                        exhaustiveDomainArray.getString(i), true);
+                        Integer.toString(types.size()) + " while array of exhaustive domains - " +
+                        Integer.toString(exDomains.size()));
             }
 
-            //Parse random domains
-            JSONArray randomDomainArray = jsonObj.getJSONArray("random domain");
-            if (parsedTypes.size() != randomDomainArray.length()) {
+            List<String> ranDomains = getStrings(jsonObj.getJSONArray("random domain"));
+            if (types.size() != ranDomains.size()) {
                 throw new InvalidConfigException("Array sizes mismatch. Array of types has length " +
-                        Integer.toString(parsedTypes.size()) + " while array of random domains - " +
-                        Integer.toString(randomDomainArray.length()));
-            }
-            for (int i = 0; i < parsedTypes.size(); ++i) {
-                ConfigFileParser.parseDomain(parsedTypes.get(i),
-                        randomDomainArray.getString(i), false);
+                        Integer.toString(types.size()) + " while array of random domains - " +
+                        Integer.toString(ranDomains.size()));
             }
 
-            return new ConfigFile(fname, parsedTypes, numRand);
+            return new RawConfig(fname, types, exDomains, ranDomains, numRand);
 
         } catch (JSONException e) {
             throw new InvalidConfigException("JSON parsing exception: " + e.getMessage());
@@ -93,6 +168,41 @@ public class ConfigFileParser {
         }
     }
 
+    /**
+     * the method performs the second (custom) phase of parsing for a single parameter: it builds the
+     * node tree for the type and attaches both domains to it. The returned tree is frozen (see
+     * APyNode.freeze()), so it can be shared by concurrent generators.
+     *
+     * @param type      the raw type string of the parameter
+     * @param exDomain  the raw exhaustive domain string of the parameter
+     * @param ranDomain the raw random domain string of the parameter
+     * @return an APyNode representing the parameter
+     * @throws InvalidConfigException gets thrown if the type or either domain fails parsing
+     */
+    public static APyNode<?> parseParameter(String type, String exDomain, String ranDomain)
+            throws InvalidConfigException {
+        APyNode<?> node = parseType(type);
+        ConfigFileParser.parseDomain(node, exDomain, true);
+        ConfigFileParser.parseDomain(node, ranDomain, false);
+        node.freeze();
+        return node;
+    }
+
+    /**
+     * Copies the strings out of a JSON array.
+     *
+     * @param array the JSON array of strings
+     * @return a list containing the strings of the array, in order
+     * @throws JSONException gets thrown if an element of the array is not a string
+     */
+    private static List<String> getStrings(JSONArray array) throws JSONException {
+        List<String> strings = new ArrayList<>();
+        for (int i = 0; i < array.length(); ++i) {
+            strings.add(array.getString(i));
+        }
+        return strings;
+    }
+
     /**
      * the method parses the input string ( contents of a JSON file)
      * @param jsonObj a JSON file  comprised of a single valid JSON object with 5 keys.
@@ -116,15 +226,30 @@ public class ConfigFileParser {
 
     // vvv THE PARSING HELL vvv
     /**
-     * Splits an input string into a list of tokens based on delimiter regex.
+     * Splits an input string into a list of tokens in a single pass over its characters.
      * @param parsedString The string we split into tokens.
-     * @param delimRegex   The regular expression used as a delimiter. It specifies
-     *  where the string should be split.
-     * @return a list of String tokens, split according to the delimiter regex and
+     * @param delims       The delimiter characters. Each of them is a token on its own and
+     *  ends the token before it.
+     * @return a list of String tokens, split at the delimiters and
      *         that includes the delimiters themselves.
      */
-    private static List<String> getStringTokens(String parsedString, String delimRegex) {
-        return Arrays.asList(parsedString.split("(?=" + delimRegex + ")|(?<=" + delimRegex + ")")); // splits while saving delimeters
+    private static List<String> getStringTokens(CharSequence parsedString, String delims) {
+        List<String> tokens = new ArrayList<>();
+        int tokenStart = 0;
+        for (int i = 0; i < parsedString.length(); i++) {
+            char c = parsedString.charAt(i);
+            if (delims.indexOf(c) >= 0) {
+                if (i > tokenStart) {
+                    tokens.add(parsedString.subSequence(tokenStart, i).toString());
+                }
+                tokens.add(String.valueOf(c)); // saving delimeters
+                tokenStart = i + 1;
+            }
+        }
+        if (tokenStart < parsedString.length()) {
+            tokens.add(parsedString.subSequence(tokenStart, parsedString.length()).toString());
+        }
+        return tokens;
     }
     /**
      * The class represents a token that can either hold a string or a node of type T.
@@ -195,7 +320,7 @@ public class ConfigFileParser {
      */
     private static APyNode<?> parseType(String type) throws InvalidConfigException {
         String delimRegex = "\\(|:";
-        List<String> stringTokens = getStringTokens(type, delimRegex);
+        List<String> stringTokens = getStringTokens(type, "(:");
 
         ArrayDeque<String> stringTokenDeque = new ArrayDeque<>(stringTokens);
         Stack<Token<APyNode<?>>> tokenStack = new Stack<>();
@@ -407,7 +532,7 @@ public class ConfigFileParser {
      */
     private static void parseDomain(APyNode<?> tree, String domain, Boolean isExhaustive) throws InvalidConfigException {
         String delimRegex = "\\(|:|\\[|\\]|,|~";
-        List<String> stringTokens = getStringTokens(domain, delimRegex);
+        List<String> stringTokens = getStringTokens(domain, "(:[],~");
 
         ArrayDeque<String> stringTokenDeque = new ArrayDeque<>(stringTokens);
         ArrayDeque<Token<List<Number>>> tokenStack = new ArrayDeque<>();
@@ -0,0 +1,75 @@
+package bench.rice.parse;
+
+import bench.rice.BenchConfigs;
+import main.rice.parse.ConfigFile;
+import main.rice.parse.ConfigFileParser;
+import main.rice.parse.InvalidConfigException;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks ConfigFileParser.parse on wide (many parameters) and deep (heavily nested) configs. Each
+ * shape has a state of its own, so JMH only runs each benchmark over its own parameter.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConfigFileParserBenchmark {
+
+    /**
+     * The wide config.
+     */
+    @State(Scope.Benchmark)
+    public static class Wide {
+        /**
+         * The number of parameters of the config.
+         */
+        @Param({"10", "100", "1000"})
+        public int width;
+
+        private String config;
+
+        /**
+         * Builds the config.
+         */
+        @Setup
+        public void setUp() {
+            this.config = BenchConfigs.wideConfig(this.width);
+        }
+    }
+
+    /**
+     * The deep config.
+     */
+    @State(Scope.Benchmark)
+    public static class Deep {
+        /**
+         * The nesting depth of the config.
+         */
+        @Param({"5", "25"})
+        public int depth;
+
+        private String config;
+
+        /**
+         * Builds the config.
+         */
+        @Setup
+        public void setUp() {
+            this.config = BenchConfigs.deepConfig(this.depth);
+        }
+    }
+
+    @Benchmark
+    public ConfigFile parseWide(Wide wide) throws InvalidConfigException {
+        return ConfigFileParser.parse(wide.config);
+    }
+
+    @Benchmark
+    public ConfigFile parseDeep(Deep deep) throws InvalidConfigException {
+        return ConfigFileParser.parse(deep.config);
+    }
+}
@@ -0,0 +1,145 @@
+package main.rice.basegen;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.Consumer;
+import main.rice.node.APyNode;
+import main.rice.obj.APyObj;
+import main.rice.parse.ConfigFileParser;
+import main.rice.parse.ConfigFileParser.RawConfig;
+import main.rice.parse.InvalidConfigException;
+import main.rice.test.TestCase;
+
+/**
+ * This class implements the watch mode: it watches a config file and, every time it changes,
+ * re-parses it and regenerates the base test set.
+ * The work is incremental: the raw "types", "exhaustive domain" and "random domain" entries of the
+ * new config are diffed against the previous parse, and only the parameters whose entries changed
+ * get a new APyNode and new exhaustive values. Every other parameter reuses the node and the
+ * exhaustive value set that were generated for it before.
+ */
+public class ConfigFileWatcher {
+    private final Path configPath;
+    private final Consumer<List<TestCase>> onBaseSet;
+    private final Consumer<InvalidConfigException> onInvalidConfig;
+
+    /**
+     * The raw entries of the last successfully parsed config; null before the first parse.
+     */
+    private RawConfig lastRaw;
+    /**
+     * The parsed node of each parameter of the last successfully parsed config.
+     */
+    private List<APyNode<?>> nodes = new ArrayList<>();
+    /**
+     * The exhaustive values of each parameter of the last successfully parsed config.
+     */
+    private List<Set<? extends APyObj<?>>> exVals = new ArrayList<>();
+
+    /**
+     * It's a constructor set for ConfigFileWatcher
+     * @param configPath: the config file to watch
+     * @param onBaseSet: gets called with the regenerated base test set after every successful re-parse
+     * @param onInvalidConfig: gets called when the edited config is malformed; the previous parse is kept
+     */
+    public ConfigFileWatcher(Path configPath, Consumer<List<TestCase>> onBaseSet,
+                             Consumer<InvalidConfigException> onInvalidConfig) {
+        this.configPath = configPath.toAbsolutePath();
+        this.onBaseSet = onBaseSet;
+        this.onInvalidConfig = onInvalidConfig;
+    }
+
+    /**
+     * Re-reads and re-parses the config file, rebuilding only the parameters whose entries changed
+     * since the last successful parse, and regenerates the base test set.
+     * @return the regenerated base test set
+     * @throws IOException if the config file cannot be read
+     * @throws InvalidConfigException if the config file is malformed; the previous parse is kept
+     */
+    public List<TestCase> refresh() throws IOException, InvalidConfigException {
+        RawConfig raw = ConfigFileParser.parseRaw(ConfigFileParser.readFile(this.configPath.toString()));
+
+        // build the new lists on the side, so that a malformed entry keeps the previous parse intact
+        List<APyNode<?>> newNodes = new ArrayList<>();
+        List<Set<? extends APyObj<?>>> newExVals = new ArrayList<>();
+        for (int i = 0; i < raw.types().size(); i++) {
+            if (isUnchanged(raw, i, true)) {
+                newNodes.add(this.nodes.get(i));
+                newExVals.add(this.exVals.get(i));
+            } else {
+                APyNode<?> node = ConfigFileParser.parseParameter(raw.types().get(i),
+                        raw.exDomains().get(i), raw.ranDomains().get(i));
+                newNodes.add(node);
+                // an edit of the random domain alone does not change the exhaustive values
+                newExVals.add(isUnchanged(raw, i, false) ? this.exVals.get(i) : node.genExVals());
+            }
+        }
+        this.lastRaw = raw;
+        this.nodes = newNodes;
+        this.exVals = newExVals;
+
+        return new BaseSetGenerator(newNodes, raw.numRand()).genBaseSet(newExVals);
+    }
+
+    /**
+     * Regenerates the base test set once, then blocks and regenerates it again every time the config
+     * file is modified, until the calling thread is interrupted.
+     * @throws IOException if the config file cannot be read or watched
+     * @throws InterruptedException if the calling thread is interrupted while waiting for a change
+     */
+    public void watch() throws IOException, InterruptedException {
+        try (WatchService watchService = this.configPath.getFileSystem().newWatchService()) {
+            // WatchService works on directories, so watch the parent and filter on the file name
+            this.configPath.getParent().register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            regenerate();
+
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW ||
+                            this.configPath.getFileName().equals(event.context())) {
+                        changed = true;
+                    }
+                }
+                // editors usually fire several events per save, so regenerate once per batch
+                if (changed) {
+                    regenerate();
+                }
+                if (!key.reset()) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Calls refresh() and hands the result (or the parse error) to the callbacks.
+     * @throws IOException if the config file cannot be read
+     */
+    private void regenerate() throws IOException {
+        try {
+            this.onBaseSet.accept(refresh());
+        } catch (NoSuchFileException e) {
+            // the file is being replaced (write to temp + rename); the create event will follow
+        } catch (InvalidConfigException e) {
+            this.onInvalidConfig.accept(e);
+        }
+    }
+
+    /**
+     * Checks whether the entries of the i-th parameter are the same as in the last successful parse.
+     * @param raw the new raw config
+     * @param i the index of the parameter
+     * @param checkRanDomain whether the random domain has to be unchanged as well
+     * @return true if the parameter's type and exhaustive domain (and, if checkRanDomain is set, its
+     * random domain) are unchanged, false otherwise
+     */
+    private boolean isUnchanged(RawConfig raw, int i, boolean checkRanDomain) {
+        return this.lastRaw != null && i < this.lastRaw.types().size() &&
+                this.lastRaw.types().get(i).equals(raw.types().get(i)) &&
+                this.lastRaw.exDomains().get(i).equals(raw.exDomains().get(i)) &&
+                (!checkRanDomain || this.lastRaw.ranDomains().get(i).equals(raw.ranDomains().get(i)));
+    }
+}
@@ -0,0 +1,136 @@
+package test.rice.basegen;
+
+import main.rice.basegen.ConfigFileWatcher;
+import main.rice.obj.APyObj;
+import main.rice.obj.PyIntObj;
+import main.rice.parse.InvalidConfigException;
+import main.rice.test.TestCase;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test cases for the ConfigFileWatcher class.
+ */
+class ConfigFileWatcherTest {
+
+    /**
+     * Tests that a refresh of an unchanged file regenerates the same tests out of the same exhaustive
+     * values.
+     */
+    @Test
+    void testRefreshUnchanged(@TempDir Path dir) throws IOException, InvalidConfigException {
+        Path config = write(dir, "0~1", "0~2", "0~1", 0);
+        ConfigFileWatcher watcher = new ConfigFileWatcher(config, tests -> { }, e -> { });
+        List<TestCase> first = watcher.refresh();
+        List<TestCase> second = watcher.refresh();
+
+        assertEquals(new HashSet<>(first), new HashSet<>(second));
+        assertEquals(6, second.size());
+        assertSame(arg(first, 0, 1), arg(second, 0, 1));
+        assertSame(arg(first, 1, 2), arg(second, 1, 2));
+    }
+
+    /**
+     * Tests that changing the exhaustive domain of one parameter rebuilds only that parameter, and that
+     * changing only a random domain keeps the exhaustive values.
+     */
+    @Test
+    void testRefreshChangedDomain(@TempDir Path dir) throws IOException, InvalidConfigException {
+        Path config = write(dir, "0~1", "0~2", "7~7", 0);
+        ConfigFileWatcher watcher = new ConfigFileWatcher(config, tests -> { }, e -> { });
+        List<TestCase> first = watcher.refresh();
+
+        write(dir, "0~1", "3~4", "7~7", 0);
+        List<TestCase> second = watcher.refresh();
+        assertEquals(values(List.of(0, 1), List.of(3, 4)), new HashSet<>(second));
+        assertSame(arg(first, 0, 1), arg(second, 0, 1));
+
+        write(dir, "0~1", "3~4", "9~9", 1);
+        List<TestCase> third = watcher.refresh();
+        assertEquals(5, third.size());
+        assertTrue(third.contains(new TestCase(List.of(new PyIntObj(9), new PyIntObj(9)))));
+        assertSame(arg(second, 1, 4), arg(third, 1, 4));
+    }
+
+    /**
+     * Tests that a malformed file is reported and keeps the previous parse, and that a later valid file is
+     * parsed again.
+     */
+    @Test
+    void testRefreshInvalid(@TempDir Path dir) throws IOException, InvalidConfigException {
+        Path config = write(dir, "0~1", "0~2", "0~1", 0);
+        ConfigFileWatcher watcher = new ConfigFileWatcher(config, tests -> { }, e -> { });
+        List<TestCase> first = watcher.refresh();
+
+        write(dir, "0~1", "2~", "0~1", 0);
+        assertThrows(InvalidConfigException.class, watcher::refresh);
+        Files.writeString(config, "{\"fname\": \"f\"", StandardCharsets.UTF_8);
+        assertThrows(InvalidConfigException.class, watcher::refresh);
+
+        write(dir, "0~1", "0~2", "0~1", 0);
+        List<TestCase> fixed = watcher.refresh();
+        assertEquals(new HashSet<>(first), new HashSet<>(fixed));
+        assertSame(arg(first, 1, 2), arg(fixed, 1, 2));
+    }
+
+    /**
+     * Writes a config with two int parameters.
+     *
+     * @param dir the directory of the config
+     * @param exDomain0 the exhaustive domain of the first parameter
+     * @param exDomain1 the exhaustive domain of the second parameter
+     * @param ranDomain the random domain of both parameters
+     * @param numRand the number of random tests
+     * @return the path of the config
+     */
+    private static Path write(Path dir, String exDomain0, String exDomain1, String ranDomain, int numRand)
+            throws IOException {
+        String json = "{\"fname\": \"f\", \"types\": [\"int\", \"int\"], "
+                + "\"exhaustive domain\": [\"" + exDomain0 + "\", \"" + exDomain1 + "\"], "
+                + "\"random domain\": [\"" + ranDomain + "\", \"" + ranDomain + "\"], "
+                + "\"num random\": " + numRand + "}";
+        return Files.writeString(dir.resolve("config.json"), json, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Finds the object a test set passes as a parameter.
+     *
+     * @param tests the test set
+     * @param param the index of the parameter
+     * @param value the value of the parameter
+     * @return the first argument object equal to value
+     */
+    private static APyObj<?> arg(List<TestCase> tests, int param, int value) {
+        for (TestCase test : tests) {
+            if (test.getArgs().get(param).equals(new PyIntObj(value))) {
+                return test.getArgs().get(param);
+            }
+        }
+        return fail("no test passes " + value);
+    }
+
+    /**
+     * @param domain0 the values of the first parameter
+     * @param domain1 the values of the second parameter
+     * @return every test over the two domains
+     */
+    private static Set<TestCase> values(List<Integer> domain0, List<Integer> domain1) {
+        Set<TestCase> tests = new HashSet<>();
+        for (int a : domain0) {
+            for (int b : domain1) {
+                tests.add(new TestCase(List.of(new PyIntObj(a), new PyIntObj(b))));
+            }
+        }
+        return tests;
+    }
+}
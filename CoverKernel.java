@@ -0,0 +1,295 @@
+package main.rice.concisegen;
+import java.util.*;
+
+/**
+ * CoverKernel shrinks a coverage matrix before a set cover algorithm runs on it, without changing which
+ * covers are minimal:
+ * 1) test cases that catch exactly the same uncovered files are collapsed into the one with the lowest
+ *    index (found by hashing their bitsets),
+ * 2) test cases whose uncovered files are a strict subset of another test case's are dropped,
+ * 3) a test case that is the only one catching some file is essential: it is forced into the cover and
+ *    the files it catches no longer need covering.
+ * The three steps repeat until nothing changes. The kernel is the remaining test cases restricted to the
+ * remaining files; a cover of the kernel plus the forced test cases is a cover of the original matrix.
+ */
+public final class CoverKernel {
+    private final CoverMatrix matrix;
+    private final int[] tests;
+    private final List<Integer> forced;
+
+    /**
+     * It's a constructor set for CoverKernel
+     * @param matrix: the kernel matrix
+     * @param tests: the original index of each row of the kernel matrix
+     * @param forced: the original indices of the forced test cases
+     */
+    private CoverKernel(CoverMatrix matrix, int[] tests, List<Integer> forced) {
+        this.matrix = matrix;
+        this.tests = tests;
+        this.forced = forced;
+    }
+
+    /**
+     * Computes the kernel of a coverage matrix.
+     * @param original the matrix to shrink; it is not modified
+     * @return the kernel
+     */
+    public static CoverKernel of(CoverMatrix original) {
+        int numWords = original.numWords();
+
+        // files no test case catches can never be covered, so they are not part of the goal
+        long[] uncovered = new long[numWords];
+        for (int test = 0; test < original.numCases(); test++) {
+            long[] row = original.row(test);
+            for (int word = 0; word < numWords; word++) {
+                uncovered[word] |= row[word];
+            }
+        }
+
+        // the active test cases, in ascending index order, with their rows restricted to uncovered files;
+        // a row is shared with the original matrix until masking changes it, so only those rows are copied
+        List<Integer> active = new ArrayList<>();
+        long[][] rows = new long[original.numCases()][];
+        for (int test = 0; test < original.numCases(); test++) {
+            active.add(test);
+            rows[test] = original.row(test);
+        }
+        BitSet owned = new BitSet(original.numCases());
+        List<Integer> forced = new ArrayList<>();
+
+        boolean changed = true;
+        while (changed) {
+            int before = active.size();
+            active = collapseDuplicates(active, rows, owned, uncovered);
+            active = dropDominated(active, rows, original.numFiles());
+            boolean forcedAny = forceEssential(active, rows, uncovered, forced, original.numFiles());
+            changed = forcedAny || active.size() != before;
+        }
+
+        // compact the remaining files into the columns of the kernel
+        int[] columns = new int[original.numFiles()];
+        int numColumns = 0;
+        for (int col = 0; col < original.numFiles(); col++) {
+            if (CoverMatrix.get(uncovered, col)) {
+                columns[numColumns++] = col;
+            }
+        }
+        int[] fileIds = new int[numColumns];
+        for (int i = 0; i < numColumns; i++) {
+            fileIds[i] = original.fileId(columns[i]);
+        }
+        long[][] kernelRows = new long[active.size()][CoverMatrix.numWords(numColumns)];
+        int[] tests = new int[active.size()];
+        for (int pos = 0; pos < tests.length; pos++) {
+            tests[pos] = active.get(pos);
+            long[] row = rows[tests[pos]];
+            for (int i = 0; i < numColumns; i++) {
+                if (CoverMatrix.get(row, columns[i])) {
+                    CoverMatrix.set(kernelRows[pos], i);
+                }
+            }
+        }
+        return new CoverKernel(new CoverMatrix(kernelRows, fileIds), tests, forced);
+    }
+
+    /**
+     * @return the kernel matrix; its rows are the remaining test cases, its columns the remaining files
+     */
+    public CoverMatrix matrix() {
+        return matrix;
+    }
+
+    /**
+     * @return the original indices of the forced (essential) test cases, in the order they were forced
+     */
+    public List<Integer> forced() {
+        return Collections.unmodifiableList(forced);
+    }
+
+    /**
+     * @param row a row of the kernel matrix
+     * @return the original index of the test case of that row
+     */
+    public int originalTest(int row) {
+        return tests[row];
+    }
+
+    /**
+     * Turns a cover of the kernel matrix into a cover of the original matrix.
+     * @param kernelCover the rows (of the kernel matrix) of a cover of the kernel
+     * @return the forced test cases followed by the original indices of the kernel cover
+     */
+    public List<Integer> lift(List<Integer> kernelCover) {
+        List<Integer> cover = new ArrayList<>(forced);
+        for (int row : kernelCover) {
+            cover.add(tests[row]);
+        }
+        return cover;
+    }
+
+    /**
+     * Masks every active row with the uncovered files, drops the rows left empty, and keeps only the
+     * lowest index of every group of identical rows.
+     * @param active the active test cases, in ascending order
+     * @param rows the row of each test case; a row that masking changes is replaced by a copy the first time
+     * @param owned the test cases whose row is already a copy, which is masked in place
+     * @param uncovered the files left to cover
+     * @return the remaining active test cases, in ascending order
+     */
+    private static List<Integer> collapseDuplicates(List<Integer> active, long[][] rows, BitSet owned,
+                                                    long[] uncovered) {
+        Set<RowKey> seen = new HashSet<>();
+        List<Integer> kept = new ArrayList<>();
+        for (int test : active) {
+            long[] row = rows[test];
+            boolean empty = true;
+            for (int word = 0; word < row.length; word++) {
+                if ((row[word] & ~uncovered[word]) != 0) {
+                    if (!owned.get(test)) {
+                        row = row.clone();
+                        rows[test] = row;
+                        owned.set(test);
+                    }
+                    row[word] &= uncovered[word];
+                }
+                empty &= row[word] == 0;
+            }
+            if (!empty && seen.add(new RowKey(row))) {
+                kept.add(test);
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Drops the test cases whose row is a strict subset of another active row. Only the rows that catch
+     * the rarest file of a row can be its supersets, so those are the only ones checked; the rarest file
+     * is found among the set bits of the row, so the cost follows the density of the matrix, not its width.
+     * @param active the active test cases (no duplicate rows), in ascending order
+     * @param rows the row of each test case
+     * @param numFiles the number of files
+     * @return the remaining active test cases, in ascending order
+     */
+    private static List<Integer> dropDominated(List<Integer> active, long[][] rows, int numFiles) {
+        List<List<Integer>> colTests = columnIndex(active, rows, numFiles);
+        List<Integer> kept = new ArrayList<>();
+        for (int test : active) {
+            long[] row = rows[test];
+            int rarest = -1;
+            for (int word = 0; word < row.length; word++) {
+                long bits = row[word];
+                while (bits != 0) {
+                    int col = (word << 6) + Long.numberOfTrailingZeros(bits);
+                    if (rarest < 0 || colTests.get(col).size() < colTests.get(rarest).size()) {
+                        rarest = col;
+                    }
+                    bits &= bits - 1;
+                }
+            }
+            boolean dominated = false;
+            for (int other : colTests.get(rarest)) {
+                // no duplicates are left, so a subset of another row is a strict subset
+                if (other != test && isSubset(row, rows[other])) {
+                    dominated = true;
+                    break;
+                }
+            }
+            if (!dominated) {
+                kept.add(test);
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Forces every test case that is the only active one catching some uncovered file.
+     * @param active the active test cases; forced ones are removed
+     * @param rows the row of each test case
+     * @param uncovered the files left to cover; updated as test cases are forced
+     * @param forced receives the forced test cases
+     * @param numFiles the number of files
+     * @return true if any test case was forced, false otherwise
+     */
+    private static boolean forceEssential(List<Integer> active, long[][] rows, long[] uncovered,
+                                          List<Integer> forced, int numFiles) {
+        List<List<Integer>> colTests = columnIndex(active, rows, numFiles);
+        Set<Integer> essential = new TreeSet<>();
+        for (int col = 0; col < numFiles; col++) {
+            if (CoverMatrix.get(uncovered, col) && colTests.get(col).size() == 1) {
+                essential.add(colTests.get(col).get(0));
+            }
+        }
+        for (int test : essential) {
+            forced.add(test);
+            CoverMatrix.andNot(uncovered, rows[test]);
+        }
+        active.removeAll(essential);
+        return !essential.isEmpty();
+    }
+
+    /**
+     * Builds, for each file, the list of active test cases that catch it.
+     * @param active the active test cases
+     * @param rows the row of each test case
+     * @param numFiles the number of files
+     * @return the test cases catching each file
+     */
+    private static List<List<Integer>> columnIndex(List<Integer> active, long[][] rows, int numFiles) {
+        List<List<Integer>> colTests = new ArrayList<>();
+        for (int col = 0; col < numFiles; col++) {
+            colTests.add(new ArrayList<>());
+        }
+        for (int test : active) {
+            long[] row = rows[test];
+            for (int word = 0; word < row.length; word++) {
+                long bits = row[word];
+                while (bits != 0) {
+                    colTests.get((word << 6) + Long.numberOfTrailingZeros(bits)).add(test);
+                    bits &= bits - 1;
+                }
+            }
+        }
+        return colTests;
+    }
+
+    /**
+     * @param a a bitset
+     * @param b another bitset
+     * @return true if every bit of a is set in b, false otherwise
+     */
+    private static boolean isSubset(long[] a, long[] b) {
+        for (int word = 0; word < a.length; word++) {
+            if ((a[word] & ~b[word]) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * RowKey wraps a bitset so it can be hashed by value.
+     */
+    private static final class RowKey {
+        private final long[] bits;
+        private final int hash;
+
+        /**
+         * It's a constructor set for RowKey
+         * @param bits: the bitset; must not change while the key is in use
+         */
+        RowKey(long[] bits) {
+            this.bits = bits;
+            this.hash = Arrays.hashCode(bits);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof RowKey other && hash == other.hash && Arrays.equals(bits, other.bits);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
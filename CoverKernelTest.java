@@ -0,0 +1,63 @@
+package test.rice.concisegen;
+
+import main.rice.concisegen.CoverKernel;
+import main.rice.concisegen.CoverMatrix;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Test cases for the CoverKernel class.
+ */
+class CoverKernelTest {
+
+    /**
+     * Tests that duplicates collapse into the lowest index and that strict subsets are dropped.
+     */
+    @Test
+    void testDuplicatesAndDominance() {
+        // 1 duplicates 0, 2 is a subset of 0, 3 and 4 overlap without dominating each other
+        CoverMatrix matrix = ConciseSetGeneratorTest.matrix(4,
+                new int[]{0, 1}, new int[]{0, 1}, new int[]{1}, new int[]{1, 2, 3}, new int[]{0, 2, 3});
+        CoverKernel kernel = CoverKernel.of(matrix);
+
+        assertEquals(List.of(), kernel.forced());
+        assertEquals(3, kernel.matrix().numCases());
+        assertEquals(List.of(0, 3, 4), List.of(kernel.originalTest(0), kernel.originalTest(1),
+                kernel.originalTest(2)));
+    }
+
+    /**
+     * Tests that essential test cases are forced, and that forcing repeats until nothing changes.
+     */
+    @Test
+    void testEssential() {
+        // 0 is the only one catching file 0, and 3 the only one catching 4 once its subset 4 is dropped;
+        // that leaves file 2, where 1 and 2 become duplicates and 1 is forced
+        CoverMatrix matrix = ConciseSetGeneratorTest.matrix(5,
+                new int[]{0, 1}, new int[]{1, 2}, new int[]{2, 3}, new int[]{3, 4}, new int[]{4});
+        CoverKernel kernel = CoverKernel.of(matrix);
+
+        assertEquals(List.of(0, 3, 1), kernel.forced());
+        assertEquals(0, kernel.matrix().numCases());
+        assertEquals(0, kernel.matrix().numFiles());
+        assertEquals(List.of(0, 3, 1), kernel.lift(List.of()));
+    }
+
+    /**
+     * Tests that masking the rows of the kernel leaves the rows of the original matrix as they were.
+     */
+    @Test
+    void testOriginalUnchanged() {
+        // 0 is forced for file 0, after which 1 and 2 are masked down to file 2 and collapse
+        CoverMatrix matrix = ConciseSetGeneratorTest.matrix(4,
+                new int[]{0, 1, 3}, new int[]{1, 2}, new int[]{2, 3});
+        CoverKernel.of(matrix);
+
+        assertEquals(0b1011L, matrix.row(0)[0]);
+        assertEquals(0b0110L, matrix.row(1)[0]);
+        assertEquals(0b1100L, matrix.row(2)[0]);
+    }
+}
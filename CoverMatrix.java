@@ -0,0 +1,206 @@
+package main.rice.concisegen;
+import java.util.*;
+import main.rice.test.*;
+
+/**
+ * CoverMatrix is the test case by buggy file matrix that the set cover algorithms work on. Each test case
+ * (row) stores the files it catches as a bitset of long words over the column indices, so coverage
+ * gains are popcounts of AND-ed words instead of HashSet operations.
+ * The columns are the files of the wrong set, in ascending order of file index.
+ * The rows are dense and live on the heap, and the set cover algorithms may make a working copy of some of
+ * them (see CoverKernel), so a BitMatrixResults whose dense form would take more than a quarter of the
+ * maximum heap is refused rather than expanded: results that large (e.g. a MappedBitMatrix that does not
+ * fit in memory) go through StreamingSetCover over a ResultLog instead.
+ */
+public final class CoverMatrix {
+    private final long[][] rows;
+    private final int[] fileIds;
+    private final int numWords;
+
+    /**
+     * It's a constructor set for CoverMatrix
+     * @param rows: one bitset over the column indices per test case; every row has numWords(fileIds.length) words
+     * @param fileIds: the file index of each column
+     */
+    public CoverMatrix(long[][] rows, int[] fileIds) {
+        this.rows = rows;
+        this.fileIds = fileIds;
+        this.numWords = numWords(fileIds.length);
+    }
+
+    /**
+     * Builds the matrix of a TestResults. Files that are caught by a test case but are not in the wrong
+     * set are left out, since they never need to be covered.
+     * @param results the test results
+     * @return the matrix; row i belongs to results.getTestCase(i)
+     */
+    public static CoverMatrix of(TestResults results) {
+        return of(results, Runtime.getRuntime().maxMemory() / 4);
+    }
+
+    /**
+     * Builds the matrix of a TestResults, like of(results), with an explicit limit on the size of the
+     * dense rows of a BitMatrixResults.
+     * @param results the test results
+     * @param maxDenseBytes the largest number of bytes the rows of a BitMatrixResults may take
+     * @return the matrix; row i belongs to results.getTestCase(i)
+     * @throws IllegalArgumentException if the results are a BitMatrixResults whose rows would take more
+     *     than maxDenseBytes
+     */
+    public static CoverMatrix of(TestResults results, long maxDenseBytes) {
+        if (results instanceof BitMatrixResults bitResults) {
+            return of(bitResults, maxDenseBytes);
+        }
+        int[] fileIds = new int[results.getWrongSet().size()];
+        int col = 0;
+        for (int fileId : new TreeSet<>(results.getWrongSet())) {
+            fileIds[col++] = fileId;
+        }
+        Map<Integer, Integer> columns = new HashMap<>();
+        for (col = 0; col < fileIds.length; col++) {
+            columns.put(fileIds[col], col);
+        }
+
+        List<Set<Integer>> caseToFiles = results.getCaseToFiles();
+        long[][] rows = new long[caseToFiles.size()][numWords(fileIds.length)];
+        for (int test = 0; test < rows.length; test++) {
+            for (Integer fileId : caseToFiles.get(test)) {
+                Integer column = columns.get(fileId);
+                if (column != null) {
+                    set(rows[test], column);
+                }
+            }
+        }
+        return new CoverMatrix(rows, fileIds);
+    }
+
+    /**
+     * Builds the matrix of a BitMatrixResults straight from its rows, without boxing file indices.
+     * @param results the test results
+     * @param maxDenseBytes the largest number of bytes the rows may take
+     * @return the matrix; row i belongs to results.getTestCase(i)
+     * @throws IllegalArgumentException if the rows would take more than maxDenseBytes
+     */
+    private static CoverMatrix of(BitMatrixResults results, long maxDenseBytes) {
+        ABitMatrix bits = results.getMatrix();
+        BitSet wrong = results.getWrongBits();
+        long denseBytes = 8L * bits.numCases() * numWords(wrong.cardinality());
+        if (denseBytes > maxDenseBytes) {
+            throw new IllegalArgumentException("the coverage matrix would take " + denseBytes
+                    + " bytes of heap, more than " + maxDenseBytes + "; use StreamingSetCover on a ResultLog");
+        }
+        int[] fileIds = wrong.stream().toArray();
+        int[] columns = new int[bits.numFiles()];
+        for (int col = 0; col < fileIds.length; col++) {
+            columns[fileIds[col]] = col;
+        }
+
+        long[][] rows = new long[bits.numCases()][numWords(fileIds.length)];
+        for (int test = 0; test < rows.length; test++) {
+            // every file that fails a test case is in the wrong set, so each one has a column
+            for (int file = bits.nextInRow(test, 0); file >= 0; file = bits.nextInRow(test, file + 1)) {
+                set(rows[test], columns[file]);
+            }
+        }
+        return new CoverMatrix(rows, fileIds);
+    }
+
+    /**
+     * @return the number of test cases (rows)
+     */
+    public int numCases() {
+        return rows.length;
+    }
+
+    /**
+     * @return the number of files (columns)
+     */
+    public int numFiles() {
+        return fileIds.length;
+    }
+
+    /**
+     * @return the number of long words in each row
+     */
+    public int numWords() {
+        return numWords;
+    }
+
+    /**
+     * @param test the index of a test case
+     * @return the bitset of the files caught by the test case; must not be modified
+     */
+    public long[] row(int test) {
+        return rows[test];
+    }
+
+    /**
+     * @param column the index of a column
+     * @return the file index of the column
+     */
+    public int fileId(int column) {
+        return fileIds[column];
+    }
+
+    /**
+     * @return a new bitset with every column set
+     */
+    public long[] allColumns() {
+        long[] all = new long[numWords];
+        for (int col = 0; col < fileIds.length; col++) {
+            set(all, col);
+        }
+        return all;
+    }
+
+    /**
+     * Counts the files that are in both bitsets, i.e. the gain of a row over a mask of uncovered files.
+     * @param row a bitset
+     * @param mask another bitset of the same length
+     * @return the number of bits set in both
+     */
+    public static int countAnd(long[] row, long[] mask) {
+        int count = 0;
+        for (int word = 0; word < row.length; word++) {
+            count += Long.bitCount(row[word] & mask[word]);
+        }
+        return count;
+    }
+
+    /**
+     * Clears the bits of a row from a mask, i.e. marks the files caught by a row as covered.
+     * @param mask the bitset to update
+     * @param row the bits to clear
+     */
+    public static void andNot(long[] mask, long[] row) {
+        for (int word = 0; word < mask.length; word++) {
+            mask[word] &= ~row[word];
+        }
+    }
+
+    /**
+     * Sets one bit of a bitset.
+     * @param bits the bitset
+     * @param index the index of the bit
+     */
+    public static void set(long[] bits, int index) {
+        bits[index >>> 6] |= 1L << index;
+    }
+
+    /**
+     * @param bits a bitset
+     * @param index the index of a bit
+     * @return true if the bit is set, false otherwise
+     */
+    public static boolean get(long[] bits, int index) {
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * @param numBits a number of bits
+     * @return the number of long words needed to hold that many bits
+     */
+    public static int numWords(int numBits) {
+        return (numBits + 63) >>> 6;
+    }
+}
@@ -0,0 +1,180 @@
+package main.rice.concisegen;
+import java.util.*;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * CoverStats is the report of one instrumented setCover run: how long each phase took and how much work
+ * the greedy algorithm did. Pass a new CoverStats to ConciseSetGenerator.setCover(results, stats) and read
+ * it afterwards, or write toJson() next to the grading output to track set cover cost across terms.
+ */
+public class CoverStats {
+    private long copyNanos;
+    private long kernelNanos;
+    private long greedyNanos;
+    private long totalNanos;
+    private final List<Long> roundNanos = new ArrayList<>();
+    private long gainEvaluations;
+    private long staleReinserts;
+    private long coveredUpdates;
+    private long filesCovered;
+    private int numCases;
+    private int numFiles;
+    private int kernelCases;
+    private int kernelFiles;
+    private int coverSize;
+
+    /**
+     * Records the copy of the input into a CoverMatrix.
+     * @param nanos how long it took
+     * @param matrix the copy
+     */
+    void recordCopy(long nanos, CoverMatrix matrix) {
+        copyNanos = nanos;
+        numCases = matrix.numCases();
+        numFiles = matrix.numFiles();
+    }
+
+    /**
+     * Records the kernel reduction.
+     * @param nanos how long it took
+     * @param kernel the kernel
+     */
+    void recordKernel(long nanos, CoverKernel kernel) {
+        kernelNanos = nanos;
+        kernelCases = kernel.matrix().numCases();
+        kernelFiles = kernel.matrix().numFiles();
+    }
+
+    /**
+     * Records the counters of a greedy run.
+     * @param nanos how long the greedy run took
+     * @param rounds how long each round (pick) took, in order
+     * @param gainEvaluations the number of gains computed
+     * @param staleReinserts the number of stale gains pushed back into the queue
+     * @param coveredUpdates the number of updates of the covered files
+     * @param filesCovered the number of files those updates covered
+     */
+    void recordGreedy(long nanos, List<Long> rounds, long gainEvaluations, long staleReinserts,
+                      long coveredUpdates, long filesCovered) {
+        this.greedyNanos = nanos;
+        this.roundNanos.clear();
+        this.roundNanos.addAll(rounds);
+        this.gainEvaluations = gainEvaluations;
+        this.staleReinserts = staleReinserts;
+        this.coveredUpdates = coveredUpdates;
+        this.filesCovered = filesCovered;
+    }
+
+    /**
+     * Records the end of the run.
+     * @param nanos how long the whole run took
+     * @param coverSize the number of test cases in the concise set
+     */
+    void recordTotal(long nanos, int coverSize) {
+        this.totalNanos = nanos;
+        this.coverSize = coverSize;
+    }
+
+    /**
+     * @return the time spent copying the input into a CoverMatrix, in nanoseconds
+     */
+    public long getCopyNanos() {
+        return copyNanos;
+    }
+
+    /**
+     * @return the time spent reducing the matrix to its kernel, in nanoseconds
+     */
+    public long getKernelNanos() {
+        return kernelNanos;
+    }
+
+    /**
+     * @return the time spent in the greedy algorithm, in nanoseconds
+     */
+    public long getGreedyNanos() {
+        return greedyNanos;
+    }
+
+    /**
+     * @return the time of the whole setCover call, in nanoseconds
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * @return the time of each greedy round (from the previous pick to this one), in nanoseconds
+     */
+    public List<Long> getRoundNanos() {
+        return Collections.unmodifiableList(roundNanos);
+    }
+
+    /**
+     * @return the number of gains computed, including the initial ones
+     */
+    public long getGainEvaluations() {
+        return gainEvaluations;
+    }
+
+    /**
+     * @return the number of re-evaluated gains that were no longer the best and went back into the queue
+     */
+    public long getStaleReinserts() {
+        return staleReinserts;
+    }
+
+    /**
+     * @return the number of updates of the covered files (one per pick)
+     */
+    public long getCoveredUpdates() {
+        return coveredUpdates;
+    }
+
+    /**
+     * @return the number of files covered by those updates
+     */
+    public long getFilesCovered() {
+        return filesCovered;
+    }
+
+    /**
+     * @return the number of test cases in the concise set
+     */
+    public int getCoverSize() {
+        return coverSize;
+    }
+
+    /**
+     * @return the report as a JSON object; times are in nanoseconds
+     */
+    public JSONObject toJson() {
+        JSONObject input = new JSONObject()
+                .put("cases", numCases)
+                .put("files", numFiles)
+                .put("kernelCases", kernelCases)
+                .put("kernelFiles", kernelFiles);
+        JSONObject times = new JSONObject()
+                .put("copy", copyNanos)
+                .put("kernel", kernelNanos)
+                .put("greedy", greedyNanos)
+                .put("total", totalNanos)
+                .put("rounds", new JSONArray(roundNanos));
+        JSONObject counters = new JSONObject()
+                .put("gainEvaluations", gainEvaluations)
+                .put("staleReinserts", staleReinserts)
+                .put("coveredUpdates", coveredUpdates)
+                .put("filesCovered", filesCovered);
+        return new JSONObject()
+                .put("input", input)
+                .put("nanos", times)
+                .put("counters", counters)
+                .put("coverSize", coverSize);
+    }
+
+    @Override
+    public String toString() {
+        return toJson().toString();
+    }
+}
@@ -0,0 +1,258 @@
+package main.rice.concisegen;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import main.rice.test.*;
+
+/**
+ * ExactSetCover finds a minimum concise set by branch and bound, for when every extra test case in the
+ * concise set is worth minutes of solver time. The search starts from the greedy cover as its upper bound,
+ * runs on the CoverKernel of the matrix (essential test cases forced in, dominated ones dropped), and
+ * explores the remaining choices in parallel in a ForkJoinPool until it proves the best cover optimal or
+ * runs out of its wall-clock budget. Either way it returns the best cover found together with a proven
+ * lower bound on the size of any cover.
+ */
+public final class ExactSetCover {
+    /**
+     * Subtrees up to this depth are forked as separate tasks; deeper ones are searched by their parent task.
+     */
+    private static final int FORK_DEPTH = 3;
+
+    /**
+     * The outcome of the search.
+     * @param cover the indices of the test cases of the best cover found
+     * @param lowerBound a proven lower bound on the size of any cover
+     */
+    public record Result(List<Integer> cover, int lowerBound) {
+        /**
+         * @return true if the cover is proven to be minimum, false if the budget ran out first
+         */
+        public boolean isOptimal() {
+            return cover.size() <= lowerBound;
+        }
+
+        /**
+         * @return the proven optimality gap, (cover size - lower bound) / cover size; 0 if optimal
+         */
+        public double gap() {
+            return cover.isEmpty() ? 0 : (cover.size() - lowerBound) / (double) cover.size();
+        }
+    }
+
+    private final CoverKernel kernel;
+    /**
+     * The kernel matrix, which the search runs on.
+     */
+    private final CoverMatrix matrix;
+    private final long deadline;
+    private volatile boolean timedOut;
+
+    /**
+     * For each column of the kernel matrix, the rows that catch it.
+     */
+    private final int[][] colRows;
+    /**
+     * The best cover found so far (original indices).
+     */
+    private final AtomicReference<List<Integer>> best;
+
+    /**
+     * It's a constructor set for ExactSetCover
+     * @param matrix: the coverage matrix
+     * @param budgetMillis: the wall-clock budget of the search
+     */
+    private ExactSetCover(CoverMatrix matrix, long budgetMillis) {
+        long start = System.nanoTime();
+        long budgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+        // saturate, so a huge budget means no deadline rather than one in the past
+        this.deadline = budgetNanos > Long.MAX_VALUE - start ? Long.MAX_VALUE : start + budgetNanos;
+        this.kernel = CoverKernel.of(matrix);
+        this.matrix = kernel.matrix();
+        this.best = new AtomicReference<>(ConciseSetGenerator.greedyCover(matrix));
+
+        this.colRows = new int[this.matrix.numFiles()][];
+        for (int col = 0; col < colRows.length; col++) {
+            int[] covering = new int[this.matrix.numCases()];
+            int count = 0;
+            for (int row = 0; row < covering.length; row++) {
+                if (CoverMatrix.get(this.matrix.row(row), col)) {
+                    covering[count++] = row;
+                }
+            }
+            colRows[col] = Arrays.copyOf(covering, count);
+        }
+    }
+
+    /**
+     * the method finds a minimum concise set of the test results, within the budget.
+     *
+     * @param results the test results
+     * @param budgetMillis the wall-clock budget of the search, in milliseconds
+     * @return the best cover found (indices into the test cases of results) and its lower bound
+     */
+    public static Result solve(TestResults results, long budgetMillis) {
+        return solve(CoverMatrix.of(results), budgetMillis, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * the method finds a minimum cover of the matrix, within the budget.
+     *
+     * @param matrix the coverage matrix
+     * @param budgetMillis the wall-clock budget of the search, in milliseconds
+     * @param pool the pool to search in
+     * @return the best cover found and its lower bound
+     */
+    public static Result solve(CoverMatrix matrix, long budgetMillis, ForkJoinPool pool) {
+        return new ExactSetCover(matrix, budgetMillis).search(pool);
+    }
+
+    /**
+     * the method runs the reductions and the search.
+     *
+     * @param pool the pool to search in
+     * @return the best cover found and its lower bound
+     */
+    private Result search(ForkJoinPool pool) {
+        long[] uncovered = matrix.allColumns();
+        int rootBound = kernel.forced().size() + lowerBound(uncovered);
+        pool.invoke(new Search(uncovered, new int[0]));
+
+        List<Integer> cover = best.get();
+        return new Result(cover, timedOut ? Math.min(rootBound, cover.size()) : cover.size());
+    }
+
+    /**
+     * the method computes a lower bound on the number of test cases needed to cover the uncovered files:
+     * the larger of (uncovered files / largest gain) and the number of uncovered files no two of which
+     * are caught by the same test case.
+     *
+     * @param uncovered the files left to cover
+     * @return the lower bound
+     */
+    private int lowerBound(long[] uncovered) {
+        int numUncovered = 0;
+        for (long word : uncovered) {
+            numUncovered += Long.bitCount(word);
+        }
+        if (numUncovered == 0) {
+            return 0;
+        }
+        int maxGain = 0;
+        for (int row = 0; row < matrix.numCases(); row++) {
+            maxGain = Math.max(maxGain, CoverMatrix.countAnd(matrix.row(row), uncovered));
+        }
+        if (maxGain == 0) {
+            return 0;
+        }
+        int gainBound = (numUncovered + maxGain - 1) / maxGain;
+
+        // files caught by pairwise disjoint groups of test cases each need their own test case
+        long[] blocked = new long[uncovered.length];
+        int independent = 0;
+        for (int col = 0; col < colRows.length; col++) {
+            if (CoverMatrix.get(uncovered, col) && !CoverMatrix.get(blocked, col)) {
+                independent++;
+                for (int covering : colRows[col]) {
+                    long[] row = matrix.row(covering);
+                    for (int word = 0; word < blocked.length; word++) {
+                        blocked[word] |= row[word];
+                    }
+                }
+            }
+        }
+        return Math.max(gainBound, independent);
+    }
+
+    /**
+     * the method replaces the best cover if the given one is smaller.
+     *
+     * @param path the rows (of the kernel matrix) of a cover of the kernel
+     */
+    private void offer(int[] path) {
+        List<Integer> cover = kernel.lift(Arrays.stream(path).boxed().toList());
+        best.accumulateAndGet(cover, (current, candidate) ->
+                candidate.size() < current.size() ? candidate : current);
+    }
+
+    /**
+     * the method checks the budget.
+     *
+     * @return true if the budget has run out
+     */
+    private boolean isTimedOut() {
+        if (!timedOut && System.nanoTime() > deadline) {
+            timedOut = true;
+        }
+        return timedOut;
+    }
+
+    /**
+     * Search explores the covers that extend a partial cover: it branches on the uncovered file caught by
+     * the fewest test cases, trying each test case that catches it, and prunes any branch whose lower
+     * bound cannot beat the best cover found so far. It is a fork/join task, never serialized.
+     */
+    @SuppressWarnings("serial")
+    private final class Search extends RecursiveAction {
+        private final long[] uncovered;
+        private final int[] path;
+
+        /**
+         * It's a constructor set for Search
+         * @param uncovered: the files the partial cover leaves uncovered
+         * @param path: the rows (of the kernel matrix) of the test cases of the partial cover
+         */
+        Search(long[] uncovered, int[] path) {
+            this.uncovered = uncovered;
+            this.path = path;
+        }
+
+        @Override
+        protected void compute() {
+            if (isTimedOut()) {
+                return;
+            }
+            int bound = kernel.forced().size() + path.length + lowerBound(uncovered);
+            if (bound >= best.get().size()) {
+                return;
+            }
+
+            int branchCol = -1;
+            for (int col = 0; col < colRows.length; col++) {
+                if (CoverMatrix.get(uncovered, col) &&
+                        (branchCol < 0 || colRows[col].length < colRows[branchCol].length)) {
+                    branchCol = col;
+                }
+            }
+            if (branchCol < 0) {
+                offer(path);
+                return;
+            }
+
+            // try the test cases with the largest gain first, to find good covers early
+            Integer[] options = Arrays.stream(colRows[branchCol]).boxed().toArray(Integer[]::new);
+            int[] gains = new int[matrix.numCases()];
+            for (int row : options) {
+                gains[row] = CoverMatrix.countAnd(matrix.row(row), uncovered);
+            }
+            Arrays.sort(options, (a, b) -> gains[b] - gains[a]);
+
+            List<Search> children = new ArrayList<>();
+            for (int row : options) {
+                long[] childUncovered = uncovered.clone();
+                CoverMatrix.andNot(childUncovered, matrix.row(row));
+                int[] childPath = Arrays.copyOf(path, path.length + 1);
+                childPath[path.length] = row;
+                children.add(new Search(childUncovered, childPath));
+            }
+            if (path.length < FORK_DEPTH) {
+                invokeAll(children);
+            } else {
+                for (Search child : children) {
+                    child.compute();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package test.rice.concisegen;
+
+import main.rice.concisegen.ConciseSetGenerator;
+import main.rice.concisegen.CoverMatrix;
+import main.rice.concisegen.ExactSetCover;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test cases for the ExactSetCover class.
+ */
+class ExactSetCoverTest {
+
+    /**
+     * Tests a matrix on which greedy is not minimal: it takes the test case catching four files first
+     * and then still needs both of the others.
+     */
+    @Test
+    void testBeatsGreedy() {
+        CoverMatrix matrix = ConciseSetGeneratorTest.matrix(6,
+                new int[]{0, 1, 2}, new int[]{3, 4, 5}, new int[]{0, 1, 3, 4});
+        assertEquals(3, ConciseSetGenerator.greedyCover(matrix).size());
+
+        ExactSetCover.Result result = ExactSetCover.solve(matrix, 10_000, ForkJoinPool.commonPool());
+        assertEquals(Set.of(0, 1), new HashSet<>(result.cover()));
+        assertTrue(result.isOptimal());
+        assertEquals(0, result.gap());
+    }
+
+    /**
+     * Tests that a budget too large to add to the clock means no deadline, not one in the past.
+     */
+    @Test
+    void testHugeBudget() {
+        CoverMatrix matrix = ConciseSetGeneratorTest.matrix(6,
+                new int[]{0, 1, 2}, new int[]{3, 4, 5}, new int[]{0, 1, 3, 4});
+        ExactSetCover.Result result = ExactSetCover.solve(matrix, Long.MAX_VALUE, ForkJoinPool.commonPool());
+        assertEquals(Set.of(0, 1), new HashSet<>(result.cover()));
+        assertTrue(result.isOptimal());
+    }
+
+    /**
+     * Tests that the cover found on a random matrix covers everything and is never larger than greedy's.
+     */
+    @Test
+    void testRandomCoversAll() {
+        Random rand = new Random(215);
+        int[][] rows = new int[40][];
+        for (int test = 0; test < rows.length; test++) {
+            rows[test] = rand.ints(3 + rand.nextInt(5), 0, 60).toArray();
+        }
+        CoverMatrix matrix = ConciseSetGeneratorTest.matrix(60, rows);
+
+        ExactSetCover.Result result = ExactSetCover.solve(matrix, 10_000, ForkJoinPool.commonPool());
+        assertTrue(result.cover().size() <= ConciseSetGenerator.greedyCover(matrix).size());
+        assertTrue(result.lowerBound() <= result.cover().size());
+
+        Set<Integer> covered = new HashSet<>();
+        for (int test : result.cover()) {
+            for (int col : rows[test]) {
+                covered.add(col);
+            }
+        }
+        Set<Integer> coverable = new HashSet<>();
+        for (int[] row : rows) {
+            for (int col : row) {
+                coverable.add(col);
+            }
+        }
+        assertEquals(coverable, covered);
+    }
+}
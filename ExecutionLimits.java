@@ -0,0 +1,68 @@
+package main.rice.test;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * ExecutionLimits holds the budgets of one test case run by an APyRunner. The wall clock is enforced from
+ * Java (the process tree is killed when it runs out); the CPU time and memory are enforced inside the
+ * Python process with setrlimit (RLIMIT_CPU per test case, RLIMIT_AS for the process), before the
+ * submission is imported. A test case that runs out of wall clock or CPU time is reported as TIMEOUT,
+ * and never passes.
+ *
+ * @param wallClock how long one test case may take
+ * @param cpuTime how much CPU time one test case may use (rounded up to whole seconds), or null for no
+ *     limit
+ * @param memoryBytes the largest address space of a Python process, or 0 for no limit
+ */
+public record ExecutionLimits(Duration wallClock, Duration cpuTime, long memoryBytes) {
+
+    /**
+     * It's a constructor set for ExecutionLimits; checks the budgets.
+     */
+    public ExecutionLimits {
+        if (wallClock == null || wallClock.isNegative() || wallClock.isZero()) {
+            throw new IllegalArgumentException("the wall-clock limit must be positive");
+        }
+        if (cpuTime != null && (cpuTime.isNegative() || cpuTime.isZero())) {
+            throw new IllegalArgumentException("the CPU time limit must be positive");
+        }
+        if (memoryBytes < 0) {
+            throw new IllegalArgumentException("the memory limit cannot be negative");
+        }
+    }
+
+    /**
+     * @param wallClock how long one test case may take
+     * @return limits with only a wall-clock budget
+     */
+    public static ExecutionLimits wallClock(Duration wallClock) {
+        return new ExecutionLimits(wallClock, null, 0);
+    }
+
+    /**
+     * @param cpuTime how much CPU time one test case may use
+     * @return a copy of these limits with the CPU time budget
+     */
+    public ExecutionLimits withCpuTime(Duration cpuTime) {
+        return new ExecutionLimits(wallClock, cpuTime, memoryBytes);
+    }
+
+    /**
+     * @param memoryBytes the largest address space of a Python process
+     * @return a copy of these limits with the memory budget
+     */
+    public ExecutionLimits withMemory(long memoryBytes) {
+        return new ExecutionLimits(wallClock, cpuTime, memoryBytes);
+    }
+
+    /**
+     * the method renders the limits enforced in Python as the trailing command-line arguments of
+     * pyworker.py and pyforkserver.py.
+     *
+     * @return the CPU seconds per test case and the memory bytes, each "0" for no limit
+     */
+    public List<String> scriptArgs() {
+        long cpuSeconds = cpuTime == null ? 0 : (cpuTime.toMillis() + 999) / 1000;
+        return List.of(Long.toString(cpuSeconds), Long.toString(memoryBytes));
+    }
+}
@@ -0,0 +1,83 @@
+package test.rice.test;
+
+import main.rice.test.ExecutionLimits;
+import main.rice.test.PyCallResult;
+import main.rice.test.PyWorkerPool;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test cases for the ExecutionLimits class, and for the limits as pyworker.py enforces them with python3
+ * (see PyWorkerPoolTest).
+ */
+class ExecutionLimitsTest {
+
+    /**
+     * A submission whose f(mode) spins on the CPU, allocates a lot, or returns mode, by mode.
+     */
+    private static final String GREEDY = String.join("\n",
+            "def f(mode):",
+            "    if mode == 'spin':",
+            "        while True:",
+            "            pass",
+            "    if mode == 'allocate':",
+            "        return len(bytearray(1 << 30))",
+            "    return mode",
+            "");
+
+    /**
+     * Tests that only positive budgets are accepted, and that no CPU time or memory budget means none.
+     */
+    @Test
+    void testValidation() {
+        assertThrows(IllegalArgumentException.class, () -> ExecutionLimits.wallClock(null));
+        assertThrows(IllegalArgumentException.class, () -> ExecutionLimits.wallClock(Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> ExecutionLimits.wallClock(Duration.ofSeconds(-1)));
+        ExecutionLimits limits = ExecutionLimits.wallClock(Duration.ofSeconds(1));
+        assertThrows(IllegalArgumentException.class, () -> limits.withCpuTime(Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> limits.withMemory(-1));
+        assertEquals(List.of("0", "0"), limits.scriptArgs());
+    }
+
+    /**
+     * Tests that the CPU time is rounded up to whole seconds for the scripts.
+     */
+    @Test
+    void testScriptArgs() {
+        ExecutionLimits limits = ExecutionLimits.wallClock(Duration.ofSeconds(1));
+        assertEquals(List.of("1", "0"), limits.withCpuTime(Duration.ofMillis(1)).scriptArgs());
+        assertEquals(List.of("2", "0"), limits.withCpuTime(Duration.ofMillis(1500)).scriptArgs());
+        assertEquals(List.of("2", "1048576"),
+                limits.withCpuTime(Duration.ofSeconds(2)).withMemory(1 << 20).scriptArgs());
+    }
+
+    /**
+     * Tests that a call that runs out of CPU time, well before its wall clock, is reported as a timeout,
+     * and that a call that runs out of memory raises MemoryError; the worker serves calls after both.
+     */
+    @Test
+    void testEnforced(@TempDir Path dir) throws IOException, InterruptedException {
+        ExecutionLimits limits = ExecutionLimits.wallClock(Duration.ofSeconds(30))
+                .withCpuTime(Duration.ofSeconds(1)).withMemory(512L << 20);
+        try (PyWorkerPool pool = new PyWorkerPool("python3", PyWorkerPoolTest.WORKER,
+                PyWorkerPoolTest.submission(dir, GREEDY), "f", 1, limits)) {
+            long start = System.nanoTime();
+            assertEquals(new PyCallResult(PyCallResult.Status.TIMEOUT, "cpu time limit of 1 s exceeded"),
+                    pool.call(PyWorkerPoolTest.test("spin")));
+            assertTrue(System.nanoTime() - start < Duration.ofSeconds(10).toNanos());
+
+            PyCallResult allocated = pool.call(PyWorkerPoolTest.test("allocate"));
+            assertEquals(PyCallResult.Status.RAISED, allocated.status());
+            assertTrue(allocated.output().startsWith("MemoryError"), allocated.output());
+
+            assertEquals(PyCallResult.returned("'ok'"), pool.call(PyWorkerPoolTest.test("ok")));
+        }
+    }
+}
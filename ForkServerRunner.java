@@ -0,0 +1,279 @@
+package main.rice.test;
+import java.io.*;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * ForkServerRunner runs the test cases of one submission through a fork server (pyforkserver.py): one
+ * Python process imports the submission once and then forks a copy-on-write child per test case, so each
+ * test case starts from the freshly imported module, as with a new process, but without paying for the
+ * interpreter startup and the import again. The server enforces the timeout of each test case itself
+ * (SIGALRM in the child, plus the CPU time limit of ExecutionLimits) and tells a timeout apart from a
+ * crash, so it survives both.
+ * Every runAll() talks to the server over a connection of its own on a Unix domain socket, which the
+ * server serves in a forked handler; several threads may call runAll() at once. If the server itself dies,
+ * it is started again.
+ */
+public class ForkServerRunner extends APyRunner {
+    /**
+     * How much longer than the test timeout the runner waits for a response before giving up on the
+     * connection (the server answers a timeout itself, so this only covers a stuck server).
+     */
+    private static final Duration GRACE = Duration.ofSeconds(2);
+
+    private final String python;
+    private final Path serverScript;
+    private final Path submission;
+    private final String funcName;
+    private final Duration testTimeout;
+    private final List<String> limitArgs;
+    private final Path socketDir;
+    private final Path socketPath;
+    private final Set<SocketChannel> connections = ConcurrentHashMap.newKeySet();
+    private volatile Process server;
+    private volatile boolean closed;
+
+    /**
+     * It's a constructor set for ForkServerRunner; starts the server and waits until it is ready.
+     * @param python: the Python interpreter to run (e.g. "python3")
+     * @param serverScript: the path of pyforkserver.py (pyworker.py must be next to it)
+     * @param submission: the path of the submission
+     * @param funcName: the name of the function to call (ConfigFile's fname)
+     * @param testTimeout: how long one test case may take (the import gets as long again)
+     * @throws IOException if the server cannot be started
+     */
+    public ForkServerRunner(String python, Path serverScript, Path submission, String funcName,
+                            Duration testTimeout) throws IOException {
+        this(python, serverScript, submission, funcName, ExecutionLimits.wallClock(testTimeout));
+    }
+
+    /**
+     * It's a constructor set for ForkServerRunner; starts the server and waits until it is ready.
+     * @param python: the Python interpreter to run (e.g. "python3")
+     * @param serverScript: the path of pyforkserver.py (pyworker.py must be next to it)
+     * @param submission: the path of the submission
+     * @param funcName: the name of the function to call (ConfigFile's fname)
+     * @param limits: the budgets of one test case (the import gets as much wall clock again)
+     * @throws IOException if the server cannot be started
+     */
+    public ForkServerRunner(String python, Path serverScript, Path submission, String funcName,
+                            ExecutionLimits limits) throws IOException {
+        this.python = python;
+        this.serverScript = serverScript;
+        this.submission = submission;
+        this.funcName = funcName;
+        this.testTimeout = limits.wallClock();
+        this.limitArgs = limits.scriptArgs();
+        this.socketDir = Files.createTempDirectory("pyfork");
+        this.socketPath = socketDir.resolve("server.sock");
+        try {
+            startServer();
+        } catch (IOException e) {
+            shutdown();
+            throw e;
+        }
+    }
+
+    @Override
+    public List<PyCallResult> runAll(List<TestCase> tests, List<PyCallResult> expected) throws InterruptedException {
+        List<PyCallResult> results = new ArrayList<>(tests.size());
+        boolean restarted = false;
+        while (results.size() < tests.size() && !closed) {
+            SocketChannel channel;
+            try {
+                channel = connect();
+            } catch (IOException e) {
+                // the server is gone: start it again, once per runAll
+                if (restarted || !restart()) {
+                    break;
+                }
+                restarted = true;
+                continue;
+            }
+            runConnection(channel, tests, expected, results);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+        while (results.size() < tests.size()) {
+            results.add(new PyCallResult(PyCallResult.Status.CRASHED, closed ? "runner closed" : "server died"));
+        }
+        return results;
+    }
+
+    /**
+     * Kills the server (and with it the handlers of open connections), and deletes its socket. It does not
+     * wait for a server that is still starting: killing it ends the wait in startServer().
+     */
+    @Override
+    public void close() {
+        shutdown();
+    }
+
+    /**
+     * the method does the work of close().
+     */
+    private void shutdown() {
+        closed = true;
+        for (SocketChannel channel : connections) {
+            closeQuietly(channel);
+        }
+        Process process = server;
+        if (process != null) {
+            destroyTree(process);
+        }
+        try {
+            Files.deleteIfExists(socketPath);
+            Files.deleteIfExists(socketDir);
+        } catch (IOException e) {
+            // a leftover temp file is harmless
+        }
+    }
+
+    /**
+     * the method runs test cases over one connection, one request at a time, until they are all done or
+     * the connection breaks. A test case that gets no response in time is marked TIMEOUT (or CRASHED if
+     * the connection broke while it ran), and the ones after it are left for a new connection.
+     *
+     * @param channel the connection
+     * @param tests the test cases
+     * @param expected the expected outcome of each test case, or null
+     * @param results receives the result of each test case that finished, in order
+     */
+    private void runConnection(SocketChannel channel, List<TestCase> tests, List<PyCallResult> expected,
+                               List<PyCallResult> results) {
+        connections.add(channel);
+        AtomicBoolean timedOut = new AtomicBoolean();
+        boolean broken = false;
+        boolean overLimit = false;
+        Runnable kill = () -> {
+            timedOut.set(true);
+            closeQuietly(channel);
+        };
+        long wait = testTimeout.plus(GRACE).toNanos();
+        try (DataOutputStream requests = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+             FrameReader responses = frameReader(channel)) {
+            while (results.size() < tests.size()) {
+                int test = results.size();
+                ScheduledFuture<?> deadline = WATCHDOG.schedule(kill, wait, TimeUnit.NANOSECONDS);
+                PyCallResult result;
+                try {
+                    writeRequest(requests, requestPayload(tests.get(test)));
+                    requests.flush();
+                    result = responses.read(expectedAt(expected, test));
+                } finally {
+                    deadline.cancel(false);
+                }
+                if (timedOut.get()) {
+                    break;
+                }
+                results.add(result);
+            }
+        } catch (OutputLimitException e) {
+            // closing the connection stops the handler, which has the rest of the output
+            results.add(overLimit(e));
+            overLimit = true;
+        } catch (IOException e) {
+            // the connection broke, or was closed by the watchdog or by close()
+            broken = true;
+        } finally {
+            connections.remove(channel);
+            closeQuietly(channel);
+        }
+        if (timedOut.get() && !overLimit) {
+            results.add(new PyCallResult(PyCallResult.Status.TIMEOUT,
+                    "no response after " + testTimeout.plus(GRACE).toMillis() + " ms"));
+        } else if (broken && !closed && results.size() < tests.size()) {
+            // don't retry a test case that may have broken its handler
+            results.add(new PyCallResult(PyCallResult.Status.CRASHED, "connection lost"));
+        }
+    }
+
+    /**
+     * @return a new connection to the server
+     * @throws IOException if the server does not accept it
+     */
+    private SocketChannel connect() throws IOException {
+        SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            channel.connect(UnixDomainSocketAddress.of(socketPath));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return channel;
+    }
+
+    /**
+     * the method starts the server again, unless another thread already did.
+     *
+     * @return true if a server is running, false if it cannot be started
+     */
+    private synchronized boolean restart() {
+        if (closed) {
+            return false;
+        }
+        if (server != null && server.isAlive()) {
+            return true;
+        }
+        try {
+            startServer();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * the method starts the server on a fresh socket and waits for it to report that it is ready.
+     *
+     * @throws IOException if the server cannot be started or exits before it is ready
+     */
+    private synchronized void startServer() throws IOException {
+        Files.deleteIfExists(socketPath);
+        List<String> command = new ArrayList<>(List.of(python, serverScript.toString(), socketPath.toString(),
+                submission.toString(), funcName, Double.toString(testTimeout.toNanos() / 1e9)));
+        command.addAll(limitArgs);
+        Process process = new ProcessBuilder(command)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        // close() kills the server it sees without taking the lock, so check closed after publishing it
+        server = process;
+        if (closed) {
+            destroyTree(process);
+            throw new IOException("the runner is closed");
+        }
+        // the import runs before "ready"; don't let a submission that hangs on import block us forever
+        ScheduledFuture<?> deadline = WATCHDOG.schedule(() -> destroyTree(process), testTimeout.plus(GRACE).toNanos(), TimeUnit.NANOSECONDS);
+        try {
+            BufferedReader ready = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+            if (!"ready".equals(ready.readLine())) {
+                process.destroyForcibly();
+                throw new IOException("the fork server did not start");
+            }
+        } finally {
+            deadline.cancel(false);
+        }
+    }
+
+    /**
+     * @param channel a connection to close, ignoring errors
+     */
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // already closed
+        }
+    }
+}
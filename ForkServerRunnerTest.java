@@ -0,0 +1,129 @@
+package test.rice.test;
+
+import main.rice.test.ForkServerRunner;
+import main.rice.test.PyCallResult;
+import main.rice.test.TestCase;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test cases for the ForkServerRunner class, which run pyforkserver.py with python3 on small submissions
+ * (see PyWorkerPoolTest).
+ */
+class ForkServerRunnerTest {
+
+    /**
+     * The fork server script, next to pyworker.py.
+     */
+    static final Path FORK_SERVER = Path.of("pyforkserver.py");
+
+    /**
+     * Tests that returning, raising, hanging and dying are told apart, and that every call starts from the
+     * freshly imported module.
+     */
+    @Test
+    void testOutcomes(@TempDir Path dir) throws IOException, InterruptedException {
+        try (ForkServerRunner runner = new ForkServerRunner("python3", FORK_SERVER,
+                PyWorkerPoolTest.submission(dir, PyWorkerPoolTest.MODES), "f", Duration.ofSeconds(1))) {
+            List<PyCallResult> results = runner.runAll(List.of(PyWorkerPoolTest.test("ok"),
+                    PyWorkerPoolTest.test("raise"), PyWorkerPoolTest.test("hang"), PyWorkerPoolTest.test("exit"),
+                    PyWorkerPoolTest.test("calls"), PyWorkerPoolTest.test("calls")));
+
+            assertEquals(PyCallResult.returned("'ok'"), results.get(0));
+            assertEquals(new PyCallResult(PyCallResult.Status.RAISED, "ValueError: bad"), results.get(1));
+            assertEquals(PyCallResult.Status.TIMEOUT, results.get(2).status());
+            assertEquals(PyCallResult.Status.CRASHED, results.get(3).status());
+            assertEquals(PyCallResult.returned("1"), results.get(4));
+            assertEquals(PyCallResult.returned("1"), results.get(5));
+        }
+    }
+
+    /**
+     * Tests that a call that ignores SIGALRM is still killed, shortly after its timeout, and reported as
+     * a timeout.
+     */
+    @Test
+    void testIgnoredAlarm(@TempDir Path dir) throws IOException, InterruptedException {
+        String source = String.join("\n",
+                "import signal, time",
+                "def f(mode):",
+                "    signal.signal(signal.SIGALRM, signal.SIG_IGN)",
+                "    time.sleep(100)",
+                "");
+        try (ForkServerRunner runner = new ForkServerRunner("python3", FORK_SERVER,
+                PyWorkerPoolTest.submission(dir, source), "f", Duration.ofSeconds(1))) {
+            long start = System.nanoTime();
+            PyCallResult result = runner.runAll(List.of(PyWorkerPoolTest.test("ok"))).get(0);
+
+            assertEquals(new PyCallResult(PyCallResult.Status.TIMEOUT, "timed out after 1 s"), result);
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+        }
+    }
+
+    /**
+     * Tests that closing the runner ends a call in progress at once.
+     */
+    @Test
+    void testCloseWhileBusy(@TempDir Path dir) throws Exception {
+        ForkServerRunner runner = new ForkServerRunner("python3", FORK_SERVER,
+                PyWorkerPoolTest.submission(dir, PyWorkerPoolTest.MODES), "f", Duration.ofSeconds(60));
+        List<TestCase> tests = List.of(PyWorkerPoolTest.test("hang"));
+        CompletableFuture<List<PyCallResult>> hung = CompletableFuture.supplyAsync(() -> {
+            try {
+                return runner.runAll(tests);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(500);
+        runner.close();
+
+        assertEquals(PyCallResult.Status.CRASHED, hung.get(10, TimeUnit.SECONDS).get(0).status());
+    }
+
+    /**
+     * Tests that closing the runner does not wait for a server that is being restarted, even when the
+     * import hangs.
+     */
+    @Test
+    void testCloseWhileRestarting(@TempDir Path dir) throws Exception {
+        // the first import leaves a marker; the import of the restarted server sees it and hangs.
+        // f kills the process group of its handler, which is the server's
+        String source = String.join("\n",
+                "import os, signal, time",
+                "marker = os.path.join(os.path.dirname(os.path.abspath(__file__)), 'imported')",
+                "if os.path.exists(marker):",
+                "    time.sleep(100)",
+                "open(marker, 'w').close()",
+                "def f(mode):",
+                "    os.killpg(os.getpgid(os.getppid()), signal.SIGKILL)",
+                "");
+        ForkServerRunner runner = new ForkServerRunner("python3", FORK_SERVER,
+                PyWorkerPoolTest.submission(dir, source), "f", Duration.ofSeconds(60));
+        List<TestCase> tests = List.of(PyWorkerPoolTest.test("kill"), PyWorkerPoolTest.test("ok"));
+        CompletableFuture<List<PyCallResult>> restarting = CompletableFuture.supplyAsync(() -> {
+            try {
+                return runner.runAll(tests);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(1500);
+        long start = System.nanoTime();
+        runner.close();
+
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        List<PyCallResult> results = restarting.get(10, TimeUnit.SECONDS);
+        assertEquals(PyCallResult.Status.CRASHED, results.get(0).status());
+        assertEquals(new PyCallResult(PyCallResult.Status.CRASHED, "runner closed"), results.get(1));
+    }
+}
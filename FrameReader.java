@@ -0,0 +1,163 @@
+package main.rice.test;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * FrameReader reads the response frames of pyworker.py and pyforkserver.py from a channel (the stdout of
+ * a process, or a socket) through one pooled direct buffer, so memory use per process is one buffer no
+ * matter how much the process sends.
+ * A response longer than the output limit is refused before any of it is read (OutputLimitException),
+ * and the caller kills the process. When the expected outcome is known, the output is compared with it as
+ * it arrives and is never built as a String: a match returns the expected outcome itself, and a mismatch
+ * skips the rest of the frame as soon as the first differing byte is seen.
+ */
+public class FrameReader implements Closeable {
+    private final ReadableByteChannel channel;
+    private final ByteBufferPool pool;
+    private final long maxOutputBytes;
+    /**
+     * The bytes read but not consumed yet, between position and limit.
+     */
+    private ByteBuffer buffer;
+
+    /**
+     * It's a constructor set for FrameReader
+     * @param channel: where the frames come from
+     * @param pool: lends the buffer, which close() gives back
+     * @param maxOutputBytes: the longest output to accept
+     */
+    public FrameReader(ReadableByteChannel channel, ByteBufferPool pool, long maxOutputBytes) {
+        this.channel = channel;
+        this.pool = pool;
+        this.maxOutputBytes = maxOutputBytes;
+        this.buffer = pool.acquire().flip();
+    }
+
+    /**
+     * Reads one response.
+     *
+     * @param expected the outcome to compare the response with, or null to read the output as it is
+     * @return the outcome: expected itself if the response matches it; otherwise, if expected was given,
+     *     an outcome that describes where the output differs instead of holding it
+     * @throws OutputLimitException if the output is longer than the limit
+     * @throws IOException if the channel ends or the frame is malformed
+     */
+    public PyCallResult read(PyCallResult expected) throws IOException {
+        fill(5);
+        PyCallResult.Status status = statusOf(buffer.get() & 0xFF);
+        long length = Integer.toUnsignedLong(buffer.getInt());
+        if (length > maxOutputBytes) {
+            throw new OutputLimitException(length, maxOutputBytes);
+        }
+        if (expected == null) {
+            byte[] output = new byte[(int) length];
+            for (int done = 0; done < output.length; ) {
+                int chunk = fill(Math.min(output.length - done, buffer.capacity()));
+                buffer.get(output, done, chunk);
+                done += chunk;
+            }
+            return new PyCallResult(status, new String(output, StandardCharsets.UTF_8));
+        }
+
+        byte[] want = expected.output().getBytes(StandardCharsets.UTF_8);
+        if (status != expected.status() || want.length != length) {
+            skip(length);
+            return mismatch(status, expected, "the output has " + length + " bytes, not " + want.length);
+        }
+        for (int done = 0; done < want.length; ) {
+            int chunk = fill(Math.min(want.length - done, buffer.capacity()));
+            int differs = buffer.slice(buffer.position(), chunk).mismatch(ByteBuffer.wrap(want, done, chunk));
+            if (differs >= 0) {
+                buffer.position(buffer.position() + chunk);
+                skip(want.length - done - chunk);
+                return mismatch(status, expected, "the output differs at byte " + (done + differs));
+            }
+            buffer.position(buffer.position() + chunk);
+            done += chunk;
+        }
+        return expected;
+    }
+
+    /**
+     * Gives the buffer back to the pool; the channel is the caller's to close.
+     */
+    @Override
+    public void close() {
+        if (buffer != null) {
+            pool.release(buffer);
+            buffer = null;
+        }
+    }
+
+    /**
+     * the method makes at least min(wanted, capacity) unread bytes available, reading from the channel as
+     * needed.
+     *
+     * @param wanted the number of bytes the caller wants
+     * @return the number of bytes available, at most wanted
+     * @throws IOException if the channel ends first
+     */
+    private int fill(int wanted) throws IOException {
+        int needed = Math.min(wanted, buffer.capacity());
+        if (buffer.remaining() < needed) {
+            buffer.compact();
+            while (buffer.position() < needed) {
+                if (channel.read(buffer) < 0) {
+                    buffer.flip();
+                    throw new EOFException("the process closed its output");
+                }
+            }
+            buffer.flip();
+        }
+        return Math.min(wanted, buffer.remaining());
+    }
+
+    /**
+     * @param length the number of bytes to read and throw away
+     * @throws IOException if the channel ends first
+     */
+    private void skip(long length) throws IOException {
+        while (length > 0) {
+            int chunk = fill((int) Math.min(length, buffer.capacity()));
+            buffer.position(buffer.position() + chunk);
+            length -= chunk;
+        }
+    }
+
+    /**
+     * @param status the status of the response
+     * @param expected the expected outcome
+     * @param reason how the response differs
+     * @return an outcome that is not equal to expected
+     */
+    private static PyCallResult mismatch(PyCallResult.Status status, PyCallResult expected, String reason) {
+        String output = "<" + reason + ">";
+        if (status == expected.status() && output.equals(expected.output())) {
+            output += "!";
+        }
+        return new PyCallResult(status, output);
+    }
+
+    /**
+     * the method decodes the status byte of a response: pyworker.py sends 0 = returned and 1 = raised, and
+     * both scripts send 2 = timed out (out of CPU time or, for pyforkserver.py, past the timeout) and
+     * 3 = crashed.
+     *
+     * @param status the status byte
+     * @return the status
+     * @throws IOException if the byte is not a status
+     */
+    private static PyCallResult.Status statusOf(int status) throws IOException {
+        return switch (status) {
+            case 0 -> PyCallResult.Status.RETURNED;
+            case 1 -> PyCallResult.Status.RAISED;
+            case 2 -> PyCallResult.Status.TIMEOUT;
+            case 3 -> PyCallResult.Status.CRASHED;
+            default -> throw new IOException("bad status " + status);
+        };
+    }
+}
@@ -0,0 +1,106 @@
+package test.rice.test;
+
+import main.rice.test.ByteBufferPool;
+import main.rice.test.FrameReader;
+import main.rice.test.OutputLimitException;
+import main.rice.test.PyCallResult;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test cases for the FrameReader class.
+ */
+class FrameReaderTest {
+
+    /**
+     * A pool of tiny buffers, so outputs span many reads.
+     */
+    private static final ByteBufferPool POOL = new ByteBufferPool(8, 4);
+
+    /**
+     * Tests reading frames back to back without an expected outcome.
+     */
+    @Test
+    void testRead() throws IOException {
+        try (FrameReader reader = reader(1000, frame(0, "[1, 2, 3]"), frame(1, "ValueError: x"), frame(2, ""))) {
+            assertEquals(PyCallResult.returned("[1, 2, 3]"), reader.read(null));
+            assertEquals(new PyCallResult(PyCallResult.Status.RAISED, "ValueError: x"), reader.read(null));
+            assertEquals(new PyCallResult(PyCallResult.Status.TIMEOUT, ""), reader.read(null));
+            assertThrows(EOFException.class, () -> reader.read(null));
+        }
+    }
+
+    /**
+     * Tests that a matching output returns the expected outcome itself, and that a mismatch is reported
+     * without losing the frames after it.
+     */
+    @Test
+    void testCompare() throws IOException {
+        String longOutput = "'" + "a".repeat(100) + "'";
+        PyCallResult expected = PyCallResult.returned(longOutput);
+        try (FrameReader reader = reader(1000, frame(0, longOutput), frame(0, longOutput.replace("a'", "b'")),
+                frame(0, "short"), frame(1, longOutput), frame(0, "'é'"))) {
+            assertSame(expected, reader.read(expected));
+
+            PyCallResult differs = reader.read(expected);
+            assertNotEquals(expected, differs);
+            assertEquals("<the output differs at byte 100>", differs.output());
+
+            assertNotEquals(expected, reader.read(expected));
+            assertEquals(PyCallResult.Status.RAISED, reader.read(expected).status());
+            PyCallResult accent = PyCallResult.returned("'é'");
+            assertSame(accent, reader.read(accent));
+        }
+    }
+
+    /**
+     * Tests that an output over the limit is refused before it is read.
+     */
+    @Test
+    void testLimit() throws IOException {
+        try (FrameReader reader = reader(10, frame(0, "12345678901"))) {
+            assertThrows(OutputLimitException.class, () -> reader.read(null));
+        }
+    }
+
+    /**
+     * Builds a reader over some frames.
+     *
+     * @param limit the output limit
+     * @param frames the frames
+     * @return the reader
+     */
+    private static FrameReader reader(long limit, byte[]... frames) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (byte[] frame : frames) {
+            bytes.write(frame);
+        }
+        return new FrameReader(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())), POOL, limit);
+    }
+
+    /**
+     * Builds a response frame.
+     *
+     * @param status the status byte
+     * @param output the output
+     * @return the frame
+     */
+    private static byte[] frame(int status, String output) throws IOException {
+        byte[] text = output.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(status);
+        out.writeInt(text.length);
+        out.write(text);
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,384 @@
+package main.rice.concisegen;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import main.rice.test.*;
+
+/**
+ * IncrementalCover keeps a concise set up to date while new submissions are graded and new test cases are
+ * added, instead of re-running setCover over the whole TestResults every time. It holds the coverage of
+ * every test case as a bitset over the files seen so far, the current cover, and how many cover test
+ * cases catch each file:
+ * 1) repair() adds test cases (greedily) only for the buggy files that the cover does not catch yet,
+ * 2) prune() drops cover test cases whose files are all caught by other cover test cases; it runs on its
+ *    own every pruneEvery repairs.
+ * The state can be saved to and loaded from a file between grading runs; the file starts with a magic
+ * number and a format version, which load() checks.
+ */
+public class IncrementalCover {
+    /**
+     * The first int of a saved state ("INCV"), followed by VERSION.
+     */
+    private static final int MAGIC = 0x494E4356;
+    private static final int VERSION = 1;
+
+    private final int pruneEvery;
+    private int repairsSincePrune;
+
+    /**
+     * The file index of each column.
+     */
+    private final List<Integer> fileIds = new ArrayList<>();
+    /**
+     * The column of each file index.
+     */
+    private final Map<Integer, Integer> columns = new HashMap<>();
+    /**
+     * The columns of the buggy files (files that failed at least one test case).
+     */
+    private final BitSet wrong = new BitSet();
+    /**
+     * The columns caught by each test case.
+     */
+    private final List<BitSet> rows = new ArrayList<>();
+    /**
+     * The test cases of the cover, in the order they were added.
+     */
+    private final LinkedHashSet<Integer> cover = new LinkedHashSet<>();
+    /**
+     * The number of cover test cases catching each column.
+     */
+    private int[] coverCounts = new int[0];
+
+    /**
+     * It's a constructor set for IncrementalCover; starts with no test cases and no files.
+     * @param pruneEvery: prune() runs on its own after this many calls to repair(); 0 to never prune on its own
+     */
+    public IncrementalCover(int pruneEvery) {
+        this.pruneEvery = pruneEvery;
+    }
+
+    /**
+     * Builds the incremental state of existing test results, with the cover that setCover would compute.
+     * @param results the test results
+     * @param pruneEvery prune() runs on its own after this many calls to repair(); 0 to never prune on its own
+     * @return the incremental state
+     */
+    public static IncrementalCover of(TestResults results, int pruneEvery) {
+        IncrementalCover incremental = new IncrementalCover(pruneEvery);
+        for (Set<Integer> files : results.getCaseToFiles()) {
+            incremental.addTest(files);
+        }
+        for (int fileId : results.getWrongSet()) {
+            incremental.wrong.set(incremental.column(fileId));
+        }
+        CoverKernel kernel = CoverKernel.of(CoverMatrix.of(results));
+        for (int test : kernel.lift(ConciseSetGenerator.greedyCover(kernel.matrix()))) {
+            incremental.addToCover(test);
+        }
+        return incremental;
+    }
+
+    /**
+     * Records a new test case.
+     * @param caughtFiles the files that fail the new test case; they join the buggy files
+     * @return the index of the new test case
+     */
+    public int addTest(Set<Integer> caughtFiles) {
+        BitSet row = new BitSet();
+        for (int fileId : caughtFiles) {
+            int col = column(fileId);
+            row.set(col);
+            wrong.set(col);
+        }
+        rows.add(row);
+        return rows.size() - 1;
+    }
+
+    /**
+     * Records the results of a newly graded submission (or new results of a known one).
+     * @param fileId the index of the submission
+     * @param failedTests the indices of the test cases it fails; it is buggy if there is any
+     */
+    public void addSubmission(int fileId, Set<Integer> failedTests) {
+        int col = column(fileId);
+        for (int test : failedTests) {
+            if (!rows.get(test).get(col)) {
+                rows.get(test).set(col);
+                if (cover.contains(test)) {
+                    coverCounts[col]++;
+                }
+            }
+        }
+        if (!failedTests.isEmpty()) {
+            wrong.set(col);
+        }
+    }
+
+    /**
+     * Adds test cases to the cover until every buggy file that some test case catches is caught by the
+     * cover, picking greedily (most newly caught files first, lowest index among ties) among the files
+     * that are not caught yet. Only those files are looked at, so a repair after a small batch is cheap.
+     * @return the test cases added to the cover, in the order they were added
+     */
+    public List<Integer> repair() {
+        BitSet uncovered = uncovered();
+        List<Integer> added = new ArrayList<>();
+        if (!uncovered.isEmpty()) {
+            PriorityQueue<Long> queue = new PriorityQueue<>(Comparator.reverseOrder());
+            for (int test = 0; test < rows.size(); test++) {
+                int gain = gain(test, uncovered);
+                if (gain > 0) {
+                    queue.add(((long) gain << 32) | (Integer.MAX_VALUE - test));
+                }
+            }
+            // lazy greedy, as in ConciseSetGenerator.greedyCover
+            while (!uncovered.isEmpty() && !queue.isEmpty()) {
+                int test = Integer.MAX_VALUE - (int) (long) queue.poll();
+                int gain = gain(test, uncovered);
+                if (gain == 0) {
+                    continue;
+                }
+                long key = ((long) gain << 32) | (Integer.MAX_VALUE - test);
+                if (queue.isEmpty() || key >= queue.peek()) {
+                    addToCover(test);
+                    uncovered.andNot(rows.get(test));
+                    added.add(test);
+                } else {
+                    queue.add(key);
+                }
+            }
+        }
+
+        if (pruneEvery > 0 && ++repairsSincePrune >= pruneEvery) {
+            prune();
+        }
+        return added;
+    }
+
+    /**
+     * Drops the cover test cases that are redundant: every buggy file they catch is also caught by another
+     * cover test case. The oldest test cases are checked first, since later ones were added for the files
+     * the earlier ones missed.
+     * @return the test cases removed from the cover
+     */
+    public List<Integer> prune() {
+        repairsSincePrune = 0;
+        List<Integer> removed = new ArrayList<>();
+        for (int test : new ArrayList<>(cover)) {
+            BitSet row = rows.get(test);
+            boolean redundant = true;
+            for (int col = row.nextSetBit(0); col >= 0 && redundant; col = row.nextSetBit(col + 1)) {
+                redundant = !wrong.get(col) || coverCounts[col] >= 2;
+            }
+            if (redundant) {
+                cover.remove(test);
+                for (int col = row.nextSetBit(0); col >= 0; col = row.nextSetBit(col + 1)) {
+                    coverCounts[col]--;
+                }
+                removed.add(test);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * @return the indices of the test cases of the current cover, in the order they were added
+     */
+    public List<Integer> cover() {
+        return new ArrayList<>(cover);
+    }
+
+    /**
+     * @return the buggy files that no test case of the current cover catches
+     */
+    public Set<Integer> uncoveredFiles() {
+        Set<Integer> files = new TreeSet<>();
+        BitSet uncovered = uncovered();
+        for (int col = uncovered.nextSetBit(0); col >= 0; col = uncovered.nextSetBit(col + 1)) {
+            files.add(fileIds.get(col));
+        }
+        return files;
+    }
+
+    /**
+     * Saves the state to a file.
+     * @param path the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void save(Path path) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(pruneEvery);
+            out.writeInt(repairsSincePrune);
+            out.writeInt(fileIds.size());
+            for (int fileId : fileIds) {
+                out.writeInt(fileId);
+            }
+            writeBits(out, wrong);
+            out.writeInt(rows.size());
+            for (BitSet row : rows) {
+                writeBits(out, row);
+            }
+            out.writeInt(cover.size());
+            for (int test : cover) {
+                out.writeInt(test);
+            }
+        }
+    }
+
+    /**
+     * Loads a state saved by save().
+     * @param path the file to read
+     * @return the state
+     * @throws IOException if the file cannot be read or is not a saved state
+     */
+    public static IncrementalCover load(Path path) throws IOException {
+        // reading from memory lets every count be checked against the bytes left before anything is allocated
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(path)))) {
+            if (in.available() < 8 || in.readInt() != MAGIC) {
+                throw new IOException("not a saved incremental cover: " + path);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("unsupported incremental cover version " + version + ": " + path);
+            }
+            IncrementalCover incremental = new IncrementalCover(in.readInt());
+            incremental.repairsSincePrune = in.readInt();
+            int numFiles = checkCount(in.readInt(), in.available() / Integer.BYTES, path);
+            for (int col = 0; col < numFiles; col++) {
+                incremental.column(in.readInt());
+            }
+            if (incremental.fileIds.size() != numFiles) {
+                throw new IOException("corrupt incremental cover: " + path);
+            }
+            // every column a bitset mentions must belong to a file, which readBits checks
+            incremental.wrong.or(readBits(in, numFiles, path));
+            int numTests = checkCount(in.readInt(), in.available() / Integer.BYTES, path);
+            for (int test = 0; test < numTests; test++) {
+                incremental.rows.add(readBits(in, numFiles, path));
+            }
+            int coverSize = checkCount(in.readInt(), in.available() / Integer.BYTES, path);
+            for (int i = 0; i < coverSize; i++) {
+                int test = in.readInt();
+                if (test < 0 || test >= numTests) {
+                    throw new IOException("corrupt incremental cover: " + path);
+                }
+                incremental.addToCover(test);
+            }
+            if (in.read() >= 0) {
+                throw new IOException("corrupt incremental cover: " + path);
+            }
+            return incremental;
+        }
+    }
+
+    /**
+     * Adds a test case to the cover and counts the files it catches.
+     * @param test the index of the test case
+     */
+    private void addToCover(int test) {
+        if (cover.add(test)) {
+            BitSet row = rows.get(test);
+            for (int col = row.nextSetBit(0); col >= 0; col = row.nextSetBit(col + 1)) {
+                coverCounts[col]++;
+            }
+        }
+    }
+
+    /**
+     * @return the columns of the buggy files that no cover test case catches
+     */
+    private BitSet uncovered() {
+        BitSet uncovered = (BitSet) wrong.clone();
+        for (int col = uncovered.nextSetBit(0); col >= 0; col = uncovered.nextSetBit(col + 1)) {
+            if (coverCounts[col] > 0) {
+                uncovered.clear(col);
+            }
+        }
+        return uncovered;
+    }
+
+    /**
+     * @param test the index of a test case
+     * @param uncovered the uncovered columns
+     * @return the number of uncovered columns the test case catches
+     */
+    private int gain(int test, BitSet uncovered) {
+        BitSet row = rows.get(test);
+        int gain = 0;
+        // the uncovered set is usually the small one, so walk it rather than the row
+        for (int col = uncovered.nextSetBit(0); col >= 0; col = uncovered.nextSetBit(col + 1)) {
+            if (row.get(col)) {
+                gain++;
+            }
+        }
+        return gain;
+    }
+
+    /**
+     * Looks up the column of a file, adding a new column if the file is new.
+     * @param fileId the index of the file
+     * @return its column
+     */
+    private int column(int fileId) {
+        Integer col = columns.get(fileId);
+        if (col == null) {
+            col = fileIds.size();
+            columns.put(fileId, col);
+            fileIds.add(fileId);
+            if (col >= coverCounts.length) {
+                coverCounts = Arrays.copyOf(coverCounts, Math.max(16, coverCounts.length * 2));
+            }
+        }
+        return col;
+    }
+
+    /**
+     * @param out the stream to write to
+     * @param bits the bitset to write, as a length-prefixed array of long words
+     * @throws IOException if writing fails
+     */
+    private static void writeBits(DataOutputStream out, BitSet bits) throws IOException {
+        long[] words = bits.toLongArray();
+        out.writeInt(words.length);
+        for (long word : words) {
+            out.writeLong(word);
+        }
+    }
+
+    /**
+     * @param in the stream to read from
+     * @param numFiles the number of columns
+     * @param path the file being read, for the error message
+     * @return the bitset written by writeBits
+     * @throws IOException if reading fails, or the length or a bit is past the columns
+     */
+    private static BitSet readBits(DataInputStream in, int numFiles, Path path) throws IOException {
+        long[] words = new long[checkCount(in.readInt(), (numFiles + Long.SIZE - 1) / Long.SIZE, path)];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = in.readLong();
+        }
+        BitSet bits = BitSet.valueOf(words);
+        if (bits.length() > numFiles) {
+            throw new IOException("corrupt incremental cover: " + path);
+        }
+        return bits;
+    }
+
+    /**
+     * @param count a count read from a saved state
+     * @param max the largest count that can be right
+     * @param path the file being read, for the error message
+     * @return the count
+     * @throws IOException if the count is negative or above max
+     */
+    private static int checkCount(int count, int max, Path path) throws IOException {
+        if (count < 0 || count > max) {
+            throw new IOException("corrupt incremental cover: " + path);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,133 @@
+package test.rice.concisegen;
+
+import main.rice.concisegen.IncrementalCover;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test cases for the IncrementalCover class.
+ */
+class IncrementalCoverTest {
+
+    /**
+     * Tests that repair only adds test cases for newly uncovered files, and that prune drops the cover
+     * test cases made redundant by later ones.
+     */
+    @Test
+    void testRepairAndPrune() {
+        IncrementalCover cover = new IncrementalCover(0);
+        cover.addTest(Set.of(1, 2));
+        cover.addTest(Set.of(3));
+        assertEquals(List.of(0, 1), cover.repair());
+
+        // file 4 is already caught by a cover test case, so nothing is added
+        cover.addSubmission(4, Set.of(0));
+        assertEquals(List.of(), cover.repair());
+
+        // file 6 is new and only test case 2 catches it; with it, test case 1 is redundant
+        cover.addTest(Set.of(1, 2, 3, 6));
+        assertEquals(Set.of(6), cover.uncoveredFiles());
+        assertEquals(List.of(2), cover.repair());
+        assertEquals(List.of(1), cover.prune());
+        assertEquals(List.of(0, 2), cover.cover());
+        assertEquals(Set.of(), cover.uncoveredFiles());
+    }
+
+    /**
+     * Tests that a saved state loads back as it was, and that files that are not saved states, or are
+     * cut short, are rejected.
+     */
+    @Test
+    void testSaveAndLoad(@TempDir Path dir) throws IOException {
+        IncrementalCover cover = new IncrementalCover(3);
+        cover.addTest(Set.of(1, 2));
+        cover.addTest(Set.of(2, 5));
+        cover.repair();
+        Path saved = dir.resolve("cover.bin");
+        cover.save(saved);
+
+        IncrementalCover loaded = IncrementalCover.load(saved);
+        assertEquals(cover.cover(), loaded.cover());
+        assertEquals(cover.uncoveredFiles(), loaded.uncoveredFiles());
+
+        Path ints = dir.resolve("ints.bin");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(ints))) {
+            for (int i = 0; i < 16; i++) {
+                out.writeInt(i);
+            }
+        }
+        assertThrows(IOException.class, () -> IncrementalCover.load(ints));
+
+        byte[] bytes = Files.readAllBytes(saved);
+        Path truncated = Files.write(dir.resolve("truncated.bin"), Arrays.copyOf(bytes, bytes.length - 4));
+        assertThrows(IOException.class, () -> IncrementalCover.load(truncated));
+        bytes[7]++;
+        Path newer = Files.write(dir.resolve("newer.bin"), bytes);
+        assertThrows(IOException.class, () -> IncrementalCover.load(newer));
+    }
+
+    /**
+     * Tests that corrupt counts and bits are rejected with an IOException, before anything is allocated
+     * for them: a row past the files, a word count past the files, a test count past the end of the file,
+     * and a file listed twice.
+     */
+    @Test
+    void testLoadCorrupt(@TempDir Path dir) throws IOException {
+        // two files, no buggy ones, one test case catching column 40
+        Path rowPastFiles = write(dir.resolve("row.bin"), 2, 10, 11, 0, 1, 1, 1L << 40, 0);
+        assertThrows(IOException.class, () -> IncrementalCover.load(rowPastFiles));
+        // the cover holds that test case, which used to count its column before the rows were checked
+        Path coveredPastFiles = write(dir.resolve("covered.bin"), 2, 10, 11, 0, 1, 1, 1L << 40, 1, 0);
+        assertThrows(IOException.class, () -> IncrementalCover.load(coveredPastFiles));
+        Path manyWords = write(dir.resolve("words.bin"), 2, 10, 11, Integer.MAX_VALUE);
+        assertThrows(IOException.class, () -> IncrementalCover.load(manyWords));
+        Path manyTests = write(dir.resolve("tests.bin"), 2, 10, 11, 0, Integer.MAX_VALUE);
+        assertThrows(IOException.class, () -> IncrementalCover.load(manyTests));
+        Path manyFiles = write(dir.resolve("files.bin"), Integer.MAX_VALUE);
+        assertThrows(IOException.class, () -> IncrementalCover.load(manyFiles));
+        Path sameFile = write(dir.resolve("same.bin"), 2, 10, 10, 1, 3L, 0, 0);
+        assertThrows(IOException.class, () -> IncrementalCover.load(sameFile));
+
+        Path valid = write(dir.resolve("valid.bin"), 2, 10, 11, 1, 3L, 1, 1, 2L, 1, 0);
+        IncrementalCover loaded = IncrementalCover.load(valid);
+        assertEquals(List.of(0), loaded.cover());
+        assertEquals(Set.of(10), loaded.uncoveredFiles());
+    }
+
+    /**
+     * Writes a saved state with pruneEvery 0, from the number of files on.
+     *
+     * @param path the file to write
+     * @param fields the fields after repairsSincePrune: each Integer is written as an int, each Long as a
+     *     long
+     * @return the path
+     * @throws IOException if the file cannot be written
+     */
+    private static Path write(Path path, Number... fields) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(path))) {
+            out.writeInt(0x494E4356);
+            out.writeInt(1);
+            out.writeInt(0);
+            out.writeInt(0);
+            for (Number field : fields) {
+                if (field instanceof Long) {
+                    out.writeLong(field.longValue());
+                } else {
+                    out.writeInt(field.intValue());
+                }
+            }
+        }
+        return path;
+    }
+}
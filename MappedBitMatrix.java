@@ -0,0 +1,196 @@
+package main.rice.test;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * MappedBitMatrix stores the pass/fail matrix as a dense row-major bitmap in a memory-mapped file, so a
+ * matrix larger than the heap is paged in and out by the operating system. The file is a 16-byte header
+ * (magic, number of test cases, number of files, unused) followed by one row of long words per test case.
+ * Files over 2GB are mapped in several segments of whole rows.
+ */
+public class MappedBitMatrix extends ABitMatrix {
+    private static final int MAGIC = 0x4249544D;
+    private static final int HEADER_BYTES = 16;
+
+    private final int numCases;
+    private final int numFiles;
+    private final int wordsPerRow;
+    private final int rowsPerSegment;
+    private final MappedByteBuffer[] buffers;
+    private final LongBuffer[] segments;
+
+    /**
+     * It's a constructor set for MappedBitMatrix
+     * @param channel: the open file; it can be closed once the constructor returns
+     * @param mode: how to map the file
+     * @param numCases: the number of test cases (rows)
+     * @param numFiles: the number of files (columns)
+     * @throws IOException if the file cannot be mapped
+     */
+    private MappedBitMatrix(FileChannel channel, FileChannel.MapMode mode, int numCases, int numFiles)
+            throws IOException {
+        this.numCases = numCases;
+        this.numFiles = numFiles;
+        this.wordsPerRow = (numFiles + 63) >>> 6;
+        long rowBytes = 8L * Math.max(1, wordsPerRow);
+        this.rowsPerSegment = (int) Math.max(1, Integer.MAX_VALUE / rowBytes);
+
+        int numSegments = numCases == 0 ? 0 : (numCases - 1) / rowsPerSegment + 1;
+        this.buffers = new MappedByteBuffer[numSegments];
+        this.segments = new LongBuffer[numSegments];
+        for (int seg = 0; seg < numSegments; seg++) {
+            long firstRow = (long) seg * rowsPerSegment;
+            long segRows = Math.min(rowsPerSegment, numCases - firstRow);
+            buffers[seg] = channel.map(mode, HEADER_BYTES + firstRow * 8 * wordsPerRow, segRows * 8 * wordsPerRow);
+            segments[seg] = buffers[seg].asLongBuffer();
+        }
+    }
+
+    /**
+     * Creates (or overwrites) a matrix file with every bit cleared, mapped for writing.
+     * @param path the file to create
+     * @param numCases the number of test cases
+     * @param numFiles the number of files
+     * @return the writable matrix
+     * @throws IOException if the file cannot be created or mapped
+     */
+    public static MappedBitMatrix create(Path path, int numCases, int numFiles) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(numCases).putInt(numFiles).putInt(0).flip();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            // mapping past the end of the file grows it, with the new bytes zeroed
+            return new MappedBitMatrix(channel, FileChannel.MapMode.READ_WRITE, numCases, numFiles);
+        }
+    }
+
+    /**
+     * Opens a matrix file written by create(), read-only.
+     * @param path the file to open
+     * @return the read-only matrix
+     * @throws IOException if the file cannot be read or is not a matrix file
+     */
+    public static MappedBitMatrix open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // keep reading until the header is full or the file ends
+            }
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+                throw new IOException("not a bit matrix file: " + path);
+            }
+            int numCases = header.getInt();
+            int numFiles = header.getInt();
+            long expected = HEADER_BYTES + 8L * ((numFiles + 63) >>> 6) * numCases;
+            if (numCases < 0 || numFiles < 0 || channel.size() < expected) {
+                throw new IOException("truncated bit matrix file: " + path);
+            }
+            return new MappedBitMatrix(channel, FileChannel.MapMode.READ_ONLY, numCases, numFiles);
+        }
+    }
+
+    /**
+     * Marks a file as failing a test case. Only valid on a matrix returned by create().
+     * @param test the index of the test case
+     * @param file the index of the file
+     */
+    public void set(int test, int file) {
+        Objects.checkIndex(file, numFiles);
+        LongBuffer segment = segment(test);
+        int index = wordIndex(test, file >>> 6);
+        segment.put(index, segment.get(index) | (1L << file));
+    }
+
+    /**
+     * Marks the files failing a test case. Only valid on a matrix returned by create().
+     * @param test the index of the test case
+     * @param files the indices of the files
+     */
+    public void setRow(int test, Collection<Integer> files) {
+        for (int file : files) {
+            set(test, file);
+        }
+    }
+
+    /**
+     * Writes the changes made through set() to the file.
+     */
+    public void force() {
+        for (MappedByteBuffer buffer : buffers) {
+            buffer.force();
+        }
+    }
+
+    @Override
+    public int numCases() {
+        return numCases;
+    }
+
+    @Override
+    public int numFiles() {
+        return numFiles;
+    }
+
+    @Override
+    public boolean get(int test, int file) {
+        if (file < 0 || file >= numFiles) {
+            return false;
+        }
+        return (segment(test).get(wordIndex(test, file >>> 6)) & (1L << file)) != 0;
+    }
+
+    @Override
+    public int nextInRow(int test, int fromFile) {
+        if (fromFile >= numFiles) {
+            return -1;
+        }
+        LongBuffer segment = segment(test);
+        int word = fromFile >>> 6;
+        long bits = segment.get(wordIndex(test, word)) & (-1L << fromFile);
+        while (bits == 0) {
+            if (++word == wordsPerRow) {
+                return -1;
+            }
+            bits = segment.get(wordIndex(test, word));
+        }
+        return (word << 6) + Long.numberOfTrailingZeros(bits);
+    }
+
+    @Override
+    public int rowCardinality(int test) {
+        LongBuffer segment = segment(test);
+        int count = 0;
+        for (int word = 0; word < wordsPerRow; word++) {
+            count += Long.bitCount(segment.get(wordIndex(test, word)));
+        }
+        return count;
+    }
+
+    /**
+     * @param test the index of a test case
+     * @return the segment holding its row
+     */
+    private LongBuffer segment(int test) {
+        Objects.checkIndex(test, numCases);
+        return segments[test / rowsPerSegment];
+    }
+
+    /**
+     * @param test the index of a test case
+     * @param word the index of a word of its row
+     * @return the index of that word in the segment of the row
+     */
+    private int wordIndex(int test, int word) {
+        return (test % rowsPerSegment) * wordsPerRow + word;
+    }
+}
@@ -0,0 +1,308 @@
+package main.rice.test;
+import main.rice.obj.*;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * OutputComparator decides whether a submission passes a test case, in two tiers. The byte tier compares
+ * the outputs as they are (or sees that the runner already matched them, see FrameReader), and settles
+ * every comparison whose outcome cannot depend on structure: equal outputs, a timeout or crash, different
+ * statuses, a raised exception, and a return value whose repr is canonical (no set, dict or float in it).
+ * Only the rest reach the structural tier, which parses both reprs into APyObjs (PyReprParser) and
+ * compares them with sets and dicts in any order and floats within a tolerance, as math.isclose does.
+ * Each tier counts the comparisons it settles, so report() shows how much the cheap path handles.
+ * It is safe to use from many threads at once.
+ */
+public class OutputComparator {
+    /**
+     * The default relative tolerance of floats, the same as math.isclose.
+     */
+    public static final double DEFAULT_RELATIVE_TOLERANCE = 1e-9;
+
+    private final double relativeTolerance;
+    private final double absoluteTolerance;
+    private final LongAdder bytePasses = new LongAdder();
+    private final LongAdder byteFailures = new LongAdder();
+    private final LongAdder structuralPasses = new LongAdder();
+    private final LongAdder structuralFailures = new LongAdder();
+
+    /**
+     * It's a constructor set for OutputComparator, with the tolerances of math.isclose.
+     */
+    public OutputComparator() {
+        this(DEFAULT_RELATIVE_TOLERANCE, 0.0);
+    }
+
+    /**
+     * It's a constructor set for OutputComparator
+     * @param relativeTolerance: the largest difference between two floats that are equal, relative to the
+     *     larger of them
+     * @param absoluteTolerance: the largest difference between two floats that are equal, whatever their size
+     */
+    public OutputComparator(double relativeTolerance, double absoluteTolerance) {
+        if (relativeTolerance < 0 || absoluteTolerance < 0) {
+            throw new IllegalArgumentException("the tolerances cannot be negative");
+        }
+        this.relativeTolerance = relativeTolerance;
+        this.absoluteTolerance = absoluteTolerance;
+    }
+
+    /**
+     * Decides whether a submission passes a test case: it must have returned the same value as the
+     * reference (up to the order of sets and dicts, and the tolerance of floats), or raised the same
+     * exception. A timeout or crash never passes.
+     * @param expected the outcome on the reference
+     * @param actual the outcome on the submission
+     * @return true if the submission passes, false otherwise
+     */
+    public boolean passes(PyCallResult expected, PyCallResult actual) {
+        boolean comparable = actual.status() == PyCallResult.Status.RETURNED
+                || actual.status() == PyCallResult.Status.RAISED;
+        if (comparable && (actual == expected || expected.equals(actual))) {
+            bytePasses.increment();
+            return true;
+        }
+        if (!comparable || actual.status() != expected.status() || isByteDecisive(expected)) {
+            byteFailures.increment();
+            return false;
+        }
+
+        boolean passes;
+        try {
+            passes = same(PyReprParser.parse(expected.output()), PyReprParser.parse(actual.output()));
+        } catch (IllegalArgumentException e) {
+            passes = false; // e.g. a runner's description of where the output differs
+        }
+        (passes ? structuralPasses : structuralFailures).increment();
+        return passes;
+    }
+
+    /**
+     * Tells whether the byte tier alone settles every comparison with an outcome: true unless it is a
+     * return value whose repr holds a set, a dict or a float, where a different repr may still be the same
+     * value. The check is conservative (e.g. any word other than True, False and None counts), and is
+     * cheap enough to decide which expected outcomes a runner may compare as the output arrives.
+     * @param expected the outcome on the reference
+     * @return true if a different output always fails
+     */
+    public static boolean isByteDecisive(PyCallResult expected) {
+        if (expected.status() != PyCallResult.Status.RETURNED) {
+            return true;
+        }
+        String repr = expected.output();
+        for (int i = 0; i < repr.length(); i++) {
+            char c = repr.charAt(i);
+            if (c == '\'' || c == '"') {
+                // skip the string; a quote only ends it if it isn't escaped
+                for (i++; i < repr.length() && repr.charAt(i) != c; i++) {
+                    if (repr.charAt(i) == '\\') {
+                        i++;
+                    }
+                }
+            } else if (c == '{' || c == '.') {
+                return false;
+            } else if (Character.isLetter(c)) {
+                int start = i;
+                while (i + 1 < repr.length() && Character.isLetter(repr.charAt(i + 1))) {
+                    i++;
+                }
+                String word = repr.substring(start, i + 1);
+                if (!word.equals("True") && !word.equals("False") && !word.equals("None")) {
+                    return false; // inf, nan, set(), or the exponent of a float
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of comparisons settled by the byte tier
+     */
+    public long getByteDecisions() {
+        return bytePasses.sum() + byteFailures.sum();
+    }
+
+    /**
+     * @return the number of comparisons settled by the structural tier
+     */
+    public long getStructuralDecisions() {
+        return structuralPasses.sum() + structuralFailures.sum();
+    }
+
+    /**
+     * @return the number of comparisons the structural tier found to pass although the outputs differ
+     */
+    public long getStructuralPasses() {
+        return structuralPasses.sum();
+    }
+
+    /**
+     * @return the number of comparisons made
+     */
+    public long getComparisons() {
+        return getByteDecisions() + getStructuralDecisions();
+    }
+
+    /**
+     * @return the share of the comparisons settled by the byte tier, between 0 and 1 (1 if none were made)
+     */
+    public double getByteHitRate() {
+        long comparisons = getComparisons();
+        return comparisons == 0 ? 1.0 : (double) getByteDecisions() / comparisons;
+    }
+
+    /**
+     * Sets every counter back to zero.
+     */
+    public void resetCounters() {
+        bytePasses.reset();
+        byteFailures.reset();
+        structuralPasses.reset();
+        structuralFailures.reset();
+    }
+
+    /**
+     * @return a one-line summary of the hit rate of each tier
+     */
+    public String report() {
+        long comparisons = getComparisons();
+        long structural = getStructuralDecisions();
+        return String.format(Locale.ROOT, "%d comparisons: %d (%.1f%%) settled by bytes, %d (%.1f%%) by structure "
+                        + "(%d of them passing)", comparisons, getByteDecisions(), 100 * getByteHitRate(),
+                structural, comparisons == 0 ? 0.0 : 100.0 * structural / comparisons, getStructuralPasses());
+    }
+
+    /**
+     * the method compares two values by structure: sets and dicts in any order, floats within the
+     * tolerance, and everything else by type and value.
+     *
+     * @param expected the value of the reference
+     * @param actual the value of the submission
+     * @return true if they are the same
+     */
+    private boolean same(APyObj<?> expected, APyObj<?> actual) {
+        if (expected instanceof PyFloatObj e && actual instanceof PyFloatObj a) {
+            return close(e.getValue(), a.getValue());
+        } else if (expected instanceof PySetObj<?> e && actual instanceof PySetObj<?> a) {
+            return sameSets(e.getValue(), a.getValue());
+        } else if (expected instanceof PyDictObj<?, ?> e && actual instanceof PyDictObj<?, ?> a) {
+            return sameDicts(e.getValue(), a.getValue());
+        } else if (expected instanceof AIterablePyObj<?> e && actual instanceof AIterablePyObj<?> a) {
+            // a list, tuple or str; the types must match
+            if (expected.getClass() != actual.getClass() || e.getValue().size() != a.getValue().size()) {
+                return false;
+            }
+            Iterator<? extends APyObj<?>> actuals = a.getValue().iterator();
+            for (APyObj<?> element : e.getValue()) {
+                if (!same(element, actuals.next())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return expected.equals(actual);
+    }
+
+    /**
+     * the method compares two sets: each element of one must be the same as a different element of the
+     * other. Equal elements are paired by hash first; only the rest (floats off by a little) are searched.
+     *
+     * @param expected the elements of the reference's set
+     * @param actual the elements of the submission's set
+     * @return true if they are the same
+     */
+    private boolean sameSets(Collection<? extends APyObj<?>> expected, Collection<? extends APyObj<?>> actual) {
+        if (expected.size() != actual.size()) {
+            return false;
+        }
+        Set<APyObj<?>> unpaired = new HashSet<>(actual);
+        List<APyObj<?>> rest = new ArrayList<>();
+        for (APyObj<?> element : expected) {
+            if (!unpaired.remove(element)) {
+                rest.add(element);
+            }
+        }
+        for (APyObj<?> element : rest) {
+            if (!removeSame(element, unpaired)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * the method compares two dicts: each key of one must be the same as a different key of the other,
+     * with the same value. Equal keys are paired by hash first; only the rest are searched.
+     *
+     * @param expected the entries of the reference's dict
+     * @param actual the entries of the submission's dict
+     * @return true if they are the same
+     */
+    private boolean sameDicts(Map<? extends APyObj, ? extends APyObj> expected,
+                              Map<? extends APyObj, ? extends APyObj> actual) {
+        if (expected.size() != actual.size()) {
+            return false;
+        }
+        Map<APyObj, APyObj> unpaired = new HashMap<>(actual);
+        List<Map.Entry<? extends APyObj, ? extends APyObj>> rest = new ArrayList<>();
+        for (Map.Entry<? extends APyObj, ? extends APyObj> entry : expected.entrySet()) {
+            if (!unpaired.containsKey(entry.getKey())) {
+                rest.add(entry);
+            } else if (!same(entry.getValue(), unpaired.remove(entry.getKey()))) {
+                return false;
+            }
+        }
+        for (Map.Entry<? extends APyObj, ? extends APyObj> entry : rest) {
+            Iterator<Map.Entry<APyObj, APyObj>> candidates = unpaired.entrySet().iterator();
+            boolean paired = false;
+            while (!paired && candidates.hasNext()) {
+                Map.Entry<APyObj, APyObj> candidate = candidates.next();
+                if (same(entry.getKey(), candidate.getKey()) && same(entry.getValue(), candidate.getValue())) {
+                    candidates.remove();
+                    paired = true;
+                }
+            }
+            if (!paired) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * the method removes from a set an element that is the same as the given one.
+     *
+     * @param element the element to pair
+     * @param unpaired the elements not paired yet
+     * @return true if one was found (and removed)
+     */
+    private boolean removeSame(APyObj<?> element, Set<APyObj<?>> unpaired) {
+        for (Iterator<APyObj<?>> candidates = unpaired.iterator(); candidates.hasNext(); ) {
+            if (same(element, candidates.next())) {
+                candidates.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * the method compares two floats as math.isclose does, except that nan is the same as nan (as it is in
+     * the byte tier, where both print "nan").
+     *
+     * @param expected the float of the reference
+     * @param actual the float of the submission
+     * @return true if they are close enough
+     */
+    private boolean close(double expected, double actual) {
+        if (expected == actual || (Double.isNaN(expected) && Double.isNaN(actual))) {
+            return true;
+        }
+        if (Double.isInfinite(expected) || Double.isInfinite(actual)) {
+            return false;
+        }
+        double difference = Math.abs(expected - actual);
+        return difference <= Math.max(relativeTolerance * Math.max(Math.abs(expected), Math.abs(actual)),
+                absoluteTolerance);
+    }
+}
@@ -0,0 +1,89 @@
+package test.rice.test;
+
+import main.rice.test.OutputComparator;
+import main.rice.test.PyCallResult;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test cases for the OutputComparator class.
+ */
+class OutputComparatorTest {
+
+    /**
+     * Tests that equal outputs, different statuses and timeouts are settled by the byte tier.
+     */
+    @Test
+    void testByteTier() {
+        OutputComparator comparator = new OutputComparator();
+        PyCallResult expected = PyCallResult.returned("[1, 2]");
+        assertTrue(comparator.passes(expected, expected));
+        assertTrue(comparator.passes(expected, PyCallResult.returned("[1, 2]")));
+        assertFalse(comparator.passes(expected, PyCallResult.returned("[2, 1]")));
+        assertFalse(comparator.passes(expected, new PyCallResult(PyCallResult.Status.RAISED, "[1, 2]")));
+        assertFalse(comparator.passes(expected, new PyCallResult(PyCallResult.Status.TIMEOUT, "")));
+        PyCallResult raised = new PyCallResult(PyCallResult.Status.RAISED, "ValueError: 1.0");
+        assertTrue(comparator.passes(raised, new PyCallResult(PyCallResult.Status.RAISED, "ValueError: 1.0")));
+        assertFalse(comparator.passes(raised, new PyCallResult(PyCallResult.Status.RAISED, "ValueError: 1.00")));
+        assertEquals(7, comparator.getByteDecisions());
+        assertEquals(0, comparator.getStructuralDecisions());
+    }
+
+    /**
+     * Tests that sets and dicts in another order, and floats within the tolerance, pass the structural
+     * tier, and that other differences still fail it.
+     */
+    @Test
+    void testStructuralTier() {
+        OutputComparator comparator = new OutputComparator();
+        assertTrue(comparator.passes(PyCallResult.returned("{'a', 'b'}"), PyCallResult.returned("{'b', 'a'}")));
+        assertTrue(comparator.passes(PyCallResult.returned("{1: [0.1, 0.3]}"),
+                PyCallResult.returned("{1: [0.1, 0.30000000000000004]}")));
+        assertTrue(comparator.passes(PyCallResult.returned("{0.3, 2.0}"),
+                PyCallResult.returned("{2.0, 0.30000000000000004}")));
+        assertFalse(comparator.passes(PyCallResult.returned("[0.3]"), PyCallResult.returned("[0.31]")));
+        assertFalse(comparator.passes(PyCallResult.returned("{1: 2, 3: 4}"), PyCallResult.returned("{1: 2, 3: 5}")));
+        assertFalse(comparator.passes(PyCallResult.returned("[1.0]"), PyCallResult.returned("(1.0,)")));
+        assertFalse(comparator.passes(PyCallResult.returned("{1.0}"), PyCallResult.returned("{1}")));
+        assertTrue(comparator.passes(PyCallResult.returned("{None: 0.3, 12345678901: 1}"),
+                PyCallResult.returned("{12345678901: 1, None: 0.30000000000000004}")));
+        assertFalse(comparator.passes(PyCallResult.returned("{None: 0.3}"), PyCallResult.returned("{0: 0.3}")));
+        assertEquals(9, comparator.getStructuralDecisions());
+        assertEquals(4, comparator.getStructuralPasses());
+        assertEquals(0, comparator.getByteDecisions());
+    }
+
+    /**
+     * Tests which expected outcomes the byte tier settles on its own.
+     */
+    @Test
+    void testIsByteDecisive() {
+        assertTrue(OutputComparator.isByteDecisive(PyCallResult.returned("[1, (True, None)]")));
+        assertTrue(OutputComparator.isByteDecisive(PyCallResult.returned("'{3.5} set() \\' nan'")));
+        assertTrue(OutputComparator.isByteDecisive(new PyCallResult(PyCallResult.Status.RAISED, "E: {1.5}")));
+        assertFalse(OutputComparator.isByteDecisive(PyCallResult.returned("[1, {2}]")));
+        assertFalse(OutputComparator.isByteDecisive(PyCallResult.returned("('x', 2.5)")));
+        assertFalse(OutputComparator.isByteDecisive(PyCallResult.returned("1e+16")));
+        assertFalse(OutputComparator.isByteDecisive(PyCallResult.returned("[inf]")));
+        assertFalse(OutputComparator.isByteDecisive(PyCallResult.returned("set()")));
+    }
+
+    /**
+     * Tests the hit rate and the report.
+     */
+    @Test
+    void testReport() {
+        OutputComparator comparator = new OutputComparator();
+        assertEquals(1.0, comparator.getByteHitRate());
+        for (int i = 0; i < 3; i++) {
+            comparator.passes(PyCallResult.returned("1"), PyCallResult.returned("1"));
+        }
+        comparator.passes(PyCallResult.returned("{1, 2}"), PyCallResult.returned("{2, 1}"));
+        assertEquals(0.75, comparator.getByteHitRate());
+        assertEquals("4 comparisons: 3 (75.0%) settled by bytes, 1 (25.0%) by structure (1 of them passing)",
+                comparator.report());
+        comparator.resetCounters();
+        assertEquals(0, comparator.getComparisons());
+    }
+}
@@ -0,0 +1,19 @@
+package main.rice.test;
+import java.io.IOException;
+
+/**
+ * Thrown when a process sends a response longer than the output limit of its runner. The process is
+ * killed, and the call counts as crashed.
+ */
+public class OutputLimitException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * It's a constructor set for OutputLimitException
+     * @param length: the length the process announced
+     * @param limit: the most bytes allowed
+     */
+    public OutputLimitException(long length, long limit) {
+        super("output of " + length + " bytes exceeds the limit of " + limit + " bytes");
+    }
+}
@@ -0,0 +1,48 @@
+package bench.rice;
+
+import main.rice.PrimeFactorizer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks PrimeFactorizer construction (the sieve) and factorization.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrimeFactorizerBenchmark {
+
+    /**
+     * The upper bound of the factorizer.
+     */
+    @Param({"10000", "1000000", "100000000"})
+    public int maxNum;
+
+    private PrimeFactorizer factorizer;
+
+    /**
+     * Builds the factorizer used by the factorization benchmark.
+     */
+    @Setup
+    public void setUp() {
+        this.factorizer = new PrimeFactorizer(this.maxNum);
+    }
+
+    @Benchmark
+    public PrimeFactorizer construct() {
+        return new PrimeFactorizer(this.maxNum);
+    }
+
+    @Benchmark
+    public void factorize(Blackhole bh) {
+        // numbers near the upper bound: mostly small factors, a power of two, and a mix
+        bh.consume(this.factorizer.computePrimeFactorization(this.maxNum - 1));
+        bh.consume(this.factorizer.computePrimeFactorization(Integer.highestOneBit(this.maxNum)));
+        bh.consume(this.factorizer.computePrimeFactorization(this.maxNum / 3 * 2));
+    }
+}
@@ -1,6 +1,7 @@
 package main.rice.node;
 import main.rice.obj.*;
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
 // TODO: implement the PyBoolNode class here
 
 /**
@@ -39,7 +40,8 @@ public class PyBoolNode extends APyNode<PyBoolObj> {
     @Override
     public PyBoolObj genRandVal() {
         //randomly generate an index within range of random domain
-        int randIdx = new Random().nextInt(getRanDomain().size());
+        //(ThreadLocalRandom: no shared seed to contend on when generator threads share the node)
+        int randIdx = ThreadLocalRandom.current().nextInt(getRanDomain().size());
         int value = getRanDomain().get(randIdx).intValue();
         return new PyBoolObj(value == 1);
     }
@@ -0,0 +1,46 @@
+package main.rice.test;
+
+/**
+ * The outcome of calling a submission's function on one TestCase.
+ * @param status how the call ended
+ * @param output the repr of the return value if it returned, the exception ("type: message") if it
+ *     raised, and a short description otherwise
+ */
+public record PyCallResult(Status status, String output) {
+    /**
+     * How a call ended.
+     */
+    public enum Status {
+        /**
+         * The function returned; output is the repr of its return value.
+         */
+        RETURNED,
+        /**
+         * The function raised an exception; output is "type: message".
+         */
+        RAISED,
+        /**
+         * The call did not finish in time and the process running it was killed.
+         */
+        TIMEOUT,
+        /**
+         * The process running the call died or broke the protocol.
+         */
+        CRASHED
+    }
+
+    /**
+     * @param repr the repr of the return value
+     * @return the result of a call that returned
+     */
+    public static PyCallResult returned(String repr) {
+        return new PyCallResult(Status.RETURNED, repr);
+    }
+
+    /**
+     * @return true if the function returned normally, false otherwise
+     */
+    public boolean isReturned() {
+        return status == Status.RETURNED;
+    }
+}
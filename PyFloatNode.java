@@ -1,6 +1,7 @@
 package main.rice.node;
 import main.rice.obj.PyFloatObj;
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
 // TODO: implement the PyFloatNode class here
 
 /**
@@ -22,7 +23,8 @@ public class PyFloatNode extends APyNode<PyFloatObj> {
     @Override
     public PyFloatObj genRandVal() {
         //randomly generate an index within range of random domain
-        int randIdx = new Random().nextInt(getRanDomain().size());
+        //(ThreadLocalRandom: no shared seed to contend on when generator threads share the node)
+        int randIdx = ThreadLocalRandom.current().nextInt(getRanDomain().size());
         double value = getRanDomain().get(randIdx).doubleValue();
         return new PyFloatObj(value);
     }
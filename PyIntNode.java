@@ -1,6 +1,7 @@
 package main.rice.node;
 import main.rice.obj.PyIntObj;
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * The class generates  simple Python Integer objects.
@@ -20,7 +21,8 @@ public class PyIntNode extends APyNode<PyIntObj>{
     @Override
     public PyIntObj genRandVal() {
         //randomly generate an index within range of random domain
-        int randIdx = new Random().nextInt(getRanDomain().size());
+        //(ThreadLocalRandom: no shared seed to contend on when generator threads share the node)
+        int randIdx = ThreadLocalRandom.current().nextInt(getRanDomain().size());
         int value = getRanDomain().get(randIdx).intValue();
         return new PyIntObj(value);
     }
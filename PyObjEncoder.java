@@ -0,0 +1,167 @@
+package main.rice.obj;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * PyObjEncoder encodes APyObjs in a compact tagged binary format, which pyworker.py decodes without eval,
+ * so arguments of any size can be streamed to a Python process instead of being rendered as a repr.
+ * Each value is a one-byte tag followed by its body (integers are big-endian):
+ * <pre>
+ *   'b' u8 (0 or 1)              bool
+ *   'i' s32                      int
+ *   'f' f64                      float
+ *   's' u32 length, UTF-8 bytes  str (a PyCharObj is a str of length 1)
+ *   'l' / 't' / 'S' u32 count, then each element     list / tuple / set
+ *   'd' u32 count, then each key followed by its value   dict
+ * </pre>
+ * Unlike the repr, the format needs no quoting, so strings containing quotes or backslashes arrive as they
+ * are.
+ */
+public final class PyObjEncoder {
+    /**
+     * The first byte of an encoded argument tuple; a repr can never start with it, so a Python process can
+     * accept both.
+     */
+    public static final byte BINARY_MARKER = 0;
+
+    private byte[] buffer = new byte[64];
+    private int size;
+
+    private PyObjEncoder() {
+    }
+
+    /**
+     * Encodes the arguments of a call as the BINARY_MARKER followed by a tuple of them.
+     *
+     * @param args the arguments
+     * @return the encoded bytes
+     */
+    public static byte[] encodeArgs(List<? extends APyObj<?>> args) {
+        PyObjEncoder encoder = new PyObjEncoder();
+        encoder.writeByte(BINARY_MARKER);
+        encoder.writeSequence('t', args);
+        return encoder.toByteArray();
+    }
+
+    /**
+     * Encodes one value.
+     *
+     * @param obj the value
+     * @return the encoded bytes
+     */
+    public static byte[] encode(APyObj<?> obj) {
+        PyObjEncoder encoder = new PyObjEncoder();
+        encoder.write(obj);
+        return encoder.toByteArray();
+    }
+
+    /**
+     * the method appends the encoding of a value.
+     *
+     * @param obj the value
+     */
+    private void write(APyObj<?> obj) {
+        if (obj instanceof PyIntObj i) {
+            writeByte('i');
+            writeInt(i.getValue());
+        } else if (obj instanceof PyFloatObj f) {
+            writeByte('f');
+            long bits = Double.doubleToRawLongBits(f.getValue());
+            writeInt((int) (bits >>> 32));
+            writeInt((int) bits);
+        } else if (obj instanceof PyBoolObj b) {
+            writeByte('b');
+            writeByte(b.getValue() ? 1 : 0);
+        } else if (obj instanceof PyStringObj s) {
+            StringBuilder chars = new StringBuilder(s.getValue().size());
+            for (PyCharObj c : s.getValue()) {
+                chars.append(c.getValue().charValue());
+            }
+            writeString(chars.toString());
+        } else if (obj instanceof PyCharObj c) {
+            writeString(String.valueOf(c.getValue().charValue()));
+        } else if (obj instanceof PyListObj<?> l) {
+            writeSequence('l', l.getValue());
+        } else if (obj instanceof PyTupleObj<?> t) {
+            writeSequence('t', t.getValue());
+        } else if (obj instanceof PySetObj<?> s) {
+            writeSequence('S', s.getValue());
+        } else if (obj instanceof PyDictObj<?, ?> d) {
+            writeByte('d');
+            writeInt(d.getValue().size());
+            for (Map.Entry<? extends APyObj, ? extends APyObj> entry : d.getValue().entrySet()) {
+                write(entry.getKey());
+                write(entry.getValue());
+            }
+        } else {
+            throw new IllegalArgumentException("cannot encode " + obj.getClass().getName());
+        }
+    }
+
+    /**
+     * the method appends a list, tuple or set.
+     *
+     * @param tag the tag of the sequence type
+     * @param elements the elements
+     */
+    private void writeSequence(char tag, Collection<? extends APyObj<?>> elements) {
+        writeByte(tag);
+        writeInt(elements.size());
+        for (APyObj<?> element : elements) {
+            write(element);
+        }
+    }
+
+    /**
+     * the method appends a str.
+     *
+     * @param value the characters of the str
+     */
+    private void writeString(String value) {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        writeByte('s');
+        writeInt(utf8.length);
+        ensure(utf8.length);
+        System.arraycopy(utf8, 0, buffer, size, utf8.length);
+        size += utf8.length;
+    }
+
+    /**
+     * @param value a big-endian int to append
+     */
+    private void writeInt(int value) {
+        ensure(4);
+        buffer[size] = (byte) (value >>> 24);
+        buffer[size + 1] = (byte) (value >>> 16);
+        buffer[size + 2] = (byte) (value >>> 8);
+        buffer[size + 3] = (byte) value;
+        size += 4;
+    }
+
+    /**
+     * @param value a byte to append
+     */
+    private void writeByte(int value) {
+        ensure(1);
+        buffer[size++] = (byte) value;
+    }
+
+    /**
+     * @param extra the number of bytes about to be appended
+     */
+    private void ensure(int extra) {
+        if (size + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+        }
+    }
+
+    /**
+     * @return the bytes appended so far
+     */
+    private byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+}
@@ -0,0 +1,61 @@
+package bench.rice.obj;
+
+import main.rice.obj.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks encoding the arguments of a call with PyObjEncoder against building their repr with
+ * toString, on the same nested APyObjs as APyObjBenchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PyObjEncoderBenchmark {
+
+    /**
+     * The number of elements at each level of nesting.
+     */
+    @Param({"4", "32", "256"})
+    public int size;
+
+    private List<APyObj<?>> args;
+
+    /**
+     * Builds the arguments: a dict(str: list(tuple(int, float))) and a str.
+     */
+    @Setup
+    public void setUp() {
+        Map<PyStringObj, PyListObj<PyTupleObj<APyObj<?>>>> dict = new HashMap<>();
+        for (int i = 0; i < this.size; i++) {
+            List<PyTupleObj<APyObj<?>>> list = new ArrayList<>();
+            for (int j = 0; j < this.size; j++) {
+                list.add(new PyTupleObj<>(List.of(new PyIntObj(j), new PyFloatObj(j / 2.0))));
+            }
+            dict.put(new PyStringObj("key" + i), new PyListObj<>(list));
+        }
+        this.args = List.of(new PyDictObj<>(dict), new PyStringObj("x".repeat(this.size)));
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return PyObjEncoder.encodeArgs(this.args);
+    }
+
+    @Benchmark
+    public byte[] encodeRepr() {
+        // what a runner sent before PyObjEncoder: the UTF-8 repr of the argument tuple
+        StringBuilder repr = new StringBuilder("(");
+        for (APyObj<?> arg : this.args) {
+            repr.append(arg).append(", ");
+        }
+        repr.setLength(repr.length() - 1);
+        return repr.append(")").toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
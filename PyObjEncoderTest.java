@@ -0,0 +1,68 @@
+package test.rice.obj;
+
+import main.rice.obj.*;
+import org.junit.jupiter.api.*;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test cases for the PyObjEncoder class.
+ */
+class PyObjEncoderTest {
+
+    /**
+     * Tests encoding an int, including a negative one.
+     */
+    @Test
+    void testEncodeInt() {
+        assertArrayEquals(new byte[]{'i', 0, 0, 1, 2}, PyObjEncoder.encode(new PyIntObj(258)));
+        assertArrayEquals(new byte[]{'i', -1, -1, -1, -2}, PyObjEncoder.encode(new PyIntObj(-2)));
+    }
+
+    /**
+     * Tests encoding a bool and a float.
+     */
+    @Test
+    void testEncodeBoolAndFloat() {
+        assertArrayEquals(new byte[]{'b', 1}, PyObjEncoder.encode(new PyBoolObj(true)));
+        assertArrayEquals(new byte[]{'f', 0x3F, (byte) 0xF8, 0, 0, 0, 0, 0, 0},
+                PyObjEncoder.encode(new PyFloatObj(1.5)));
+    }
+
+    /**
+     * Tests that a string is sent as UTF-8 without any quoting or escaping, and that a char is a string of
+     * length 1.
+     */
+    @Test
+    void testEncodeString() {
+        assertArrayEquals(new byte[]{'s', 0, 0, 0, 4, 'a', '\'', (byte) 0xC3, (byte) 0xA9},
+                PyObjEncoder.encode(new PyStringObj("a'\u00e9")));
+        assertArrayEquals(new byte[]{'s', 0, 0, 0, 1, '"'}, PyObjEncoder.encode(new PyCharObj('"')));
+    }
+
+    /**
+     * Tests encoding nested collections.
+     */
+    @Test
+    void testEncodeNested() {
+        PyListObj<PyTupleObj<PyBoolObj>> list = new PyListObj<>(List.of(
+                new PyTupleObj<>(List.of(new PyBoolObj(false))), new PyTupleObj<>(List.of())));
+        assertArrayEquals(new byte[]{'l', 0, 0, 0, 2, 't', 0, 0, 0, 1, 'b', 0, 't', 0, 0, 0, 0},
+                PyObjEncoder.encode(list));
+
+        PyDictObj<PyIntObj, PySetObj<PyIntObj>> dict = new PyDictObj<>(
+                Map.of(new PyIntObj(1), new PySetObj<>(Set.of(new PyIntObj(2)))));
+        assertArrayEquals(new byte[]{'d', 0, 0, 0, 1, 'i', 0, 0, 0, 1, 'S', 0, 0, 0, 1, 'i', 0, 0, 0, 2},
+                PyObjEncoder.encode(dict));
+    }
+
+    /**
+     * Tests that encodeArgs writes the marker followed by a tuple of the arguments.
+     */
+    @Test
+    void testEncodeArgs() {
+        assertArrayEquals(new byte[]{PyObjEncoder.BINARY_MARKER, 't', 0, 0, 0, 0}, PyObjEncoder.encodeArgs(List.of()));
+        assertArrayEquals(new byte[]{PyObjEncoder.BINARY_MARKER, 't', 0, 0, 0, 2, 'i', 0, 0, 0, 7, 'b', 1},
+                PyObjEncoder.encodeArgs(List.of(new PyIntObj(7), new PyBoolObj(true))));
+    }
+}
@@ -0,0 +1,316 @@
+package main.rice.obj;
+import java.math.BigInteger;
+import java.util.*;
+
+/**
+ * PyReprParser turns the repr of a Python value back into an APyObj, so two outputs can be compared by
+ * structure instead of by text (see OutputComparator). It reads what repr() prints for the types APyObj
+ * models: int, float (including inf and nan), bool, str (with either quote and any escape repr() uses),
+ * list, tuple, set and dict, nested to any depth. None and an int that does not fit in 32 bits, which
+ * APyObj has no type for, become Leafs holding their exact repr. Anything else, such as a custom object,
+ * is rejected.
+ */
+public final class PyReprParser {
+    private final String repr;
+    private int pos;
+
+    /**
+     * It's a constructor set for PyReprParser
+     * @param repr: the text to parse
+     */
+    private PyReprParser(String repr) {
+        this.repr = repr;
+    }
+
+    /**
+     * Parses the repr of a value.
+     *
+     * @param repr the repr
+     * @return the value
+     * @throws IllegalArgumentException if repr is not the repr of a value APyObj can represent
+     */
+    public static APyObj<?> parse(String repr) {
+        PyReprParser parser = new PyReprParser(repr);
+        APyObj<?> value = parser.value();
+        parser.skipSpaces();
+        if (parser.pos != repr.length()) {
+            throw parser.error("trailing text");
+        }
+        return value;
+    }
+
+    /**
+     * the method parses the value that starts at pos.
+     *
+     * @return the value
+     */
+    private APyObj<?> value() {
+        skipSpaces();
+        if (pos >= repr.length()) {
+            throw error("a value is missing");
+        }
+        char c = repr.charAt(pos);
+        if (c == '[') {
+            pos++;
+            List<APyObj<?>> elements = new ArrayList<>();
+            elements(']', elements, false);
+            return new PyListObj<>(elements);
+        } else if (c == '(') {
+            pos++;
+            List<APyObj<?>> elements = new ArrayList<>();
+            boolean comma = elements(')', elements, false);
+            if (elements.size() == 1 && !comma) {
+                return elements.get(0); // only parentheses, not a tuple
+            }
+            return new PyTupleObj<>(elements);
+        } else if (c == '{') {
+            return braces();
+        } else if (c == '\'' || c == '"') {
+            return new PyStringObj(string());
+        } else if (repr.startsWith("set()", pos)) {
+            pos += 5;
+            return new PySetObj<>(new HashSet<>());
+        } else if (repr.startsWith("True", pos)) {
+            pos += 4;
+            return new PyBoolObj(true);
+        } else if (repr.startsWith("False", pos)) {
+            pos += 5;
+            return new PyBoolObj(false);
+        } else if (repr.startsWith("None", pos)) {
+            pos += 4;
+            return new Leaf("None");
+        }
+        return number();
+    }
+
+    /**
+     * the method parses a set or a dict; pos is at the opening brace.
+     *
+     * @return the set or dict
+     */
+    private APyObj<?> braces() {
+        pos++;
+        skipSpaces();
+        if (peek('}')) {
+            pos++;
+            return new PyDictObj<>(new HashMap<>());
+        }
+        APyObj<?> first = value();
+        skipSpaces();
+        if (!peek(':')) {
+            List<APyObj<?>> elements = new ArrayList<>(List.of(first));
+            boolean comma = peek(',');
+            if (comma) {
+                pos++;
+            }
+            elements('}', elements, comma);
+            return new PySetObj<>(new HashSet<>(elements));
+        }
+
+        Map<APyObj<?>, APyObj<?>> entries = new HashMap<>();
+        APyObj<?> key = first;
+        while (true) {
+            expect(':');
+            entries.put(key, value());
+            skipSpaces();
+            if (peek('}')) {
+                pos++;
+                return new PyDictObj<>(entries);
+            }
+            expect(',');
+            skipSpaces();
+            if (peek('}')) {
+                pos++;
+                return new PyDictObj<>(entries);
+            }
+            key = value();
+            skipSpaces();
+        }
+    }
+
+    /**
+     * the method parses comma-separated elements up to and including the closing bracket.
+     *
+     * @param close the closing bracket
+     * @param elements where to add the elements (any already there were parsed by the caller)
+     * @param comma true if the caller consumed a comma after the elements already there
+     * @return true if the last element was followed by a comma
+     */
+    private boolean elements(char close, List<APyObj<?>> elements, boolean comma) {
+        while (true) {
+            skipSpaces();
+            if (peek(close)) {
+                pos++;
+                return comma;
+            }
+            if (!elements.isEmpty() && !comma) {
+                throw error("',' or '" + close + "' expected");
+            }
+            elements.add(value());
+            skipSpaces();
+            comma = peek(',');
+            if (comma) {
+                pos++;
+            }
+        }
+    }
+
+    /**
+     * the method parses a quoted string literal, decoding its escapes; pos is at the opening quote.
+     *
+     * @return the characters of the string
+     */
+    private String string() {
+        char quote = repr.charAt(pos++);
+        StringBuilder chars = new StringBuilder();
+        while (pos < repr.length()) {
+            char c = repr.charAt(pos++);
+            if (c == quote) {
+                return chars.toString();
+            }
+            if (c != '\\') {
+                chars.append(c);
+                continue;
+            }
+            if (pos >= repr.length()) {
+                break;
+            }
+            char escape = repr.charAt(pos++);
+            switch (escape) {
+                case 'n' -> chars.append('\n');
+                case 't' -> chars.append('\t');
+                case 'r' -> chars.append('\r');
+                case 'x' -> chars.append((char) hex(2));
+                case 'u' -> chars.append((char) hex(4));
+                case 'U' -> chars.appendCodePoint(hex(8));
+                case '\\', '\'', '"' -> chars.append(escape);
+                default -> throw error("unknown escape \\" + escape);
+            }
+        }
+        throw error("unterminated string");
+    }
+
+    /**
+     * @param digits the number of hex digits of the escape
+     * @return the code point they spell
+     */
+    private int hex(int digits) {
+        if (pos + digits > repr.length()) {
+            throw error("truncated escape");
+        }
+        try {
+            int code = Integer.parseInt(repr.substring(pos, pos + digits), 16);
+            pos += digits;
+            return code;
+        } catch (NumberFormatException e) {
+            throw error("bad escape");
+        }
+    }
+
+    /**
+     * the method parses an int or a float.
+     *
+     * @return the number
+     */
+    private APyObj<?> number() {
+        int start = pos;
+        if (peek('-') || peek('+')) {
+            pos++;
+        }
+        if (repr.startsWith("inf", pos) || repr.startsWith("nan", pos)) {
+            pos += 3;
+            String special = repr.substring(start, pos);
+            return new PyFloatObj(special.endsWith("nan") ? Double.NaN
+                    : special.startsWith("-") ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY);
+        }
+        boolean isFloat = false;
+        while (pos < repr.length()) {
+            char c = repr.charAt(pos);
+            if (c == '.' || c == 'e' || c == 'E') {
+                isFloat = true;
+            } else if (!(Character.isDigit(c) || ((c == '-' || c == '+') && isFloat
+                    && (repr.charAt(pos - 1) == 'e' || repr.charAt(pos - 1) == 'E')))) {
+                break;
+            }
+            pos++;
+        }
+        String number = repr.substring(start, pos);
+        try {
+            if (isFloat) {
+                return new PyFloatObj(Double.parseDouble(number));
+            }
+            BigInteger value = new BigInteger(number);
+            return value.bitLength() < Integer.SIZE ? new PyIntObj(value.intValue()) : new Leaf(value.toString());
+        } catch (NumberFormatException e) {
+            pos = start;
+            throw error("not a value APyObj can represent");
+        }
+    }
+
+    /**
+     * @param c a character
+     * @return true if the character at pos is c
+     */
+    private boolean peek(char c) {
+        return pos < repr.length() && repr.charAt(pos) == c;
+    }
+
+    /**
+     * @param c the character that must be at pos, which is then consumed
+     */
+    private void expect(char c) {
+        skipSpaces();
+        if (!peek(c)) {
+            throw error("'" + c + "' expected");
+        }
+        pos++;
+    }
+
+    /**
+     * the method moves pos past any spaces.
+     */
+    private void skipSpaces() {
+        while (pos < repr.length() && repr.charAt(pos) == ' ') {
+            pos++;
+        }
+    }
+
+    /**
+     * @param reason what is wrong
+     * @return the exception to throw, naming the position
+     */
+    private IllegalArgumentException error(String reason) {
+        return new IllegalArgumentException(reason + " at " + pos + " in " + repr);
+    }
+
+    /**
+     * Leaf is a value APyObj has no type for (None, or an int that does not fit in 32 bits), kept as its
+     * repr. Python prints both the same way every time, so two leaves are the same value exactly when
+     * their reprs are equal.
+     */
+    public static final class Leaf extends APyObj<String> {
+
+        /**
+         * It's a constructor set for Leaf
+         * @param repr: the repr of the value, as Python prints it
+         */
+        public Leaf(String repr) {
+            this.value = repr;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Leaf other && this.value.equals(other.value);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.value.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return this.value;
+        }
+    }
+}
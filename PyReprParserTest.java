@@ -0,0 +1,76 @@
+package test.rice.obj;
+
+import main.rice.obj.*;
+import org.junit.jupiter.api.*;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test cases for the PyReprParser class.
+ */
+class PyReprParserTest {
+
+    /**
+     * Tests parsing ints, floats and bools.
+     */
+    @Test
+    void testParseScalars() {
+        assertEquals(new PyIntObj(-42), PyReprParser.parse("-42"));
+        assertEquals(new PyFloatObj(1.5e-07), PyReprParser.parse("1.5e-07"));
+        assertEquals(new PyFloatObj(1e16), PyReprParser.parse("1e+16"));
+        assertEquals(new PyFloatObj(Double.NEGATIVE_INFINITY), PyReprParser.parse("-inf"));
+        assertEquals(new PyFloatObj(Double.NaN), PyReprParser.parse("nan"));
+        assertEquals(new PyBoolObj(false), PyReprParser.parse("False"));
+    }
+
+    /**
+     * Tests parsing strings with either quote and with escapes.
+     */
+    @Test
+    void testParseString() {
+        assertEquals(new PyStringObj("it's"), PyReprParser.parse("\"it's\""));
+        assertEquals(new PyStringObj("a'\"\\\n\u00e9\u0001"), PyReprParser.parse("'a\\'\"\\\\\\n\u00e9\\x01'"));
+        assertEquals(new PyStringObj(""), PyReprParser.parse("''"));
+    }
+
+    /**
+     * Tests parsing nested lists, tuples, sets and dicts, including the empty ones and a 1-tuple.
+     */
+    @Test
+    void testParseCollections() {
+        PyIntObj one = new PyIntObj(1);
+        PyIntObj two = new PyIntObj(2);
+        assertEquals(new PyListObj<>(List.of(new PyTupleObj<>(List.of(one)), new PyTupleObj<>(List.of()))),
+                PyReprParser.parse("[(1,), ()]"));
+        assertEquals(new PySetObj<>(Set.of(one, two)), PyReprParser.parse("{2, 1}"));
+        assertEquals(new PySetObj<>(Set.of()), PyReprParser.parse("set()"));
+        assertEquals(new PyDictObj<>(Map.of(new PyStringObj("a"), new PyListObj<>(List.of(one, two)))),
+                PyReprParser.parse("{'a': [1, 2]}"));
+        assertEquals(new PyDictObj<>(Map.of()), PyReprParser.parse("{}"));
+    }
+
+    /**
+     * Tests that None and ints beyond 32 bits become leaves, equal only to the same repr.
+     */
+    @Test
+    void testParseLeaves() {
+        assertEquals(new PyReprParser.Leaf("None"), PyReprParser.parse("None"));
+        assertEquals(new PyReprParser.Leaf("12345678901234567890"), PyReprParser.parse("12345678901234567890"));
+        assertEquals(new PyReprParser.Leaf("-2147483649"), PyReprParser.parse("-2147483649"));
+        assertEquals(new PyIntObj(Integer.MIN_VALUE), PyReprParser.parse("-2147483648"));
+        assertNotEquals(PyReprParser.parse("2147483648"), PyReprParser.parse("2147483649"));
+        assertEquals(new PyDictObj<>(Map.of(new PyReprParser.Leaf("None"), new PyFloatObj(0.5))),
+                PyReprParser.parse("{None: 0.5}"));
+    }
+
+    /**
+     * Tests that what APyObj cannot represent, and malformed text, is rejected.
+     */
+    @Test
+    void testParseInvalid() {
+        for (String repr : List.of("Nothing", "<object at 0x7f>", "[1, 2", "[1 2]", "'abc", "{1: 2, 3}", "1 2",
+                "<the output differs at byte 3>")) {
+            assertThrows(IllegalArgumentException.class, () -> PyReprParser.parse(repr), repr);
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package main.rice.test;
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * PyWorkerPool runs the test cases of one submission in long-lived Python worker processes (pyworker.py),
+ * so the interpreter starts and the submission is imported once per worker instead of once per test case.
+ * Up to size workers run at the same time, one per calling thread; a worker that crashes or runs past
+ * the timeout (wall clock or CPU time, see ExecutionLimits) is killed with everything it started, and a
+ * fresh one is started the next time a worker is needed.
+ */
+public class PyWorkerPool extends APyRunner {
+    private final List<String> command;
+    private final Duration timeout;
+    private final Semaphore permits;
+    private final Queue<Worker> idle = new ConcurrentLinkedQueue<>();
+    private final Set<Worker> busy = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+
+    /**
+     * It's a constructor set for PyWorkerPool; workers are started lazily.
+     * @param python: the Python interpreter to run (e.g. "python3")
+     * @param workerScript: the path of pyworker.py
+     * @param submission: the path of the submission
+     * @param funcName: the name of the function to call (ConfigFile's fname)
+     * @param size: the largest number of workers (e.g. the number of cores)
+     * @param timeout: how long a call may take, including the import if the worker is fresh
+     */
+    public PyWorkerPool(String python, Path workerScript, Path submission, String funcName, int size,
+                        Duration timeout) {
+        this(python, workerScript, submission, funcName, size, ExecutionLimits.wallClock(timeout));
+    }
+
+    /**
+     * It's a constructor set for PyWorkerPool; workers are started lazily.
+     * @param python: the Python interpreter to run (e.g. "python3")
+     * @param workerScript: the path of pyworker.py
+     * @param submission: the path of the submission
+     * @param funcName: the name of the function to call (ConfigFile's fname)
+     * @param size: the largest number of workers (e.g. the number of cores)
+     * @param limits: the budgets of a call; the wall clock includes the import if the worker is fresh
+     */
+    public PyWorkerPool(String python, Path workerScript, Path submission, String funcName, int size,
+                        ExecutionLimits limits) {
+        List<String> command = new ArrayList<>(List.of(python, workerScript.toString(), submission.toString(),
+                funcName));
+        command.addAll(limits.scriptArgs());
+        this.command = List.copyOf(command);
+        this.timeout = limits.wallClock();
+        this.permits = new Semaphore(size);
+    }
+
+    /**
+     * Calls the function on the arguments of a test case in one of the workers, waiting for a worker to
+     * become free if all of them are busy.
+     * @param test the test case
+     * @return the outcome of the call
+     * @throws InterruptedException if interrupted while waiting for a worker
+     */
+    public PyCallResult call(TestCase test) throws InterruptedException {
+        return call(test, null);
+    }
+
+    /**
+     * Calls the function on the arguments of a test case in one of the workers, comparing the output with
+     * the expected one as it arrives (see APyRunner.runAll).
+     * @param test the test case
+     * @param expected the expected outcome, or null to keep the output as it is
+     * @return the outcome of the call
+     * @throws InterruptedException if interrupted while waiting for a worker
+     */
+    public PyCallResult call(TestCase test, PyCallResult expected) throws InterruptedException {
+        byte[] payload = requestPayload(test);
+        permits.acquire();
+        try {
+            if (closed) {
+                throw new IllegalStateException("the pool is closed");
+            }
+            Worker worker = idle.poll();
+            if (worker == null) {
+                try {
+                    Process process = new ProcessBuilder(command)
+                            .redirectError(ProcessBuilder.Redirect.DISCARD)
+                            .start();
+                    worker = new Worker(process, frameReader(Channels.newChannel(process.getInputStream())));
+                } catch (IOException e) {
+                    return new PyCallResult(PyCallResult.Status.CRASHED, "cannot start worker: " + e.getMessage());
+                }
+            }
+
+            busy.add(worker);
+            if (closed) {
+                worker.destroy(); // close() may have looked at the busy workers just before this one
+            }
+            PyCallResult result;
+            boolean overLimit = false;
+            ScheduledFuture<?> kill = WATCHDOG.schedule(worker::timeOut, timeout.toNanos(), TimeUnit.NANOSECONDS);
+            try {
+                result = worker.call(payload, expected);
+            } catch (OutputLimitException e) {
+                result = overLimit(e);
+                overLimit = true; // the rest of the output is still in the pipe
+            } catch (IOException e) {
+                result = null;
+            } finally {
+                kill.cancel(false);
+                busy.remove(worker);
+            }
+
+            if (result != null && !worker.timedOut && !overLimit && !closed
+                    && result.status() != PyCallResult.Status.TIMEOUT) {
+                idle.add(worker);
+                if (closed && idle.remove(worker)) {
+                    // close() may have drained the idle workers just before this one was added
+                    worker.close();
+                    worker.release();
+                }
+                return result;
+            }
+            // the worker is dead or about to be (e.g. it ran out of CPU time, or sent too much output);
+            // the next call starts a fresh one
+            worker.destroy();
+            worker.release();
+            if (result != null) {
+                return result; // it finished just as the watchdog fired
+            }
+            return worker.timedOut
+                    ? new PyCallResult(PyCallResult.Status.TIMEOUT, "timed out after " + timeout.toMillis() + " ms")
+                    : new PyCallResult(PyCallResult.Status.CRASHED, "worker exited");
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Calls the function on every test case, one after the other; call() from several threads to use
+     * several workers.
+     * @param tests the test cases
+     * @return the outcome of each call, in order
+     * @throws InterruptedException if interrupted while waiting for a worker
+     */
+    @Override
+    public List<PyCallResult> runAll(List<TestCase> tests, List<PyCallResult> expected) throws InterruptedException {
+        List<PyCallResult> results = new ArrayList<>(tests.size());
+        for (int test = 0; test < tests.size(); test++) {
+            results.add(call(tests.get(test), expectedAt(expected, test)));
+        }
+        return results;
+    }
+
+    /**
+     * Stops the idle workers (by closing their stdin), and kills the busy ones.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        Worker worker;
+        while ((worker = idle.poll()) != null) {
+            worker.close();
+            worker.release();
+        }
+        for (Worker running : busy) {
+            running.destroy();
+        }
+    }
+
+    /**
+     * Worker is one pyworker.py process.
+     */
+    private static final class Worker {
+        private final Process process;
+        private final DataOutputStream requests;
+        private final FrameReader responses;
+        private volatile boolean timedOut;
+
+        /**
+         * It's a constructor set for Worker
+         * @param process: the started pyworker.py process
+         * @param responses: reads its stdout
+         */
+        Worker(Process process, FrameReader responses) {
+            this.process = process;
+            this.requests = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+            this.responses = responses;
+        }
+
+        /**
+         * Sends one call and waits for its response.
+         * @param payload the encoded argument tuple
+         * @param expected the expected outcome, or null
+         * @return the outcome
+         * @throws IOException if the process died or broke the protocol
+         */
+        PyCallResult call(byte[] payload, PyCallResult expected) throws IOException {
+            writeRequest(requests, payload);
+            requests.flush();
+            return responses.read(expected);
+        }
+
+        /**
+         * Kills the process (and anything it started) because its call ran past the timeout; called by the
+         * watchdog.
+         */
+        void timeOut() {
+            timedOut = true;
+            destroyTree(process);
+        }
+
+        /**
+         * Kills the process and anything it started.
+         */
+        void destroy() {
+            destroyTree(process);
+        }
+
+        /**
+         * Gives back the buffer of the reader; only the thread that reads from the worker may call it, once
+         * the worker is no longer used.
+         */
+        void release() {
+            responses.close();
+        }
+
+        /**
+         * Asks the process to exit by closing its stdin.
+         */
+        void close() {
+            try {
+                requests.close();
+            } catch (IOException e) {
+                process.destroyForcibly();
+            }
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package test.rice.test;
+
+import main.rice.obj.*;
+import main.rice.test.PyCallResult;
+import main.rice.test.PyWorkerPool;
+import main.rice.test.TestCase;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test cases for the PyWorkerPool class, which run pyworker.py with python3 on small submissions.
+ */
+class PyWorkerPoolTest {
+
+    /**
+     * The worker script, at the root of the repository.
+     */
+    static final Path WORKER = Path.of("pyworker.py");
+
+    /**
+     * A submission whose f(mode) returns mode, raises, hangs, exits, or reports its state, by mode.
+     */
+    static final String MODES = String.join("\n",
+            "import os, time",
+            "calls = 0",
+            "def f(mode):",
+            "    global calls",
+            "    calls += 1",
+            "    if mode == 'raise':",
+            "        raise ValueError('bad')",
+            "    if mode == 'hang':",
+            "        time.sleep(100)",
+            "    if mode == 'exit':",
+            "        os._exit(3)",
+            "    if mode == 'calls':",
+            "        return calls",
+            "    if mode == 'pid':",
+            "        return os.getpid()",
+            "    return mode",
+            "");
+
+    /**
+     * Tests that returning, raising, hanging and dying are told apart, and that the pool recovers from
+     * the last two.
+     */
+    @Test
+    void testOutcomes(@TempDir Path dir) throws IOException, InterruptedException {
+        try (PyWorkerPool pool = new PyWorkerPool("python3", WORKER, submission(dir, MODES), "f", 1,
+                Duration.ofSeconds(2))) {
+            assertEquals(PyCallResult.returned("'ok'"), pool.call(test("ok")));
+            assertEquals(new PyCallResult(PyCallResult.Status.RAISED, "ValueError: bad"), pool.call(test("raise")));
+            assertEquals(PyCallResult.Status.TIMEOUT, pool.call(test("hang")).status());
+            assertEquals(PyCallResult.Status.CRASHED, pool.call(test("exit")).status());
+            assertEquals(PyCallResult.returned("'ok'"), pool.call(test("ok")));
+        }
+    }
+
+    /**
+     * Tests that a worker imports the submission once and serves every call after that, until it dies.
+     */
+    @Test
+    void testImportOnce(@TempDir Path dir) throws IOException, InterruptedException {
+        try (PyWorkerPool pool = new PyWorkerPool("python3", WORKER, submission(dir, MODES), "f", 1,
+                Duration.ofSeconds(2))) {
+            assertEquals(List.of(PyCallResult.returned("1"), PyCallResult.returned("2")),
+                    pool.runAll(List.of(test("calls"), test("calls"))));
+            pool.call(test("exit"));
+            assertEquals(PyCallResult.returned("1"), pool.call(test("calls")));
+        }
+    }
+
+    /**
+     * Tests that closing the pool kills a busy worker at once, and that the pool refuses calls after.
+     */
+    @Test
+    void testCloseWhileBusy(@TempDir Path dir) throws Exception {
+        PyWorkerPool pool = new PyWorkerPool("python3", WORKER, submission(dir, MODES), "f", 1,
+                Duration.ofSeconds(60));
+        CompletableFuture<PyCallResult> hung = CompletableFuture.supplyAsync(() -> {
+            try {
+                return pool.call(test("hang"));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(500);
+        pool.close();
+        assertEquals(PyCallResult.Status.CRASHED, hung.get(10, TimeUnit.SECONDS).status());
+        assertThrows(IllegalStateException.class, () -> pool.call(test("ok")));
+    }
+
+    /**
+     * Tests that no worker outlives the pool when close() races with calls that are returning their
+     * workers to it.
+     */
+    @Test
+    void testCloseWhileCalling(@TempDir Path dir) throws Exception {
+        Path submission = submission(dir, MODES);
+        Set<Long> pids = ConcurrentHashMap.newKeySet();
+        for (int round = 0; round < 10; round++) {
+            PyWorkerPool pool = new PyWorkerPool("python3", WORKER, submission, "f", 2, Duration.ofSeconds(10));
+            List<CompletableFuture<Void>> callers = new ArrayList<>();
+            for (int caller = 0; caller < 2; caller++) {
+                callers.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        while (true) {
+                            PyCallResult result = pool.call(test("pid"));
+                            if (result.isReturned()) {
+                                pids.add(Long.parseLong(result.output()));
+                            }
+                        }
+                    } catch (IllegalStateException | InterruptedException e) {
+                        // the pool is closed
+                    }
+                }));
+            }
+            Thread.sleep(200 + 20 * round);
+            pool.close();
+            for (CompletableFuture<Void> caller : callers) {
+                caller.get(10, TimeUnit.SECONDS);
+            }
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        for (long pid : pids) {
+            Optional<ProcessHandle> worker = ProcessHandle.of(pid);
+            while (worker.isPresent() && worker.get().isAlive() && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+            }
+            assertFalse(worker.isPresent() && worker.get().isAlive(), "worker " + pid + " is still running");
+        }
+    }
+
+    /**
+     * Tests that the arguments of every type reach the function as the values they stand for, through
+     * the binary encoding of PyObjEncoder and decode() in pyworker.py.
+     */
+    @Test
+    void testDecodeArguments(@TempDir Path dir) throws IOException, InterruptedException {
+        TestCase test = new TestCase(List.of(new PyIntObj(7), new PyIntObj(Integer.MIN_VALUE),
+                new PyFloatObj(-2.5), new PyBoolObj(true), new PyStringObj("caf\u00e9 'q'\n"),
+                new PyListObj<>(List.of(new PyIntObj(1), new PyTupleObj<>(List.of(new PyIntObj(2))))),
+                new PyTupleObj<>(List.of()), new PySetObj<>(Set.of(new PyIntObj(3))),
+                new PyDictObj<>(Map.of(new PyStringObj("k"), new PyListObj<>(List.of(new PyBoolObj(false)))))));
+        try (PyWorkerPool pool = new PyWorkerPool("python3", WORKER,
+                submission(dir, "def f(*args):\n    return args\n"), "f", 1, Duration.ofSeconds(2))) {
+            assertEquals(PyCallResult.returned("(7, -2147483648, -2.5, True, \"caf\u00e9 'q'\\n\", [1, (2,)], (), "
+                    + "{3}, {'k': [False]})"), pool.call(test));
+        }
+    }
+
+    /**
+     * Writes a submission.
+     *
+     * @param dir the directory to write it in
+     * @param source its source
+     * @return its path
+     * @throws IOException if it cannot be written
+     */
+    static Path submission(Path dir, String source) throws IOException {
+        return Files.writeString(dir.resolve("submission.py"), source);
+    }
+
+    /**
+     * @param mode the argument of f
+     * @return the test case calling f(mode)
+     */
+    static TestCase test(String mode) {
+        return new TestCase(List.of(new PyStringObj(mode)));
+    }
+}
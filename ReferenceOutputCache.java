@@ -0,0 +1,397 @@
+package main.rice.test;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import main.rice.obj.PyObjEncoder;
+
+/**
+ * ReferenceOutputCache is a persistent cache of the outcomes of the reference solution, so a grading run
+ * whose reference, function and test cases did not change can skip running the reference.
+ * The key of an outcome is the SHA-256 of the reference file's content hash, the function name and the
+ * test case's arguments (see key()). The outcomes live in an append-only segment file in the cache
+ * directory, indexed in memory. Each record is the key (32 bytes), the status (byte), the output length
+ * (int) and the UTF-8 output.
+ * The live records are capped at maxBytes: past the cap, the least recently used ones are dropped from the
+ * index, and once the file holds twice the cap, it is compacted into a new file that holds only the live
+ * records (least recently used first, so a reload keeps their order).
+ * The methods are synchronized, and writes (and compaction) also hold a lock on a file in the directory,
+ * so several grading processes can share a cache: each catches up on the others' records before it
+ * writes, and on refresh(). Use one instance per directory in each process.
+ */
+public class ReferenceOutputCache implements Closeable {
+    private static final int MAGIC = 0x52454643;
+    private static final int HEADER_BYTES = 4;
+    private static final int KEY_BYTES = 32;
+    private static final int RECORD_HEADER_BYTES = KEY_BYTES + 1 + 4;
+    private static final PyCallResult.Status[] STATUSES = PyCallResult.Status.values();
+
+    /**
+     * Where a live record is in the segment file.
+     * @param offset the position of the record
+     * @param outputBytes the length of its output
+     */
+    private record Entry(long offset, int outputBytes) {
+        /**
+         * @return the size of the record, in bytes
+         */
+        long size() {
+            return RECORD_HEADER_BYTES + (long) outputBytes;
+        }
+    }
+
+    private final Path segment;
+    private final long maxBytes;
+    private final FileChannel lockChannel;
+    /**
+     * The live records, least recently used first.
+     */
+    private final LinkedHashMap<ByteBuffer, Entry> index = new LinkedHashMap<>(16, 0.75f, true);
+    private FileChannel channel;
+    private Object fileKey;
+    private long end;
+    private long liveBytes;
+    private long hits;
+    private long misses;
+
+    /**
+     * It's a constructor set for ReferenceOutputCache; opens the cache in a directory, creating it if
+     * needed, and loads its index.
+     * @param directory: the cache directory
+     * @param maxBytes: the most bytes of live records to keep
+     * @throws IOException if the cache cannot be opened
+     */
+    public ReferenceOutputCache(Path directory, long maxBytes) throws IOException {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be positive");
+        }
+        Files.createDirectories(directory);
+        this.segment = directory.resolve("reference.seg");
+        this.maxBytes = maxBytes;
+        this.lockChannel = FileChannel.open(directory.resolve("reference.lock"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            FileLock lock = lockChannel.lock();
+            try {
+                reopen();
+            } finally {
+                lock.release();
+            }
+        } catch (IOException | RuntimeException e) {
+            closeFiles();
+            throw e;
+        }
+    }
+
+    /**
+     * the method computes the key of an outcome.
+     *
+     * @param referenceHash the hash of the reference's content (see contentHash)
+     * @param funcName the name of the function under test
+     * @param test the test case
+     * @return the 32-byte key
+     */
+    public static byte[] key(byte[] referenceHash, String funcName, TestCase test) {
+        MessageDigest digest = sha256();
+        digest.update(referenceHash);
+        byte[] name = funcName.getBytes(StandardCharsets.UTF_8);
+        digest.update(ByteBuffer.allocate(4).putInt(name.length).array());
+        digest.update(name);
+        digest.update(PyObjEncoder.encodeArgs(test.getArgs()));
+        return digest.digest();
+    }
+
+    /**
+     * the method hashes the content of a file.
+     *
+     * @param file the file, e.g. the reference solution
+     * @return its SHA-256
+     * @throws IOException if the file cannot be read
+     */
+    public static byte[] contentHash(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[1 << 16];
+            for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Looks up an outcome, and marks it as recently used.
+     *
+     * @param key the key (see key())
+     * @return the cached outcome, or null if there is none
+     * @throws IOException if the segment file cannot be read
+     */
+    public synchronized PyCallResult get(byte[] key) throws IOException {
+        Entry entry = index.get(ByteBuffer.wrap(key));
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        ByteBuffer record = ByteBuffer.allocate(1 + 4 + entry.outputBytes());
+        readFully(record, entry.offset() + KEY_BYTES);
+        record.flip();
+        PyCallResult.Status status = STATUSES[record.get()];
+        record.getInt();
+        hits++;
+        return new PyCallResult(status, StandardCharsets.UTF_8.decode(record).toString());
+    }
+
+    /**
+     * Indexes the outcomes other processes stored since this cache last looked at the file.
+     *
+     * @throws IOException if the segment file cannot be read
+     */
+    public synchronized void refresh() throws IOException {
+        FileLock lock = lockChannel.lock();
+        try {
+            catchUp();
+        } finally {
+            lock.release();
+        }
+    }
+
+    /**
+     * Stores one outcome.
+     *
+     * @param key the key (see key())
+     * @param result the outcome
+     * @throws IOException if the segment file cannot be written
+     */
+    public void put(byte[] key, PyCallResult result) throws IOException {
+        putAll(List.of(key), List.of(result));
+    }
+
+    /**
+     * Stores several outcomes, taking the file lock once.
+     *
+     * @param keys the keys (see key())
+     * @param results the outcome of each key
+     * @throws IOException if the segment file cannot be written
+     */
+    public synchronized void putAll(List<byte[]> keys, List<PyCallResult> results) throws IOException {
+        FileLock lock = lockChannel.lock();
+        try {
+            catchUp();
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream records = new DataOutputStream(bytes);
+            Map<ByteBuffer, Entry> added = new LinkedHashMap<>();
+            for (int i = 0; i < keys.size(); i++) {
+                ByteBuffer key = ByteBuffer.wrap(keys.get(i).clone());
+                if (key.remaining() != KEY_BYTES) {
+                    throw new IllegalArgumentException("a key must have " + KEY_BYTES + " bytes");
+                }
+                if (index.containsKey(key) || added.containsKey(key)) {
+                    continue; // e.g. another process stored it first
+                }
+                byte[] output = results.get(i).output().getBytes(StandardCharsets.UTF_8);
+                added.put(key, new Entry(end + records.size(), output.length));
+                records.write(key.array());
+                records.writeByte(results.get(i).status().ordinal());
+                records.writeInt(output.length);
+                records.write(output);
+            }
+            writeFully(ByteBuffer.wrap(bytes.toByteArray()), end);
+            end += records.size();
+            for (Map.Entry<ByteBuffer, Entry> entry : added.entrySet()) {
+                index(entry.getKey(), entry.getValue());
+            }
+            if (end - HEADER_BYTES > 2 * maxBytes) {
+                compact();
+            }
+        } finally {
+            lock.release();
+        }
+    }
+
+    /**
+     * @return the number of get() calls that found an outcome
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of get() calls that found none
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the number of outcomes in the cache
+     */
+    public synchronized int size() {
+        return index.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closeFiles();
+    }
+
+    /**
+     * the method closes the segment file and the lock file.
+     *
+     * @throws IOException if a file cannot be closed
+     */
+    private void closeFiles() throws IOException {
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } finally {
+            lockChannel.close();
+        }
+    }
+
+    /**
+     * the method adds a record to the index, and drops the least recently used records past the cap.
+     *
+     * @param key the key of the record
+     * @param entry where it is
+     */
+    private void index(ByteBuffer key, Entry entry) {
+        Entry old = index.put(key, entry);
+        if (old != null) {
+            liveBytes -= old.size();
+        }
+        liveBytes += entry.size();
+        Iterator<Entry> eldest = index.values().iterator();
+        while (liveBytes > maxBytes && index.size() > 1) {
+            liveBytes -= eldest.next().size();
+            eldest.remove();
+        }
+    }
+
+    /**
+     * the method (re)opens the segment file, creating it if needed, and loads the index from scratch. The
+     * caller holds the file lock.
+     *
+     * @throws IOException if the file cannot be read or is not a segment file
+     */
+    private void reopen() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+        channel = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        fileKey = Files.readAttributes(segment, BasicFileAttributes.class).fileKey();
+        index.clear();
+        liveBytes = 0;
+        if (channel.size() < HEADER_BYTES) {
+            channel.truncate(0);
+            writeFully(ByteBuffer.allocate(HEADER_BYTES).putInt(0, MAGIC), 0);
+        } else {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            readFully(header, 0);
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException(segment + " is not a reference output cache");
+            }
+        }
+        end = HEADER_BYTES;
+        catchUp();
+    }
+
+    /**
+     * the method indexes the records other processes appended since we last looked, or reloads the file
+     * if another process compacted it, and cuts off a record left incomplete by a crash, or whose header
+     * is corrupt, along with everything after it. The caller holds the file lock.
+     *
+     * @throws IOException if the file cannot be read
+     */
+    private void catchUp() throws IOException {
+        if (!Objects.equals(fileKey, Files.readAttributes(segment, BasicFileAttributes.class).fileKey())) {
+            reopen();
+            return;
+        }
+        long size = channel.size();
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Channels.newInputStream(channel.position(end)), 1 << 16));
+        byte[] key = new byte[KEY_BYTES];
+        while (end + RECORD_HEADER_BYTES <= size) {
+            in.readFully(key);
+            int status = in.readByte();
+            int outputBytes = in.readInt();
+            if (status < 0 || status >= STATUSES.length || outputBytes < 0
+                    || end + RECORD_HEADER_BYTES + outputBytes > size) {
+                break;
+            }
+            in.skipNBytes(outputBytes);
+            index(ByteBuffer.wrap(key.clone()), new Entry(end, outputBytes));
+            end += RECORD_HEADER_BYTES + outputBytes;
+        }
+        if (end < size) {
+            channel.truncate(end);
+        }
+    }
+
+    /**
+     * the method rewrites the segment file with only the live records, least recently used first, and
+     * swaps it in atomically. The caller holds the file lock.
+     *
+     * @throws IOException if the new file cannot be written
+     */
+    private void compact() throws IOException {
+        Path temp = segment.resolveSibling(segment.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            out.write(ByteBuffer.allocate(HEADER_BYTES).putInt(0, MAGIC));
+            for (Entry entry : index.values()) {
+                for (long copied = 0; copied < entry.size(); ) {
+                    copied += channel.transferTo(entry.offset() + copied, entry.size() - copied, out);
+                }
+            }
+            out.force(true);
+        }
+        Files.move(temp, segment, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        // reloading puts the records back in the same order, and catches nothing new, as we hold the lock
+        reopen();
+    }
+
+    /**
+     * @param buffer filled from the segment file
+     * @param position where to read from
+     * @throws IOException if the file ends first
+     */
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("the reference output cache is truncated");
+            }
+        }
+    }
+
+    /**
+     * @param buffer written to the segment file
+     * @param position where to write it
+     * @throws IOException if it cannot be written
+     */
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+
+    /**
+     * @return a new SHA-256 digest
+     */
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("every JVM has SHA-256", e);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package test.rice.test;
+
+import main.rice.obj.PyIntObj;
+import main.rice.test.PyCallResult;
+import main.rice.test.ReferenceOutputCache;
+import main.rice.test.TestCase;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test cases for the ReferenceOutputCache class.
+ */
+class ReferenceOutputCacheTest {
+
+    /**
+     * The size of a record whose output is one byte.
+     */
+    private static final int RECORD = 32 + 1 + 4 + 1;
+
+    /**
+     * Tests that a stored outcome is found again, also after reopening the cache, and that a missing one
+     * is not.
+     */
+    @Test
+    void testPutGet(@TempDir Path dir) throws IOException {
+        PyCallResult raised = new PyCallResult(PyCallResult.Status.RAISED, "ValueError: \u00e9");
+        try (ReferenceOutputCache cache = new ReferenceOutputCache(dir, 1 << 20)) {
+            cache.put(key(1), PyCallResult.returned("[1, 2]"));
+            cache.put(key(2), raised);
+            assertEquals(PyCallResult.returned("[1, 2]"), cache.get(key(1)));
+            assertNull(cache.get(key(3)));
+            assertEquals(1, cache.getHits());
+            assertEquals(1, cache.getMisses());
+        }
+        try (ReferenceOutputCache cache = new ReferenceOutputCache(dir, 1 << 20)) {
+            assertEquals(2, cache.size());
+            assertEquals(raised, cache.get(key(2)));
+        }
+    }
+
+    /**
+     * Tests that the key depends on the reference, the function and the arguments.
+     */
+    @Test
+    void testKey() {
+        TestCase test = new TestCase(List.of(new PyIntObj(1)));
+        byte[] key = ReferenceOutputCache.key(new byte[32], "f", test);
+        assertArrayEquals(key, ReferenceOutputCache.key(new byte[32], "f", new TestCase(List.of(new PyIntObj(1)))));
+        assertFalse(Arrays.equals(key, ReferenceOutputCache.key(new byte[32], "g", test)));
+        assertFalse(Arrays.equals(key, ReferenceOutputCache.key(new byte[] {1}, "f", test)));
+        assertFalse(Arrays.equals(key, key(2)));
+    }
+
+    /**
+     * Tests that the least recently used outcome is dropped once the cap is reached.
+     */
+    @Test
+    void testEvictsLeastRecentlyUsed(@TempDir Path dir) throws IOException {
+        try (ReferenceOutputCache cache = new ReferenceOutputCache(dir, 2 * RECORD)) {
+            cache.put(key(1), PyCallResult.returned("a"));
+            cache.put(key(2), PyCallResult.returned("b"));
+            cache.get(key(1));
+            cache.put(key(3), PyCallResult.returned("c"));
+            assertEquals(2, cache.size());
+            assertNull(cache.get(key(2)));
+            assertEquals(PyCallResult.returned("a"), cache.get(key(1)));
+            assertEquals(PyCallResult.returned("c"), cache.get(key(3)));
+        }
+    }
+
+    /**
+     * Tests that the segment file is compacted to the live outcomes, and keeps them across reopening.
+     */
+    @Test
+    void testCompaction(@TempDir Path dir) throws IOException {
+        try (ReferenceOutputCache cache = new ReferenceOutputCache(dir, 3 * RECORD)) {
+            for (int i = 0; i < 100; i++) {
+                cache.put(key(i), PyCallResult.returned(Integer.toString(i % 10)));
+            }
+        }
+        assertTrue(Files.size(dir.resolve("reference.seg")) <= 4 + 7 * RECORD);
+        try (ReferenceOutputCache cache = new ReferenceOutputCache(dir, 3 * RECORD)) {
+            assertEquals(3, cache.size());
+            for (int i = 97; i < 100; i++) {
+                assertEquals(PyCallResult.returned(Integer.toString(i % 10)), cache.get(key(i)));
+            }
+        }
+    }
+
+    /**
+     * Tests that two caches on the same directory see each other's outcomes.
+     */
+    @Test
+    void testShared(@TempDir Path dir) throws IOException {
+        try (ReferenceOutputCache first = new ReferenceOutputCache(dir, 1 << 20);
+             ReferenceOutputCache second = new ReferenceOutputCache(dir, 1 << 20)) {
+            first.put(key(1), PyCallResult.returned("1"));
+            assertNull(second.get(key(1)));
+            second.refresh();
+            assertEquals(PyCallResult.returned("1"), second.get(key(1)));
+            second.put(key(2), PyCallResult.returned("2"));
+            first.put(key(3), PyCallResult.returned("3"));
+            assertEquals(PyCallResult.returned("2"), first.get(key(2)));
+        }
+    }
+
+    /**
+     * Tests that a record cut short by a crash is dropped, and the cache stays usable.
+     */
+    @Test
+    void testTornRecord(@TempDir Path dir) throws IOException {
+        try (ReferenceOutputCache cache = new ReferenceOutputCache(dir, 1 << 20)) {
+            cache.put(key(1), PyCallResult.returned("1"));
+        }
+        try (OutputStream out = Files.newOutputStream(dir.resolve("reference.seg"), StandardOpenOption.APPEND)) {
+            out.write(key(2));
+            out.write(new byte[] {0, 0, 0});
+        }
+        try (ReferenceOutputCache cache = new ReferenceOutputCache(dir, 1 << 20)) {
+            assertEquals(1, cache.size());
+            cache.put(key(2), PyCallResult.returned("2"));
+            assertEquals(PyCallResult.returned("2"), cache.get(key(2)));
+        }
+        try (ReferenceOutputCache cache = new ReferenceOutputCache(dir, 1 << 20)) {
+            assertEquals(2, cache.size());
+        }
+    }
+
+    /**
+     * Tests that a record with a negative output length is treated as a corrupt tail: it and everything
+     * after it are cut off, and the records before it stay.
+     */
+    @Test
+    void testNegativeLength(@TempDir Path dir) throws IOException {
+        for (int length : new int[] {-1, -(32 + 1 + 4)}) {
+            try (ReferenceOutputCache cache = new ReferenceOutputCache(dir, 1 << 20)) {
+                cache.put(key(1), PyCallResult.returned("1"));
+            }
+            try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(dir.resolve("reference.seg"),
+                    StandardOpenOption.APPEND))) {
+                out.write(key(2));
+                out.writeByte(0);
+                out.writeInt(length);
+                out.write(key(3));
+            }
+            try (ReferenceOutputCache cache = new ReferenceOutputCache(dir, 1 << 20)) {
+                assertEquals(1, cache.size());
+                assertEquals(PyCallResult.returned("1"), cache.get(key(1)));
+                assertNull(cache.get(key(2)));
+                cache.put(key(2), PyCallResult.returned("2"));
+            }
+            assertEquals(4 + 2 * RECORD, Files.size(dir.resolve("reference.seg")));
+            try (ReferenceOutputCache cache = new ReferenceOutputCache(dir, 1 << 20)) {
+                assertEquals(PyCallResult.returned("2"), cache.get(key(2)));
+            }
+            Files.delete(dir.resolve("reference.seg"));
+        }
+    }
+
+    /**
+     * Builds the key of a test case with a single int argument.
+     *
+     * @param arg the argument
+     * @return the key
+     */
+    private static byte[] key(int arg) {
+        return ReferenceOutputCache.key(new byte[32], "f", new TestCase(List.of(new PyIntObj(arg))));
+    }
+}
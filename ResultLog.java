@@ -0,0 +1,95 @@
+package main.rice.test;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * ResultLog is an append-only file of test results, written while the base tests run (possibly over
+ * days) and read back by streaming consumers such as StreamingSetCover. Each record is 9 bytes: the test
+ * case index (int), the submission index (int), and whether the submission failed the test case (byte).
+ * Every (test case, submission) cell should be logged once. A record cut short by a crash at the end of
+ * the file is ignored when reading.
+ */
+public class ResultLog implements Closeable {
+    /**
+     * The size of one record, in bytes.
+     */
+    public static final int RECORD_BYTES = 9;
+
+    /**
+     * RecordVisitor receives the records of a log, in the order they were appended.
+     */
+    @FunctionalInterface
+    public interface RecordVisitor {
+        /**
+         * @param test the index of the test case
+         * @param file the index of the submission
+         * @param failed true if the submission failed the test case, false otherwise
+         */
+        void visit(int test, int file, boolean failed);
+    }
+
+    private final DataOutputStream out;
+
+    /**
+     * It's a constructor set for ResultLog; opens the log for appending, creating it if needed.
+     * @param path: the log file
+     * @throws IOException if the file cannot be opened
+     */
+    public ResultLog(Path path) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)));
+    }
+
+    /**
+     * Appends one result.
+     * @param test the index of the test case
+     * @param file the index of the submission
+     * @param failed true if the submission failed the test case, false otherwise
+     * @throws IOException if the record cannot be written
+     */
+    public void append(int test, int file, boolean failed) throws IOException {
+        out.writeInt(test);
+        out.writeInt(file);
+        out.writeByte(failed ? 1 : 0);
+    }
+
+    /**
+     * Writes the buffered records to the file.
+     * @throws IOException if they cannot be written
+     */
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    /**
+     * Streams every complete record of a log, with a bounded buffer.
+     * @param path the log file
+     * @param visitor receives the records
+     * @throws IOException if the file cannot be read
+     */
+    public static void forEach(Path path, RecordVisitor visitor) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path), 1 << 16)) {
+            byte[] record = new byte[RECORD_BYTES];
+            while (in.readNBytes(record, 0, RECORD_BYTES) == RECORD_BYTES) {
+                visitor.visit(readInt(record, 0), readInt(record, 4), record[8] != 0);
+            }
+        }
+    }
+
+    /**
+     * @param bytes a buffer
+     * @param offset where a big-endian int starts in it
+     * @return the int
+     */
+    private static int readInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF) << 24 | (bytes[offset + 1] & 0xFF) << 16 |
+                (bytes[offset + 2] & 0xFF) << 8 | (bytes[offset + 3] & 0xFF);
+    }
+}
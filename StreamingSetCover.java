@@ -0,0 +1,214 @@
+package main.rice.concisegen;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import main.rice.test.*;
+
+/**
+ * StreamingSetCover finds a concise set from a ResultLog that is too large to hold in memory, reading the
+ * log sequentially several times and keeping only O(test cases + submissions) state.
+ * It is threshold greedy (in the style of sieve streaming): with a threshold tau starting at the largest
+ * number of submissions any test case catches, each pass over the log
+ * 1) computes the exact gain of every test case (uncovered submissions it catches), and
+ * 2) ranks the candidates whose last known gain is at least tau; every uncovered submission is claimed by
+ *    the first-ranked candidate catching it, and a candidate is picked if it claims at least tau
+ *    submissions. The submissions it claims are caught by no earlier-ranked candidate, so its gain given
+ *    the picks before it is at least tau.
+ * A second pass then marks the submissions caught by the picked test cases as covered. Passes repeat at
+ * the same tau while some candidate may still reach it, and tau shrinks by a factor (1 + epsilon) once
+ * every exact gain is below it.
+ * Guarantee: every pick catches at least 1 / (1 + epsilon) times the largest gain available at that
+ * point, so the cover has at most (1 + epsilon)(ln n + 1) times as many test cases as a minimum one,
+ * where n is the number of buggy submissions. The number of passes is about
+ * log_(1 + epsilon)(n) times a small constant.
+ */
+public class StreamingSetCover {
+    /**
+     * The outcome of the streaming run.
+     * @param cover the indices of the test cases of the cover, in the order they were picked
+     * @param wrongSet the submissions that failed at least one test case
+     * @param passes the number of passes over the log
+     */
+    public record Result(List<Integer> cover, BitSet wrongSet, int passes) {
+    }
+
+    private final Path log;
+    private int passes;
+
+    private int numCases;
+    private BitSet uncovered = new BitSet();
+    /**
+     * The last known gain of each test case; always an upper bound on its current gain.
+     */
+    private int[] gains = new int[0];
+    private boolean[] picked = new boolean[0];
+
+    /**
+     * It's a constructor set for StreamingSetCover
+     * @param log: the result log
+     */
+    private StreamingSetCover(Path log) {
+        this.log = log;
+    }
+
+    /**
+     * the method finds a concise set from a result log.
+     *
+     * @param log the result log; every (test case, submission) cell should appear at most once
+     * @param epsilon how far below the best gain a pick may be, relatively (e.g. 0.1); larger is fewer passes
+     * @return the cover, the buggy submissions, and the number of passes over the log
+     * @throws IOException if the log cannot be read
+     */
+    public static Result solve(Path log, double epsilon) throws IOException {
+        if (!(epsilon > 0)) {
+            throw new IllegalArgumentException("epsilon must be positive: " + epsilon);
+        }
+        return new StreamingSetCover(log).run(epsilon);
+    }
+
+    /**
+     * the method runs the passes.
+     *
+     * @param epsilon the approximation slack
+     * @return the result
+     * @throws IOException if the log cannot be read
+     */
+    private Result run(double epsilon) throws IOException {
+        countPass();
+        BitSet wrongSet = (BitSet) uncovered.clone();
+        List<Integer> cover = new ArrayList<>();
+
+        double tau = maxGain();
+        while (tau > 0) {
+            List<Integer> candidates = new ArrayList<>();
+            for (int test = 0; test < numCases; test++) {
+                if (!picked[test] && gains[test] >= tau) {
+                    candidates.add(test);
+                }
+            }
+            if (candidates.isEmpty()) {
+                // every gain is exact and below tau: lower it, skipping the levels nothing can reach
+                int maxGain = maxGain();
+                if (maxGain == 0) {
+                    break;
+                }
+                while (tau > maxGain) {
+                    tau /= 1 + epsilon;
+                }
+                continue;
+            }
+
+            // highest last known gain first, lowest index among ties
+            candidates.sort((a, b) -> gains[a] != gains[b] ? gains[b] - gains[a] : a - b);
+            List<Integer> picks = rankPass(candidates, tau);
+            for (int test : picks) {
+                picked[test] = true;
+                cover.add(test);
+            }
+            if (!picks.isEmpty()) {
+                coverPass(picks);
+            }
+        }
+        return new Result(cover, wrongSet, passes);
+    }
+
+    /**
+     * the method reads the log once to size the state: the number of test cases, the buggy submissions
+     * (all uncovered at first), and the number of them each test case catches.
+     *
+     * @throws IOException if the log cannot be read
+     */
+    private void countPass() throws IOException {
+        passes++;
+        ResultLog.forEach(log, (test, file, failed) -> {
+            if (test >= gains.length) {
+                gains = Arrays.copyOf(gains, Math.max(test + 1, gains.length * 2));
+            }
+            numCases = Math.max(numCases, test + 1);
+            if (failed) {
+                gains[test]++;
+                uncovered.set(file);
+            }
+        });
+        gains = Arrays.copyOf(gains, numCases);
+        picked = new boolean[numCases];
+    }
+
+    /**
+     * the method reads the log once to refresh every gain and to pick the candidates that claim at least
+     * tau uncovered submissions.
+     *
+     * @param candidates the candidates, in rank order
+     * @param tau the threshold
+     * @return the picked candidates, in rank order
+     * @throws IOException if the log cannot be read
+     */
+    private List<Integer> rankPass(List<Integer> candidates, double tau) throws IOException {
+        passes++;
+        int[] rank = new int[numCases];
+        Arrays.fill(rank, Integer.MAX_VALUE);
+        for (int i = 0; i < candidates.size(); i++) {
+            rank[candidates.get(i)] = i;
+        }
+        // the rank of the first candidate catching each uncovered submission
+        int[] minRank = new int[uncovered.length()];
+        Arrays.fill(minRank, Integer.MAX_VALUE);
+        int[] fresh = new int[numCases];
+
+        ResultLog.forEach(log, (test, file, failed) -> {
+            if (failed && uncovered.get(file)) {
+                fresh[test]++;
+                minRank[file] = Math.min(minRank[file], rank[test]);
+            }
+        });
+        gains = fresh;
+
+        int[] claimed = new int[candidates.size()];
+        for (int file = uncovered.nextSetBit(0); file >= 0; file = uncovered.nextSetBit(file + 1)) {
+            if (minRank[file] != Integer.MAX_VALUE) {
+                claimed[minRank[file]]++;
+            }
+        }
+        List<Integer> picks = new ArrayList<>();
+        for (int i = 0; i < claimed.length; i++) {
+            if (claimed[i] >= tau) {
+                picks.add(candidates.get(i));
+            }
+        }
+        return picks;
+    }
+
+    /**
+     * the method reads the log once to mark the submissions caught by the picked test cases as covered.
+     *
+     * @param picks the test cases picked in the last rank pass
+     * @throws IOException if the log cannot be read
+     */
+    private void coverPass(List<Integer> picks) throws IOException {
+        passes++;
+        boolean[] isPick = new boolean[numCases];
+        for (int test : picks) {
+            isPick[test] = true;
+        }
+        BitSet stillUncovered = (BitSet) uncovered.clone();
+        ResultLog.forEach(log, (test, file, failed) -> {
+            if (failed && isPick[test]) {
+                stillUncovered.clear(file);
+            }
+        });
+        uncovered = stillUncovered;
+    }
+
+    /**
+     * @return the largest last known gain of a test case that has not been picked
+     */
+    private int maxGain() {
+        int max = 0;
+        for (int test = 0; test < numCases; test++) {
+            if (!picked[test]) {
+                max = Math.max(max, gains[test]);
+            }
+        }
+        return max;
+    }
+}
@@ -0,0 +1,45 @@
+package test.rice.concisegen;
+
+import main.rice.concisegen.ConciseSetGenerator;
+import main.rice.concisegen.StreamingSetCover;
+import main.rice.test.ResultLog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Test cases for the StreamingSetCover class.
+ */
+class StreamingSetCoverTest {
+
+    /**
+     * Tests that the streaming cover over a result log picks the same test cases as plain greedy would.
+     */
+    @Test
+    void testCoverFromLog(@TempDir Path dir) throws IOException {
+        // test 0 catches 0-3, test 1 catches 3-5, test 2 catches 0 and 4, test 3 catches 6; file 7 passes
+        int[][] rows = {{0, 1, 2, 3}, {3, 4, 5}, {0, 4}, {6}};
+        Path log = dir.resolve("results.log");
+        try (ResultLog writer = new ResultLog(log)) {
+            for (int file = 0; file < 8; file++) {
+                for (int test = 0; test < rows.length; test++) {
+                    boolean failed = false;
+                    for (int caught : rows[test]) {
+                        failed |= caught == file;
+                    }
+                    writer.append(test, file, failed);
+                }
+            }
+        }
+
+        StreamingSetCover.Result result = StreamingSetCover.solve(log, 0.1);
+        assertEquals(List.of(0, 1, 3), result.cover());
+        assertEquals(7, result.wrongSet().cardinality());
+        assertEquals(result.cover(), ConciseSetGenerator.setCoverIndices(log, 0.1));
+    }
+}
@@ -0,0 +1,225 @@
+package main.rice.test;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * SubmissionDeduplicator groups submissions whose sources are the same after normalization (see
+ * normalize()) into equivalence classes, so each class is executed once, on its first member (the
+ * representative), and its results are fanned back out to every member. The TestResults are then the
+ * same as if every submission had been run.
+ */
+public class SubmissionDeduplicator {
+    /**
+     * An encoding declaration, from the '#' on (PEP 263).
+     */
+    private static final Pattern CODING = Pattern.compile("#.*?coding[:=][ \\t]*[-\\w.]+");
+
+    private final List<Path> representatives = new ArrayList<>();
+    private final int[] classOf;
+
+    /**
+     * It's a constructor set for SubmissionDeduplicator; reads and groups the submissions.
+     * @param submissions: the paths of the submissions (file index i is submissions.get(i))
+     * @throws IOException if a submission cannot be read
+     */
+    public SubmissionDeduplicator(List<Path> submissions) throws IOException {
+        this.classOf = new int[submissions.size()];
+        Map<ByteBuffer, Integer> classes = new HashMap<>();
+        for (int file = 0; file < submissions.size(); file++) {
+            ByteBuffer fingerprint = ByteBuffer.wrap(fingerprint(submissions.get(file)));
+            Integer known = classes.putIfAbsent(fingerprint, representatives.size());
+            if (known == null) {
+                classOf[file] = representatives.size();
+                representatives.add(submissions.get(file));
+            } else {
+                classOf[file] = known;
+            }
+        }
+    }
+
+    /**
+     * @return the first submission of each class, in the order of the classes
+     */
+    public List<Path> getRepresentatives() {
+        return Collections.unmodifiableList(representatives);
+    }
+
+    /**
+     * @param file the index of a submission
+     * @return the index of its class (and of its representative)
+     */
+    public int classOf(int file) {
+        return classOf[file];
+    }
+
+    /**
+     * the method turns the results of running the representatives into the results of every submission.
+     *
+     * @param tests the test cases
+     * @param distinct the results with file index i = getRepresentatives().get(i)
+     * @return the results with file index i = the i-th submission
+     */
+    public TestResults fanOut(List<TestCase> tests, TestResults distinct) {
+        List<List<Integer>> members = new ArrayList<>();
+        for (int i = 0; i < representatives.size(); i++) {
+            members.add(new ArrayList<>());
+        }
+        for (int file = 0; file < classOf.length; file++) {
+            members.get(classOf[file]).add(file);
+        }
+
+        List<Set<Integer>> caseToFiles = new ArrayList<>();
+        for (Set<Integer> classes : distinct.getCaseToFiles()) {
+            Set<Integer> files = new HashSet<>();
+            for (int caught : classes) {
+                files.addAll(members.get(caught));
+            }
+            caseToFiles.add(files);
+        }
+        Set<Integer> wrongSet = new HashSet<>();
+        for (int wrong : distinct.getWrongSet()) {
+            wrongSet.addAll(members.get(wrong));
+        }
+        return new TestResults(tests, caseToFiles, wrongSet);
+    }
+
+    /**
+     * the method hashes the normalized source of a submission. A file that is not valid UTF-8 is hashed
+     * as it is.
+     *
+     * @param submission the path of the submission
+     * @return the SHA-256 of its normalized source
+     * @throws IOException if it cannot be read
+     */
+    public static byte[] fingerprint(Path submission) throws IOException {
+        byte[] bytes = Files.readAllBytes(submission);
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("every JVM has SHA-256", e);
+        }
+        try {
+            String source = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .decode(ByteBuffer.wrap(bytes))
+                    .toString();
+            digest.update((byte) 'n');
+            digest.update(normalize(source).getBytes(StandardCharsets.UTF_8));
+        } catch (CharacterCodingException e) {
+            // the tag keeps raw bytes apart from any normalized source
+            digest.update((byte) 'r');
+            digest.update(bytes);
+        }
+        return digest.digest();
+    }
+
+    /**
+     * the method normalizes Python source in ways that cannot change what it does: it unifies line
+     * endings, drops comments, blank lines and trailing whitespace, and shrinks every other run of spaces
+     * or tabs within a line to one space. Indentation and the contents of strings (including docstrings)
+     * are kept as they are, and so is an encoding declaration (PEP 263: a comment line matching
+     * coding[:=] on one of the first two lines), since it changes how the rest of the file is read.
+     *
+     * @param source the source
+     * @return the normalized source
+     */
+    public static String normalize(String source) {
+        String text = source.replace("\r\n", "\n").replace('\r', '\n');
+        StringBuilder out = new StringBuilder(text.length());
+        int lineStart = 0;
+        boolean indent = true;
+        char quote = 0;
+        boolean triple = false;
+        int firstLine = text.indexOf('\n');
+        int secondLineEnd = firstLine < 0 ? text.length() : text.indexOf('\n', firstLine + 1);
+        if (secondLineEnd < 0) {
+            secondLineEnd = text.length();
+        }
+
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quote != 0) {
+                // inside a string: copy everything, and look for its end
+                out.append(c);
+                if (c == '\\' && i + 1 < text.length()) {
+                    out.append(text.charAt(++i));
+                } else if (c == '\n' && !triple) {
+                    quote = 0; // an unterminated string; the line is over anyway
+                    lineStart = out.length();
+                    indent = true;
+                } else if (c == quote && (!triple || text.startsWith(String.valueOf(quote).repeat(3), i))) {
+                    if (triple) {
+                        out.append(quote).append(quote);
+                        i += 2;
+                    }
+                    quote = 0;
+                }
+            } else if (c == '\n') {
+                endLine(out, lineStart);
+                lineStart = out.length();
+                indent = true;
+            } else if (c == '#') {
+                int end = text.indexOf('\n', i);
+                if (end < 0) {
+                    end = text.length();
+                }
+                if (indent && i < secondLineEnd && CODING.matcher(text).region(i, end).lookingAt()) {
+                    out.append(text, i, end);
+                }
+                i = end - 1;
+            } else if (c == ' ' || c == '\t') {
+                if (indent) {
+                    out.append(c);
+                } else {
+                    while (i + 1 < text.length() && (text.charAt(i + 1) == ' ' || text.charAt(i + 1) == '\t')) {
+                        i++;
+                    }
+                    out.append(' ');
+                }
+            } else {
+                indent = false;
+                out.append(c);
+                if (c == '\'' || c == '"') {
+                    quote = c;
+                    triple = text.startsWith(String.valueOf(c).repeat(3), i);
+                    if (triple) {
+                        out.append(c).append(c);
+                        i += 2;
+                    }
+                }
+            }
+        }
+        if (quote == 0) {
+            endLine(out, lineStart);
+        }
+        return out.toString();
+    }
+
+    /**
+     * the method ends a line of code: strips its trailing whitespace, and drops it if nothing is left.
+     *
+     * @param out the normalized source so far
+     * @param lineStart where the current line starts in out
+     */
+    private static void endLine(StringBuilder out, int lineStart) {
+        int end = out.length();
+        while (end > lineStart && (out.charAt(end - 1) == ' ' || out.charAt(end - 1) == '\t')) {
+            end--;
+        }
+        out.setLength(end);
+        if (end > lineStart) {
+            out.append('\n');
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package test.rice.test;
+
+import main.rice.obj.PyIntObj;
+import main.rice.test.SubmissionDeduplicator;
+import main.rice.test.TestCase;
+import main.rice.test.TestResults;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test cases for the SubmissionDeduplicator class.
+ */
+class SubmissionDeduplicatorTest {
+
+    /**
+     * Tests that comments, blank lines, line endings and extra spaces are normalized away, but
+     * indentation is not.
+     */
+    @Test
+    void testNormalize() {
+        String source = "def f(a,  b):\r\n"
+                + "    # sort them\r\n"
+                + "\r\n"
+                + "    return\tsorted(b)[:a]   # done\r\n";
+        assertEquals("def f(a, b):\n    return sorted(b)[:a]\n", SubmissionDeduplicator.normalize(source));
+        assertNotEquals(SubmissionDeduplicator.normalize("if x:\n    y()\n"),
+                SubmissionDeduplicator.normalize("if x:\n  y()\n"));
+    }
+
+    /**
+     * Tests that strings, including ones holding '#', quotes, or blank lines, are kept as they are.
+     */
+    @Test
+    void testNormalizeKeepsStrings() {
+        String source = "s = 'a  # b'  # c\n"
+                + "t = \"it's \\\" # \"\n"
+                + "u = '''x  \n\n  # y'''   \n";
+        assertEquals("s = 'a  # b'\nt = \"it's \\\" # \"\nu = '''x  \n\n  # y'''\n",
+                SubmissionDeduplicator.normalize(source));
+    }
+
+    /**
+     * Tests that an encoding declaration on one of the first two lines is kept, but not one further down
+     * or after code.
+     */
+    @Test
+    void testNormalizeKeepsCoding() {
+        String source = "#!/usr/bin/env python3\n"
+                + "# -*- coding: latin-1 -*-\n"
+                + "s = 'caf\u00e9'  # coding: utf-8\n"
+                + "# coding=ascii\n";
+        assertEquals("# -*- coding: latin-1 -*-\ns = 'caf\u00e9'\n", SubmissionDeduplicator.normalize(source));
+        assertNotEquals(SubmissionDeduplicator.normalize("# coding: latin-1\ns = 'caf\u00e9'\n"),
+                SubmissionDeduplicator.normalize("# coding: utf-8\ns = 'caf\u00e9'\n"));
+    }
+
+    /**
+     * Tests that the submissions are grouped by normalized source, and that the results of the classes
+     * are fanned back out to every submission.
+     */
+    @Test
+    void testGroupAndFanOut(@TempDir Path dir) throws IOException {
+        Path a = write(dir, "a.py", "def f(x):\n    return x\n");
+        Path b = write(dir, "b.py", "def f(x):\n    return x + 1\n");
+        Path c = write(dir, "c.py", "# copy of a\ndef f(x):\n    return x   \n\n");
+        Path d = write(dir, "d.py", "def f(x):\n\treturn x\n");
+        SubmissionDeduplicator classes = new SubmissionDeduplicator(List.of(a, b, c, d));
+        assertEquals(List.of(a, b, d), classes.getRepresentatives());
+        assertEquals(0, classes.classOf(2));
+        assertEquals(2, classes.classOf(3));
+
+        List<TestCase> tests = List.of(new TestCase(List.of(new PyIntObj(1))), new TestCase(List.of(new PyIntObj(2))));
+        // test 0 catches classes 0 and 1, test 1 catches class 1
+        List<Set<Integer>> caseToClasses = new ArrayList<>(List.of(Set.of(0, 1), Set.of(1)));
+        TestResults results = classes.fanOut(tests, new TestResults(tests, caseToClasses, Set.of(0, 1)));
+        assertEquals(List.of(Set.of(0, 1, 2), Set.of(1)), results.getCaseToFiles());
+        assertEquals(Set.of(0, 1, 2), results.getWrongSet());
+    }
+
+    /**
+     * Writes a submission.
+     *
+     * @param dir the directory
+     * @param name the file name
+     * @param source the source
+     * @return the path of the file
+     * @throws IOException if it cannot be written
+     */
+    private static Path write(Path dir, String name, String source) throws IOException {
+        return Files.writeString(dir.resolve(name), source);
+    }
+}
@@ -0,0 +1,449 @@
+package main.rice.test;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * TestExecutor runs every TestCase on the reference solution and on every submission, and collects the
+ * failures into a TestResults (file index i is submissions.get(i)).
+ * Every submission is a task on a virtual thread, and inside it every chunk of test cases is a subtask in
+ * its own per-submission executor, which is closed (joined) before the submission's results are merged,
+ * so no subtask outlives its submission. A submission has one runner, opened once and called by all of
+ * its subtasks at once, so it is imported once rather than once per chunk. Blocking on a child process
+ * only parks a virtual thread; the number of running calls of the runners (each a Python process) is
+ * bounded by a semaphore sized to the cores, so concurrency is limited by CPU rather than by threads.
+ * cancel() interrupts everything without waiting for it.
+ */
+public class TestExecutor {
+
+    /**
+     * RunnerFactory opens the runner of one submission (e.g. a PyWorkerPool or a BatchRunner).
+     */
+    @FunctionalInterface
+    public interface RunnerFactory {
+        /**
+         * @param submission the path of the submission
+         * @return a runner for it, which the caller closes
+         * @throws IOException if the runner cannot be started
+         */
+        APyRunner open(Path submission) throws IOException;
+    }
+
+    private final RunnerFactory factory;
+    private final Semaphore processes;
+    private final int chunkSize;
+    private volatile ExecutorService submissions;
+    private volatile boolean cancelled;
+    private final Set<APyRunner> openRunners = ConcurrentHashMap.newKeySet();
+    private ReferenceOutputCache referenceCache;
+    private String funcName;
+    private boolean deduplicate;
+    private OutputComparator comparator = new OutputComparator();
+    private volatile List<Integer> invalidTests = List.of();
+
+    /**
+     * It's a constructor set for TestExecutor
+     * @param factory: opens the runner of each submission
+     * @param maxProcesses: the largest number of runner calls (Python processes) running at once, e.g. the
+     *     number of cores
+     * @param chunkSize: the number of test cases each subtask runs in one call of the runner
+     */
+    public TestExecutor(RunnerFactory factory, int maxProcesses, int chunkSize) {
+        this.factory = factory;
+        this.processes = new Semaphore(maxProcesses);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * It's a constructor set for TestExecutor, with one process per core.
+     * @param factory: opens the runner of each submission
+     * @param chunkSize: the number of test cases each subtask runs in one call of the runner
+     */
+    public TestExecutor(RunnerFactory factory, int chunkSize) {
+        this(factory, Runtime.getRuntime().availableProcessors(), chunkSize);
+    }
+
+    /**
+     * Makes execute() take the outcomes of the reference from a cache, and run the reference only on the
+     * test cases the cache misses (whose outcomes it then stores).
+     * @param cache the cache
+     * @param funcName the name of the function under test, part of the cache key
+     */
+    public void useReferenceCache(ReferenceOutputCache cache, String funcName) {
+        this.referenceCache = cache;
+        this.funcName = funcName;
+    }
+
+    /**
+     * Makes execute() run each class of submissions that are the same after normalization once (see
+     * SubmissionDeduplicator), and copy its results to every submission of the class.
+     * @param deduplicate true to deduplicate, false to run every submission
+     */
+    public void useDeduplication(boolean deduplicate) {
+        this.deduplicate = deduplicate;
+    }
+
+    /**
+     * Makes execute() decide whether a submission passes a test case with the given comparator, e.g. one
+     * with other float tolerances, or a fresh one whose counters cover one run only.
+     * @param comparator the comparator
+     */
+    public void useComparator(OutputComparator comparator) {
+        this.comparator = comparator;
+    }
+
+    /**
+     * @return the comparator execute() uses, whose report() shows how many comparisons each tier settled
+     */
+    public OutputComparator getComparator() {
+        return comparator;
+    }
+
+    /**
+     * @return the indices of the test cases the last execute() left out because the reference timed out or
+     *     crashed on them (they catch no submission), in ascending order
+     */
+    public List<Integer> getInvalidTests() {
+        return invalidTests;
+    }
+
+    /**
+     * Runs the test cases on the reference and on every submission. A test case the reference does not
+     * return from or raise on is invalid: it is not run on the submissions, and catches none of them (see
+     * getInvalidTests()).
+     * @param reference the path of the reference solution
+     * @param submissionPaths the paths of the submissions
+     * @param tests the test cases
+     * @return the results: which submissions each test case catches, and which submissions fail any
+     * @throws InterruptedException if interrupted or cancelled
+     */
+    public TestResults execute(Path reference, List<Path> submissionPaths, List<TestCase> tests)
+            throws InterruptedException {
+        // a cancel() from here on, even before any test case runs, cancels this execution
+        cancelled = false;
+        if (deduplicate) {
+            SubmissionDeduplicator classes;
+            try {
+                classes = new SubmissionDeduplicator(submissionPaths);
+            } catch (IOException e) {
+                classes = null; // run them all; an unreadable submission crashes on its own
+            }
+            if (classes != null) {
+                return classes.fanOut(tests, executeAll(reference, classes.getRepresentatives(), tests));
+            }
+        }
+        return executeAll(reference, submissionPaths, tests);
+    }
+
+    /**
+     * the method runs the test cases on the reference and on every submission given.
+     *
+     * @param reference the path of the reference solution
+     * @param submissionPaths the paths of the submissions
+     * @param tests the test cases
+     * @return the results
+     * @throws InterruptedException if interrupted or cancelled
+     */
+    private TestResults executeAll(Path reference, List<Path> submissionPaths, List<TestCase> tests)
+            throws InterruptedException {
+        if (cancelled) {
+            throw new InterruptedException("cancelled");
+        }
+        List<PyCallResult> expected = referenceCache == null
+                ? run(reference, tests, null)
+                : cachedReference(reference, tests);
+        if (cancelled) {
+            throw new InterruptedException("cancelled");
+        }
+
+        // a test case the reference timed out or crashed on has no right answer, so it is not run on the
+        // submissions and catches none of them
+        List<Integer> valid = new ArrayList<>();
+        List<Integer> invalid = new ArrayList<>();
+        for (int test = 0; test < tests.size(); test++) {
+            PyCallResult.Status status = expected.get(test).status();
+            boolean answered = status == PyCallResult.Status.RETURNED || status == PyCallResult.Status.RAISED;
+            (answered ? valid : invalid).add(test);
+        }
+        invalidTests = Collections.unmodifiableList(invalid);
+        List<TestCase> validTests = new ArrayList<>(valid.size());
+        List<PyCallResult> validExpected = new ArrayList<>(valid.size());
+        // the runners compare an output as it arrives only when the byte tier settles it; the structural
+        // tier needs the whole output
+        List<PyCallResult> streamed = new ArrayList<>(valid.size());
+        for (int test : valid) {
+            validTests.add(tests.get(test));
+            validExpected.add(expected.get(test));
+            streamed.add(OutputComparator.isByteDecisive(expected.get(test)) ? expected.get(test) : null);
+        }
+
+        List<Set<Integer>> caseToFiles = new ArrayList<>();
+        for (int test = 0; test < tests.size(); test++) {
+            caseToFiles.add(new HashSet<>());
+        }
+        Set<Integer> wrongSet = new HashSet<>();
+        List<Future<BitSet>> failures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            submissions = executor;
+            for (Path submission : submissionPaths) {
+                failures.add(executor.submit(() -> failedTests(submission, validTests, validExpected, streamed)));
+            }
+            try {
+                for (int file = 0; file < failures.size(); file++) {
+                    BitSet failed = failures.get(file).get();
+                    for (int pos = failed.nextSetBit(0); pos >= 0; pos = failed.nextSetBit(pos + 1)) {
+                        caseToFiles.get(valid.get(pos)).add(file);
+                        wrongSet.add(file);
+                    }
+                }
+            } catch (ExecutionException | InterruptedException | CancellationException e) {
+                // closing the executor waits for its tasks, so stop them first
+                cancel();
+                throw e;
+            }
+        } catch (ExecutionException e) {
+            if (cancelled) {
+                throw new InterruptedException("cancelled"); // e.g. a runner refused a call once closed
+            }
+            throw new IllegalStateException("a submission task failed", e.getCause());
+        } catch (CancellationException e) {
+            throw new InterruptedException("cancelled");
+        } finally {
+            submissions = null;
+        }
+        return new TestResults(tests, caseToFiles, wrongSet);
+    }
+
+    /**
+     * Cancels a running execute() without waiting for it: interrupts every task, and closes every open
+     * runner, which kills the processes the tasks are blocked on. A cancel() before execute() is called has
+     * no effect on it.
+     */
+    public void cancel() {
+        cancelled = true;
+        ExecutorService executor = submissions;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        for (APyRunner runner : openRunners) {
+            runner.close();
+        }
+    }
+
+    /**
+     * the method runs the test cases on one submission, a chunk per subtask, all in the submission's one
+     * runner, and compares the outcomes with the reference.
+     *
+     * @param submission the path of the submission
+     * @param tests the test cases
+     * @param expected the outcome of each test case on the reference
+     * @param streamed the outcomes the runners may compare as the output arrives (null for the others)
+     * @return the indices of the test cases the submission fails
+     * @throws InterruptedException if interrupted
+     * @throws ExecutionException if a subtask failed
+     */
+    private BitSet failedTests(Path submission, List<TestCase> tests, List<PyCallResult> expected,
+                               List<PyCallResult> streamed) throws InterruptedException, ExecutionException {
+        BitSet failed = new BitSet(tests.size());
+        APyRunner runner;
+        try {
+            runner = open(submission);
+        } catch (IOException e) {
+            compare(expected, 0, crashed(tests.size(), e), failed);
+            return failed;
+        }
+
+        List<Future<List<PyCallResult>>> chunks = new ArrayList<>();
+        // the scope of the submission: closing it waits for every subtask (before the runner is closed),
+        // and interrupting the submission's thread shuts it down
+        try (runner; ExecutorService scope = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int from = 0; from < tests.size(); from += chunkSize) {
+                int to = Math.min(tests.size(), from + chunkSize);
+                List<TestCase> chunk = tests.subList(from, to);
+                List<PyCallResult> expectedChunk = streamed.subList(from, to);
+                chunks.add(scope.submit(() -> runIn(runner, chunk, expectedChunk)));
+            }
+
+            for (int i = 0; i < chunks.size(); i++) {
+                try {
+                    compare(expected, i * chunkSize, chunks.get(i).get(), failed);
+                } catch (InterruptedException e) {
+                    scope.shutdownNow();
+                    throw e;
+                }
+            }
+            return failed;
+        } finally {
+            openRunners.remove(runner);
+        }
+    }
+
+    /**
+     * the method compares the outcomes of consecutive test cases on a submission with the reference.
+     *
+     * @param expected the outcome of each test case on the reference
+     * @param from the index of the first of the test cases
+     * @param actual the outcome of each of them on the submission
+     * @param failed receives the indices of the test cases the submission fails
+     */
+    private void compare(List<PyCallResult> expected, int from, List<PyCallResult> actual, BitSet failed) {
+        for (int j = 0; j < actual.size(); j++) {
+            if (!comparator.passes(expected.get(from + j), actual.get(j))) {
+                failed.set(from + j);
+            }
+        }
+    }
+
+    /**
+     * the method looks up the outcomes of the reference in the cache, runs the reference on the test cases
+     * it misses, and stores their outcomes (unless the reference timed out or crashed). If the cache
+     * cannot be read, the reference runs on every test case.
+     *
+     * @param reference the path of the reference solution
+     * @param tests the test cases
+     * @return the outcome of each test case on the reference
+     * @throws InterruptedException if interrupted
+     */
+    private List<PyCallResult> cachedReference(Path reference, List<TestCase> tests) throws InterruptedException {
+        PyCallResult[] expected = new PyCallResult[tests.size()];
+        List<byte[]> missingKeys = new ArrayList<>();
+        List<Integer> missing = new ArrayList<>();
+        try {
+            byte[] referenceHash = ReferenceOutputCache.contentHash(reference);
+            referenceCache.refresh();
+            for (int test = 0; test < tests.size(); test++) {
+                byte[] key = ReferenceOutputCache.key(referenceHash, funcName, tests.get(test));
+                expected[test] = referenceCache.get(key);
+                if (expected[test] == null) {
+                    missingKeys.add(key);
+                    missing.add(test);
+                }
+            }
+        } catch (IOException e) {
+            return run(reference, tests, null);
+        }
+        if (missing.isEmpty()) {
+            return Arrays.asList(expected);
+        }
+
+        List<TestCase> missingTests = new ArrayList<>(missing.size());
+        for (int test : missing) {
+            missingTests.add(tests.get(test));
+        }
+        List<PyCallResult> ran = run(reference, missingTests, null);
+        List<byte[]> storeKeys = new ArrayList<>();
+        List<PyCallResult> store = new ArrayList<>();
+        for (int i = 0; i < missing.size(); i++) {
+            PyCallResult result = ran.get(i);
+            expected[missing.get(i)] = result;
+            if (result.status() == PyCallResult.Status.RETURNED || result.status() == PyCallResult.Status.RAISED) {
+                storeKeys.add(missingKeys.get(i));
+                store.add(result);
+            }
+        }
+        if (!cancelled) {
+            try {
+                referenceCache.putAll(storeKeys, store);
+            } catch (IOException e) {
+                // the outcomes are still right; the next run just won't find them
+            }
+        }
+        return Arrays.asList(expected);
+    }
+
+    /**
+     * the method runs test cases in a runner of their own.
+     *
+     * @param submission the path of the submission (or reference)
+     * @param tests the test cases
+     * @param expected the expected outcome of each test case, which the runner compares with the output
+     *     as it arrives, or null to keep every output
+     * @return the outcome of each test case
+     * @throws InterruptedException if interrupted or cancelled
+     */
+    private List<PyCallResult> run(Path submission, List<TestCase> tests, List<PyCallResult> expected)
+            throws InterruptedException {
+        APyRunner runner;
+        try {
+            runner = open(submission);
+        } catch (IOException e) {
+            return crashed(tests.size(), e);
+        }
+        try (runner) {
+            return runIn(runner, tests, expected);
+        } finally {
+            openRunners.remove(runner);
+        }
+    }
+
+    /**
+     * the method opens the runner of a submission, holding a process permit while it starts, and adds it
+     * to the open runners, which the caller removes it from.
+     *
+     * @param submission the path of the submission (or reference)
+     * @return the runner
+     * @throws IOException if the runner cannot be started
+     * @throws InterruptedException if interrupted or cancelled
+     */
+    private APyRunner open(Path submission) throws IOException, InterruptedException {
+        APyRunner runner;
+        processes.acquire();
+        try {
+            runner = factory.open(submission);
+        } finally {
+            processes.release();
+        }
+        openRunners.add(runner);
+        if (cancelled) {
+            // cancel() may have closed the open runners just before this one was added
+            openRunners.remove(runner);
+            runner.close();
+            throw new InterruptedException("cancelled");
+        }
+        return runner;
+    }
+
+    /**
+     * the method runs test cases in an open runner, holding a process permit while they run.
+     *
+     * @param runner the runner
+     * @param tests the test cases
+     * @param expected the expected outcome of each test case, or null
+     * @return the outcome of each test case
+     * @throws InterruptedException if interrupted
+     */
+    private List<PyCallResult> runIn(APyRunner runner, List<TestCase> tests, List<PyCallResult> expected)
+            throws InterruptedException {
+        processes.acquire();
+        try {
+            return runner.runAll(tests, expected);
+        } finally {
+            processes.release();
+        }
+    }
+
+    /**
+     * @param numTests the number of test cases
+     * @param e why the runner could not be started
+     * @return a CRASHED outcome for each of them
+     */
+    private static List<PyCallResult> crashed(int numTests, IOException e) {
+        return Collections.nCopies(numTests, new PyCallResult(PyCallResult.Status.CRASHED, e.getMessage()));
+    }
+
+    /**
+     * the method decides whether a submission passes a test case by the exact rule: it must have returned
+     * the same repr as the reference, or raised the same exception. A timeout or crash never passes.
+     * execute() uses an OutputComparator instead, which also accepts sets and dicts in another order and
+     * floats within a tolerance.
+     *
+     * @param expected the outcome on the reference
+     * @param actual the outcome on the submission
+     * @return true if the submission passes, false otherwise
+     */
+    public static boolean passes(PyCallResult expected, PyCallResult actual) {
+        return (actual.status() == PyCallResult.Status.RETURNED || actual.status() == PyCallResult.Status.RAISED)
+                && expected.equals(actual);
+    }
+}
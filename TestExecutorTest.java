@@ -0,0 +1,236 @@
+package test.rice.test;
+
+import main.rice.obj.PyIntObj;
+import main.rice.test.APyRunner;
+import main.rice.test.PyCallResult;
+import main.rice.test.TestCase;
+import main.rice.test.TestExecutor;
+import main.rice.test.TestResults;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test cases for the TestExecutor class, with runners that answer from a table instead of running Python.
+ */
+class TestExecutorTest {
+
+    /**
+     * The reference: it returns on test case 0, times out on 1, crashes on 2, and raises on 3.
+     */
+    private static final Path REFERENCE = Path.of("ref.py");
+
+    /**
+     * A submission that behaves like the reference.
+     */
+    private static final Path GOOD = Path.of("good.py");
+
+    /**
+     * A submission that returns the wrong value on every test case.
+     */
+    private static final Path BAD = Path.of("bad.py");
+
+    /**
+     * Tests that the test cases the reference times out or crashes on are left out: they are not run on
+     * the submissions and catch none of them, while the others still catch the wrong submission.
+     */
+    @Test
+    void testInvalidReferenceOutcomes() throws InterruptedException {
+        Map<Path, List<Integer>> calls = new ConcurrentHashMap<>();
+        TestExecutor executor = new TestExecutor(submission -> new TableRunner(submission, calls), 2, 1);
+        TestResults results = executor.execute(REFERENCE, List.of(GOOD, BAD), tests(4));
+
+        assertEquals(List.of(Set.of(1), Set.of(), Set.of(), Set.of(1)), results.getCaseToFiles());
+        assertEquals(Set.of(1), results.getWrongSet());
+        assertEquals(List.of(1, 2), executor.getInvalidTests());
+        assertEquals(List.of(0, 1, 2, 3), sorted(calls.get(REFERENCE)));
+        assertEquals(List.of(0, 3), sorted(calls.get(GOOD)));
+        assertEquals(List.of(0, 3), sorted(calls.get(BAD)));
+    }
+
+    /**
+     * Tests that each submission is run in one runner, shared by all of its chunks, and that every runner
+     * is closed once execute() returns.
+     */
+    @Test
+    void testOneRunnerPerSubmission() throws InterruptedException {
+        Map<Path, List<Integer>> calls = new ConcurrentHashMap<>();
+        List<TableRunner> opened = new CopyOnWriteArrayList<>();
+        TestExecutor executor = new TestExecutor(submission -> {
+            TableRunner runner = new TableRunner(submission, calls);
+            opened.add(runner);
+            return runner;
+        }, 4, 1);
+        TestResults results = executor.execute(REFERENCE, List.of(GOOD, BAD), tests(6));
+
+        // the reference, then each submission once, although each of them runs 4 chunks of 1 test case
+        assertEquals(Set.of(1), results.getWrongSet());
+        assertEquals(3, opened.size());
+        for (TableRunner runner : opened) {
+            assertTrue(runner.closed);
+        }
+        assertEquals(List.of(0, 3, 4, 5), sorted(calls.get(GOOD)));
+    }
+
+    /**
+     * Tests that cancel() stops an execute() whose runners are blocked, by closing them.
+     */
+    @Test
+    void testCancel() throws Exception {
+        TestExecutor executor = new TestExecutor(submission -> submission.equals(REFERENCE)
+                ? new TableRunner(submission, new ConcurrentHashMap<>()) : new BlockedRunner(), 4, 1);
+        CompletableFuture<Throwable> execution = CompletableFuture.supplyAsync(() -> {
+            try {
+                executor.execute(REFERENCE, List.of(GOOD, BAD), tests(4));
+                return null;
+            } catch (InterruptedException e) {
+                return e;
+            }
+        });
+        Thread.sleep(200);
+        executor.cancel();
+        assertTrue(execution.get(10, TimeUnit.SECONDS) instanceof InterruptedException);
+    }
+
+    /**
+     * Tests that a cancel() that comes after execute() is called, but before it runs anything (here, while
+     * it deduplicates the submissions), still cancels it.
+     */
+    @Test
+    void testCancelBeforeRunning(@TempDir Path dir) throws Exception {
+        // reading a named pipe blocks until it is written, which holds execute() in the deduplication
+        Path pipe = dir.resolve("pipe.py");
+        assertEquals(0, new ProcessBuilder("mkfifo", pipe.toString()).start().waitFor());
+        List<Path> opened = new CopyOnWriteArrayList<>();
+        TestExecutor executor = new TestExecutor(submission -> {
+            opened.add(submission);
+            return new TableRunner(submission, new ConcurrentHashMap<>());
+        }, 4, 1);
+        executor.useDeduplication(true);
+        CompletableFuture<Throwable> execution = CompletableFuture.supplyAsync(() -> {
+            try {
+                executor.execute(REFERENCE, List.of(pipe), tests(4));
+                return null;
+            } catch (InterruptedException e) {
+                return e;
+            }
+        });
+        // opening the pipe for writing waits until execute() opens it for reading
+        try (OutputStream out = Files.newOutputStream(pipe)) {
+            executor.cancel();
+            out.write("def f(x):\n    return x\n".getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertTrue(execution.get(10, TimeUnit.SECONDS) instanceof InterruptedException);
+        assertEquals(List.of(), opened);
+    }
+
+    /**
+     * @param numTests the number of test cases
+     * @return test cases whose only argument is their index
+     */
+    private static List<TestCase> tests(int numTests) {
+        List<TestCase> tests = new ArrayList<>();
+        for (int test = 0; test < numTests; test++) {
+            tests.add(new TestCase(List.of(new PyIntObj(test))));
+        }
+        return tests;
+    }
+
+    /**
+     * @param values some integers
+     * @return them in ascending order
+     */
+    private static List<Integer> sorted(List<Integer> values) {
+        List<Integer> copy = new ArrayList<>(values);
+        copy.sort(null);
+        return copy;
+    }
+
+    /**
+     * BlockedRunner blocks every call until it is closed, like a runner whose processes hang.
+     */
+    private static final class BlockedRunner extends APyRunner {
+        private final CountDownLatch closed = new CountDownLatch(1);
+
+        @Override
+        public List<PyCallResult> runAll(List<TestCase> tests, List<PyCallResult> expected)
+                throws InterruptedException {
+            closed.await();
+            return Collections.nCopies(tests.size(), new PyCallResult(PyCallResult.Status.CRASHED, "runner closed"));
+        }
+
+        @Override
+        public void close() {
+            closed.countDown();
+        }
+    }
+
+    /**
+     * TableRunner answers each call from a table of outcomes, and records the test cases it is asked to run.
+     */
+    private static final class TableRunner extends APyRunner {
+        private final Path submission;
+        private final List<Integer> calls;
+        private volatile boolean closed;
+
+        /**
+         * It's a constructor set for TableRunner
+         * @param submission: the submission whose outcomes to give
+         * @param calls: where to record the index of each test case run, per submission
+         */
+        TableRunner(Path submission, Map<Path, List<Integer>> calls) {
+            this.submission = submission;
+            this.calls = calls.computeIfAbsent(submission, path -> new CopyOnWriteArrayList<>());
+        }
+
+        @Override
+        public List<PyCallResult> runAll(List<TestCase> tests, List<PyCallResult> expected) {
+            List<PyCallResult> results = new ArrayList<>();
+            for (TestCase test : tests) {
+                int index = ((PyIntObj) test.getArgs().get(0)).getValue();
+                calls.add(index);
+                results.add(outcome(index));
+            }
+            return results;
+        }
+
+        /**
+         * @param test the index of a test case
+         * @return the outcome of the submission on it
+         */
+        private PyCallResult outcome(int test) {
+            if (submission.equals(BAD)) {
+                return PyCallResult.returned("-1");
+            }
+            return switch (test) {
+                case 1 -> new PyCallResult(PyCallResult.Status.TIMEOUT, "timed out after 10 ms");
+                case 2 -> new PyCallResult(PyCallResult.Status.CRASHED, "python exited");
+                case 3 -> new PyCallResult(PyCallResult.Status.RAISED, "ValueError: 3");
+                default -> PyCallResult.returned(String.valueOf(test));
+            };
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
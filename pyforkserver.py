@@ -0,0 +1,165 @@
+"""Fork server for main.rice.test.ForkServerRunner.
+
+Imports one submission once, then forks a fresh copy-on-write child for every call, so no call can see
+the global state another call left behind, without paying for interpreter startup and import each time.
+
+Usage: python3 pyforkserver.py <socket path> <submission.py> <function name> <timeout seconds>
+                               [<cpu seconds per call> <memory bytes>]
+
+The server listens on a Unix domain socket and prints "ready" on stdout once it accepts connections.
+Each connection is served by its own forked handler, so connections run in parallel. Requests and
+responses use the frames of pyworker.py, where status 2 also means the call ran past the timeout
+(its child was stopped by SIGALRM or SIGXCPU, or killed) and status 3 also means the child died without
+answering. The optional limits (0 = none) are set with setrlimit as in pyworker.py: RLIMIT_AS before the
+import, and RLIMIT_CPU in each child, whose hard limit a second past the soft one kills a child that
+ignores SIGXCPU. A child that ignores SIGALRM is killed a GRACE past its timeout.
+"""
+import os
+import resource
+import select
+import signal
+import socket
+import struct
+import sys
+import time
+
+from pyworker import apply_limits, call, load_or_error, parse_limits, read_exact, redirect_stdout, write_frame
+
+# how long past its timeout a child that ignores SIGALRM may run before it is killed; less than the GRACE
+# of ForkServerRunner, so the server still answers before the runner gives up on the connection
+GRACE = 1.0
+
+
+def complete(data):
+    """Tells whether data holds exactly one whole response frame."""
+    return len(data) >= 5 and len(data) == 5 + struct.unpack(">I", data[1:5])[0]
+
+
+def collect(pid, read_end, timeout):
+    """Reads the response of child pid from its pipe; returns (the bytes read, its wait status, the CPU
+    seconds it used, whether it had to be killed).
+
+    Stops at a whole frame, or once the child is gone and the pipe is quiet, so a process the call
+    started and that still holds the pipe cannot block the server. A child still running GRACE seconds
+    past its timeout (e.g. one that ignores SIGALRM) is killed with its process group."""
+    deadline = time.monotonic() + timeout + GRACE
+    data = bytearray()
+    status = None
+    killed = False
+    while True:
+        ready, _, _ = select.select([read_end], [], [], 0.05)
+        if ready:
+            chunk = os.read(read_end, 65536)
+            if not chunk:
+                break
+            data += chunk
+            if complete(data):
+                break
+            continue
+        if status is not None:
+            break
+        done, status, usage = os.wait4(pid, os.WNOHANG)
+        if not done:
+            status = None
+            if time.monotonic() > deadline:
+                try:
+                    os.killpg(pid, signal.SIGKILL)
+                except OSError:
+                    pass  # it exited just now
+                killed = True
+                break
+    if status is None:
+        _, status, usage = os.wait4(pid, 0)
+    return data, status, usage.ru_utime + usage.ru_stime, killed
+
+
+def run_child(func, load_error, payload, timeout, cpu):
+    """Answers one request in a forked child; returns the bytes of its response frame."""
+    read_end, write_end = os.pipe()
+    pid = os.fork()
+    if pid == 0:
+        # a process group of its own, so whatever the call starts can be killed with it
+        os.setpgid(0, 0)
+        os.close(read_end)
+        signal.setitimer(signal.ITIMER_REAL, timeout)
+        if cpu > 0:
+            # a forked child starts with no CPU time used; SIGXCPU can be caught or ignored, so the hard
+            # limit a second later kills the child outright
+            hard = resource.getrlimit(resource.RLIMIT_CPU)[1]
+            if hard == resource.RLIM_INFINITY or hard > cpu + 1:
+                hard = cpu + 1
+            resource.setrlimit(resource.RLIMIT_CPU, (min(cpu, hard), hard))
+        with os.fdopen(write_end, "wb") as out:
+            write_frame(out, *call(func, load_error, payload))
+        os._exit(0)
+
+    os.close(write_end)
+    data, status, used, killed = collect(pid, read_end, timeout)
+    os.close(read_end)
+    try:
+        os.killpg(pid, signal.SIGKILL)
+    except OSError:
+        pass  # nothing was left behind
+    if complete(data):
+        return bytes(data)
+    signum = os.WTERMSIG(status) if os.WIFSIGNALED(status) else 0
+    if killed or signum == signal.SIGALRM:
+        text, code = "timed out after %g s" % timeout, 2
+    elif signum == signal.SIGXCPU or (signum == signal.SIGKILL and cpu > 0 and used >= cpu):
+        # a SIGKILL past the CPU time is the hard limit
+        text, code = "cpu time limit of %d s exceeded" % cpu, 2
+    elif signum:
+        text, code = "child killed by signal %d" % signum, 3
+    else:
+        text, code = "child exited with code %d" % os.WEXITSTATUS(status), 3
+    data = text.encode("utf-8")
+    return struct.pack(">BI", code, len(data)) + data
+
+
+def serve(conn, func, load_error, timeout, cpu):
+    """Answers the requests of one connection until the client closes it."""
+    requests = conn.makefile("rb")
+    responses = conn.makefile("wb")
+    while True:
+        header = read_exact(requests, 4)
+        if header is None:
+            return
+        payload = read_exact(requests, struct.unpack(">I", header)[0])
+        if payload is None:
+            return
+        responses.write(run_child(func, load_error, payload, timeout, cpu))
+        responses.flush()
+
+
+def main():
+    # a process group of its own, so killing it also kills the handlers
+    os.setpgrp()
+    path, timeout = sys.argv[1], float(sys.argv[4])
+    ready = redirect_stdout()
+    cpu, memory = parse_limits(sys.argv[5:])
+    apply_limits(cpu, memory)
+    func, load_error = load_or_error(sys.argv[2], sys.argv[3])
+
+    server = socket.socket(socket.AF_UNIX, socket.SOCK_STREAM)
+    server.bind(path)
+    server.listen()
+    # the handlers are never waited for; let the kernel reap them
+    signal.signal(signal.SIGCHLD, signal.SIG_IGN)
+    ready.write(b"ready\n")
+    ready.flush()
+
+    while True:
+        conn, _ = server.accept()
+        if os.fork() == 0:
+            server.close()
+            signal.signal(signal.SIGCHLD, signal.SIG_DFL)
+            try:
+                serve(conn, func, load_error, timeout, cpu)
+            except OSError:
+                pass  # the client went away
+            os._exit(0)
+        conn.close()
+
+
+if __name__ == "__main__":
+    main()
@@ -0,0 +1,195 @@
+"""Long-lived worker process for main.rice.test.PyWorkerPool.
+
+Imports one submission once, then runs calls of one of its functions as they arrive on stdin.
+
+Usage: python3 pyworker.py <submission.py> <function name> [<cpu seconds per call> <memory bytes>]
+
+The optional limits (0 = none) are set with setrlimit before the submission is imported: RLIMIT_AS for
+the whole process, and RLIMIT_CPU re-armed before every call. A call that runs out of CPU time gets a
+response with status 2 and the worker exits.
+
+The worker makes itself a process group leader before the import, so the runner can kill it together
+with everything the submission starts, even processes that were orphaned.
+
+Frames (integers are big-endian):
+  request:  u32 length, then the tuple of arguments: either a NUL byte followed by its
+            main.rice.obj.PyObjEncoder encoding, or its UTF-8 Python repr
+  response: u8 status (0 = returned, 1 = raised, 2 = out of CPU time, 3 = the request could not be
+            decoded), u32 length, then UTF-8 text: the repr of the return value, or
+            "<exception type>: <message>"
+The frames use a private copy of the original stdout; anything the submission prints goes to stderr
+instead, so it cannot corrupt the responses.
+"""
+import ast
+import importlib.util
+import os
+import resource
+import signal
+import struct
+import sys
+
+INT = struct.Struct(">i")
+FLOAT = struct.Struct(">d")
+COUNT = struct.Struct(">I")
+
+
+def load(path, name):
+    """Imports the submission at path and returns its function called name."""
+    spec = importlib.util.spec_from_file_location("submission", path)
+    module = importlib.util.module_from_spec(spec)
+    spec.loader.exec_module(module)
+    return getattr(module, name)
+
+
+def read_exact(stream, size):
+    """Reads exactly size bytes, or returns None if the stream ends first."""
+    data = b""
+    while len(data) < size:
+        chunk = stream.read(size - len(data))
+        if not chunk:
+            return None
+        data += chunk
+    return data
+
+
+def write_frame(out, status, text):
+    """Writes one response frame and flushes it."""
+    data = text.encode("utf-8", "backslashreplace")
+    out.write(struct.pack(">BI", status, len(data)) + data)
+    out.flush()
+
+
+def decode(data, pos):
+    """Decodes the PyObjEncoder value at data[pos:]; returns (value, position after it)."""
+    tag = data[pos]
+    pos += 1
+    if tag == 0x69:  # 'i'
+        return INT.unpack_from(data, pos)[0], pos + 4
+    if tag == 0x66:  # 'f'
+        return FLOAT.unpack_from(data, pos)[0], pos + 8
+    if tag == 0x62:  # 'b'
+        return data[pos] != 0, pos + 1
+    size = COUNT.unpack_from(data, pos)[0]
+    pos += 4
+    if tag == 0x73:  # 's'
+        return data[pos:pos + size].decode("utf-8"), pos + size
+    if tag == 0x64:  # 'd'
+        result = {}
+        for _ in range(size):
+            key, pos = decode(data, pos)
+            result[key], pos = decode(data, pos)
+        return result, pos
+    items = []
+    for _ in range(size):
+        item, pos = decode(data, pos)
+        items.append(item)
+    if tag == 0x6C:  # 'l'
+        return items, pos
+    if tag == 0x74:  # 't'
+        return tuple(items), pos
+    if tag == 0x53:  # 'S'
+        return set(items), pos
+    raise ValueError("bad tag %d at %d" % (tag, pos - 5))
+
+
+def parse_args(payload):
+    """Decodes the argument tuple of a request."""
+    if payload[:1] == b"\0":
+        return decode(payload, 1)[0]
+    return ast.literal_eval(payload.decode("utf-8"))
+
+
+def call(func, load_error, payload):
+    """Runs one request; returns the (status, text) of its response. A request whose arguments cannot be
+    decoded is the harness's fault, not the submission's, so it gets status 3 rather than 1."""
+    if load_error is not None:
+        return 1, load_error
+    try:
+        args = parse_args(payload)
+    except Exception as e:
+        return 3, "cannot decode the arguments: " + type(e).__name__ + ": " + str(e)
+    try:
+        return 0, repr(func(*args))
+    except BaseException as e:  # includes SystemExit raised by the submission
+        return 1, type(e).__name__ + ": " + str(e)
+
+
+def load_or_error(path, name):
+    """Like load, but returns (function, None), or (None, error text) if the import fails."""
+    try:
+        return load(path, name), None
+    except BaseException as e:  # report it on every call instead of dying
+        return None, type(e).__name__ + ": " + str(e)
+
+
+def apply_limits(cpu, memory):
+    """Limits the address space of this process (and its children) to memory bytes, if memory > 0, and
+    turns off core dumps if cpu > 0, as running out of CPU time dumps core by default."""
+    if memory > 0:
+        resource.setrlimit(resource.RLIMIT_AS, (memory, memory))
+    if cpu > 0:
+        resource.setrlimit(resource.RLIMIT_CORE, (0, 0))
+
+
+def arm_cpu(cpu):
+    """Lets this process use cpu more seconds of CPU time (0 = no limit) before it gets SIGXCPU.
+
+    Only the soft limit moves: the hard limit could never be raised again for the next call. So a call
+    stuck in C code, where the SIGXCPU handler does not get to run, is not stopped by its CPU budget but
+    by the wall-clock timeout of the runner, which kills the worker."""
+    hard = resource.getrlimit(resource.RLIMIT_CPU)[1]
+    soft = hard
+    if cpu > 0:
+        usage = resource.getrusage(resource.RUSAGE_SELF)
+        soft = int(usage.ru_utime + usage.ru_stime) + cpu + 1
+        if hard != resource.RLIM_INFINITY:
+            soft = min(soft, hard)
+    resource.setrlimit(resource.RLIMIT_CPU, (soft, hard))
+
+
+def parse_limits(args):
+    """Returns the (cpu seconds, memory bytes) given by the optional trailing arguments."""
+    if len(args) < 2:
+        return 0, 0
+    return int(args[0]), int(args[1])
+
+
+def redirect_stdout():
+    """Points fd 1 and sys.stdout at stderr; returns a binary stream on the original stdout."""
+    original = os.fdopen(os.dup(1), "wb")
+    os.dup2(2, 1)
+    sys.stdout = sys.stderr
+    return original
+
+
+def main():
+    os.setpgrp()
+    requests = sys.stdin.buffer
+    responses = redirect_stdout()
+    cpu, memory = parse_limits(sys.argv[3:])
+    apply_limits(cpu, memory)
+
+    def out_of_cpu(signum, frame):
+        # the call may be anywhere, so answer with a raw write and don't return into it
+        text = ("cpu time limit of %d s exceeded" % cpu).encode("utf-8")
+        os.write(responses.fileno(), struct.pack(">BI", 2, len(text)) + text)
+        os._exit(1)
+
+    signal.signal(signal.SIGXCPU, out_of_cpu)
+    func, load_error = load_or_error(sys.argv[1], sys.argv[2])
+
+    while True:
+        header = read_exact(requests, 4)
+        if header is None:
+            return
+        payload = read_exact(requests, struct.unpack(">I", header)[0])
+        if payload is None:
+            return
+        arm_cpu(cpu)
+        result = call(func, load_error, payload)
+        arm_cpu(0)
+        write_frame(responses, *result)
+
+
+if __name__ == "__main__":
+    main()